@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.benchmarks;
+
+import org.gcontracts.benchmarks.fixtures.InlineRequiresAccount;
+import org.gcontracts.benchmarks.fixtures.PlainAccount;
+import org.gcontracts.benchmarks.fixtures.TrackedRequiresAccount;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of {@link org.gcontracts.annotations.Requires} preconditions in inline mode and in
+ * execution tracker mode against an uncontracted method.
+ *
+ * @author ast
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PreconditionBenchmark {
+
+    private PlainAccount plain;
+    private InlineRequiresAccount inlineMode;
+    private TrackedRequiresAccount executionTrackerMode;
+
+    @Setup
+    public void setUp()  {
+        plain = new PlainAccount();
+        inlineMode = new InlineRequiresAccount();
+        executionTrackerMode = new TrackedRequiresAccount();
+    }
+
+    @Benchmark
+    public long plain()  {
+        plain.deposit(1);
+        return plain.getBalance();
+    }
+
+    @Benchmark
+    public long inlineMode()  {
+        inlineMode.deposit(1);
+        return inlineMode.getBalance();
+    }
+
+    @Benchmark
+    public long executionTrackerMode()  {
+        executionTrackerMode.deposit(1);
+        return executionTrackerMode.getBalance();
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.benchmarks;
+
+import org.gcontracts.benchmarks.fixtures.ContractedAccount;
+import org.gcontracts.benchmarks.fixtures.PlainAccount;
+import org.gcontracts.benchmarks.fixtures.SynchronizedContractedAccount;
+import org.gcontracts.benchmarks.fixtures.SynchronizedPlainAccount;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures the throughput of contracted methods and their uncontracted baselines on accounts shared by all
+ * benchmark threads and on accounts confined to a single thread, with and without {@link groovy.transform.Synchronized}.
+ * Contracted benchmarks are named like their baselines with <tt>Plain</tt> replaced by <tt>Contracted</tt>.</p>
+ *
+ * <p>The benchmark is run with an increasing number of threads by {@link ScalabilityRunner}.</p>
+ *
+ * @author ast
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalabilityBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        final PlainAccount plain = new PlainAccount();
+        final ContractedAccount contracted = new ContractedAccount();
+        final SynchronizedPlainAccount plainSynchronized = new SynchronizedPlainAccount();
+        final SynchronizedContractedAccount contractedSynchronized = new SynchronizedContractedAccount();
+    }
+
+    @State(Scope.Thread)
+    public static class Confined {
+        final PlainAccount plain = new PlainAccount();
+        final ContractedAccount contracted = new ContractedAccount();
+        final SynchronizedPlainAccount plainSynchronized = new SynchronizedPlainAccount();
+        final SynchronizedContractedAccount contractedSynchronized = new SynchronizedContractedAccount();
+    }
+
+    @Benchmark
+    public long sharedPlain(final Shared state)  {
+        state.plain.deposit(1);
+        return state.plain.getBalance();
+    }
+
+    @Benchmark
+    public long sharedContracted(final Shared state)  {
+        state.contracted.deposit(1);
+        return state.contracted.getBalance();
+    }
+
+    @Benchmark
+    public long sharedPlainSynchronized(final Shared state)  {
+        state.plainSynchronized.deposit(1);
+        return state.plainSynchronized.getBalance();
+    }
+
+    @Benchmark
+    public long sharedContractedSynchronized(final Shared state)  {
+        state.contractedSynchronized.deposit(1);
+        return state.contractedSynchronized.getBalance();
+    }
+
+    @Benchmark
+    public long confinedPlain(final Confined state)  {
+        state.plain.deposit(1);
+        return state.plain.getBalance();
+    }
+
+    @Benchmark
+    public long confinedContracted(final Confined state)  {
+        state.contracted.deposit(1);
+        return state.contracted.getBalance();
+    }
+
+    @Benchmark
+    public long confinedPlainSynchronized(final Confined state)  {
+        state.plainSynchronized.deposit(1);
+        return state.plainSynchronized.getBalance();
+    }
+
+    @Benchmark
+    public long confinedContractedSynchronized(final Confined state)  {
+        state.contractedSynchronized.deposit(1);
+        return state.contractedSynchronized.getBalance();
+    }
+}
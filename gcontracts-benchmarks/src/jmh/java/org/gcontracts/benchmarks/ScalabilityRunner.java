@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.benchmarks;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+
+/**
+ * <p>Runs the {@link ScalabilityBenchmark} with 1, 2, 4, &hellip; threads up to a maximum number of threads, which
+ * defaults to the number of available processors, and reports for every benchmark and thread count:</p>
+ *
+ * <ul>
+ *     <li>the throughput in operations per microsecond,</li>
+ *     <li>the scaling efficiency, the throughput divided by the number of threads times the single-threaded
+ *     throughput,</li>
+ *     <li>the throughput of contracted benchmarks relative to their uncontracted baselines.</li>
+ * </ul>
+ *
+ * <pre>
+ *     gradle scalabilityBenchmark -PmaxThreads=64
+ * </pre>
+ *
+ * @author ast
+ */
+public class ScalabilityRunner {
+
+    private static final String CONTRACTED = "Contracted";
+    private static final String PLAIN = "Plain";
+
+    public static void main(String[] args) throws Exception {
+        final int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+
+        // benchmark method name -> thread count -> throughput
+        final Map<String, Map<Integer, Double>> scores = new TreeMap<String, Map<Integer, Double>>();
+        final List<Integer> threadCounts = threadCounts(maxThreads);
+
+        for (int threads : threadCounts)  {
+            final Collection<RunResult> results = new Runner(new OptionsBuilder()
+                    .include(ScalabilityBenchmark.class.getName() + ".*")
+                    .threads(threads)
+                    .build()).run();
+
+            for (RunResult result : results)  {
+                final String benchmark = result.getParams().getBenchmark();
+                final String name = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+
+                if (!scores.containsKey(name)) scores.put(name, new TreeMap<Integer, Double>());
+                scores.get(name).put(threads, result.getPrimaryResult().getScore());
+            }
+        }
+
+        System.out.println(report(scores, threadCounts));
+    }
+
+    static List<Integer> threadCounts(final int maxThreads)  {
+        final List<Integer> result = new ArrayList<Integer>();
+        for (int threads = 1; threads < maxThreads; threads <<= 1) result.add(threads);
+        result.add(Math.max(maxThreads, 1));
+
+        return result;
+    }
+
+    private static String report(final Map<String, Map<Integer, Double>> scores, final List<Integer> threadCounts)  {
+        final Formatter formatter = new Formatter();
+        formatter.format("%-32s %8s %14s %12s %14s%n", "benchmark", "threads", "ops/us", "efficiency", "vs. baseline");
+
+        for (Map.Entry<String, Map<Integer, Double>> entry : scores.entrySet())  {
+            final String name = entry.getKey();
+            final Map<Integer, Double> score = entry.getValue();
+            final Map<Integer, Double> baseline = name.contains(CONTRACTED) ? scores.get(name.replace(CONTRACTED, PLAIN)) : null;
+
+            final Double singleThreaded = score.get(1);
+            for (int threads : threadCounts)  {
+                final Double throughput = score.get(threads);
+                if (throughput == null) continue;
+
+                final String efficiency = singleThreaded != null && singleThreaded > 0 ? String.format("%.1f%%", throughput * 100.0 / (threads * singleThreaded)) : "";
+                final String relative = baseline != null && baseline.get(threads) != null && baseline.get(threads) > 0 ? String.format("%.1f%%", throughput * 100.0 / baseline.get(threads)) : "";
+
+                formatter.format("%-32s %8d %14.3f %12s %14s%n", name, threads, throughput, efficiency, relative);
+            }
+        }
+
+        return formatter.toString();
+    }
+}
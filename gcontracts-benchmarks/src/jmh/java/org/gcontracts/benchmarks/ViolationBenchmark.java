@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.benchmarks;
+
+import org.gcontracts.AssertionViolation;
+import org.gcontracts.PreconditionViolation;
+import org.gcontracts.benchmarks.fixtures.InlineRequiresAccount;
+import org.gcontracts.benchmarks.fixtures.TrackedRequiresAccount;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the failure path: the cost of a violated precondition, from the evaluation of the contract to the
+ * violation being caught by the caller, with and without stack traces.
+ *
+ * @see AssertionViolation#setStackless(boolean)
+ *
+ * @author ast
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ViolationBenchmark {
+
+    @Param({"false", "true"})
+    public boolean stackless;
+
+    private InlineRequiresAccount inlineMode;
+    private TrackedRequiresAccount executionTrackerMode;
+
+    @Setup
+    public void setUp()  {
+        AssertionViolation.setStackless(stackless);
+
+        inlineMode = new InlineRequiresAccount();
+        executionTrackerMode = new TrackedRequiresAccount();
+    }
+
+    @TearDown
+    public void tearDown()  {
+        AssertionViolation.setStackless(false);
+    }
+
+    @Benchmark
+    public Object inlineMode()  {
+        try {
+            inlineMode.deposit(-1);
+            return null;
+        } catch (PreconditionViolation violation)  {
+            return violation;
+        }
+    }
+
+    @Benchmark
+    public Object executionTrackerMode()  {
+        try {
+            executionTrackerMode.deposit(-1);
+            return null;
+        } catch (PreconditionViolation violation)  {
+            return violation;
+        }
+    }
+}
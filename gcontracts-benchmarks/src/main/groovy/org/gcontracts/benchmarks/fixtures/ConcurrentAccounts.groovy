@@ -0,0 +1,51 @@
+package org.gcontracts.benchmarks.fixtures
+
+import groovy.transform.Synchronized
+import org.gcontracts.annotations.Ensures
+import org.gcontracts.annotations.Invariant
+import org.gcontracts.annotations.Requires
+
+/**
+ * A precondition, a postcondition and a class invariant without <tt>old</tt> values, which hold even if the account
+ * is shared between threads without synchronization.
+ *
+ * @author ast
+ */
+@Invariant({ balance >= 0 })
+class ContractedAccount {
+
+    long balance = 0
+
+    @Requires({ amount > 0 })
+    @Ensures({ balance > 0 })
+    void deposit(long amount) { balance += amount }
+}
+
+/**
+ * The uncontracted baseline of {@link SynchronizedContractedAccount}.
+ *
+ * @author ast
+ */
+class SynchronizedPlainAccount {
+
+    long balance = 0
+
+    @Synchronized
+    void deposit(long amount) { balance += amount }
+}
+
+/**
+ * The contracts of {@link ContractedAccount} on a method synchronized by {@link Synchronized}.
+ *
+ * @author ast
+ */
+@Invariant({ balance >= 0 })
+class SynchronizedContractedAccount {
+
+    long balance = 0
+
+    @Synchronized
+    @Requires({ amount > 0 })
+    @Ensures({ balance > 0 })
+    void deposit(long amount) { balance += amount }
+}
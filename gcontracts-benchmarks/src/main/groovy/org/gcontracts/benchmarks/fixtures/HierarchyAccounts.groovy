@@ -0,0 +1,53 @@
+package org.gcontracts.benchmarks.fixtures
+
+import org.gcontracts.annotations.Ensures
+import org.gcontracts.annotations.Invariant
+import org.gcontracts.annotations.Requires
+
+/**
+ * Class hierarchies of depth 1 to 5, every class adds a class invariant and overrides <tt>deposit</tt> with its own
+ * pre- and postcondition. Subclass contracts are combined with the contracts of all super classes.
+ *
+ * @author ast
+ */
+@Invariant({ balance >= 0 })
+class Depth1Account {
+
+    long balance = 0
+
+    @Requires({ amount > 0 })
+    @Ensures({ balance >= amount })
+    void deposit(long amount) { balance += amount }
+}
+
+@Invariant({ balance >= 0 })
+class Depth2Account extends Depth1Account {
+
+    @Requires({ amount > 0 })
+    @Ensures({ balance >= amount })
+    void deposit(long amount) { balance += amount }
+}
+
+@Invariant({ balance >= 0 })
+class Depth3Account extends Depth2Account {
+
+    @Requires({ amount > 0 })
+    @Ensures({ balance >= amount })
+    void deposit(long amount) { balance += amount }
+}
+
+@Invariant({ balance >= 0 })
+class Depth4Account extends Depth3Account {
+
+    @Requires({ amount > 0 })
+    @Ensures({ balance >= amount })
+    void deposit(long amount) { balance += amount }
+}
+
+@Invariant({ balance >= 0 })
+class Depth5Account extends Depth4Account {
+
+    @Requires({ amount > 0 })
+    @Ensures({ balance >= amount })
+    void deposit(long amount) { balance += amount }
+}
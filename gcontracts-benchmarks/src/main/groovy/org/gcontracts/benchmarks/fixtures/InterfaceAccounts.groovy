@@ -0,0 +1,30 @@
+package org.gcontracts.benchmarks.fixtures
+
+import org.gcontracts.annotations.Ensures
+import org.gcontracts.annotations.Requires
+
+/**
+ * Contracts declared on an interface method and inherited by the implementation.
+ *
+ * @author ast
+ */
+interface Account {
+
+    @Requires({ amount > 0 })
+    @Ensures({ balance > 0 })
+    void deposit(long amount)
+
+    long getBalance()
+}
+
+/**
+ * Implements {@link Account} without contracts of its own.
+ *
+ * @author ast
+ */
+class InterfaceAccount implements Account {
+
+    long balance = 0
+
+    void deposit(long amount) { balance += amount }
+}
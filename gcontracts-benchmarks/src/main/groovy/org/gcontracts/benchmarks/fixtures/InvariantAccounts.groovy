@@ -0,0 +1,31 @@
+package org.gcontracts.benchmarks.fixtures
+
+import org.gcontracts.annotations.Invariant
+
+/**
+ * A class invariant in inline mode.
+ *
+ * @author ast
+ */
+@Invariant({ balance >= 0 })
+class InlineInvariantAccount {
+
+    long balance = 0
+
+    void deposit(long amount) { balance += amount }
+}
+
+/**
+ * A class invariant in execution tracker mode.
+ *
+ * @author ast
+ */
+@Invariant({ isNotNegative(balance) })
+class TrackedInvariantAccount {
+
+    long balance = 0
+
+    static boolean isNotNegative(long value) { value >= 0 }
+
+    void deposit(long amount) { balance += amount }
+}
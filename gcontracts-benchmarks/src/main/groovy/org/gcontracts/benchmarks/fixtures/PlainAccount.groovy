@@ -0,0 +1,17 @@
+package org.gcontracts.benchmarks.fixtures
+
+/**
+ * The uncontracted baseline of all benchmarked accounts.
+ *
+ * @author ast
+ */
+class PlainAccount {
+
+    long balance = 0
+
+    void deposit(long amount) { balance += amount }
+
+    void increase(long amount) { balance += amount }
+
+    long add(long amount) { balance += amount }
+}
@@ -0,0 +1,45 @@
+package org.gcontracts.benchmarks.fixtures
+
+import org.gcontracts.annotations.Ensures
+
+/**
+ * Postconditions in inline mode: plain, with <tt>old</tt> and with <tt>result</tt>.
+ *
+ * @author ast
+ */
+class InlineEnsuresAccount {
+
+    long balance = 0
+
+    @Ensures({ balance > 0 })
+    void deposit(long amount) { balance += amount }
+
+    @Ensures({ balance == old.balance + amount })
+    void increase(long amount) { balance += amount }
+
+    @Ensures({ result == balance })
+    long add(long amount) { balance += amount }
+}
+
+/**
+ * Postconditions in execution tracker mode: plain, with <tt>old</tt> and with <tt>result</tt>.
+ *
+ * @author ast
+ */
+class TrackedEnsuresAccount {
+
+    long balance = 0
+
+    static boolean isPositive(long value) { value > 0 }
+
+    static boolean isEqual(long a, long b) { a == b }
+
+    @Ensures({ isPositive(balance) })
+    void deposit(long amount) { balance += amount }
+
+    @Ensures({ isEqual(balance, old.balance + amount) })
+    void increase(long amount) { balance += amount }
+
+    @Ensures({ isEqual(result, balance) })
+    long add(long amount) { balance += amount }
+}
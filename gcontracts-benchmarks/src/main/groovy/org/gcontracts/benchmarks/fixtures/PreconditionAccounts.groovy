@@ -0,0 +1,31 @@
+package org.gcontracts.benchmarks.fixtures
+
+import org.gcontracts.annotations.Requires
+
+/**
+ * Preconditions in inline mode, without method calls in the contract.
+ *
+ * @author ast
+ */
+class InlineRequiresAccount {
+
+    long balance = 0
+
+    @Requires({ amount > 0 })
+    void deposit(long amount) { balance += amount }
+}
+
+/**
+ * Preconditions in execution tracker mode, method calls in the contract are guarded against cycles.
+ *
+ * @author ast
+ */
+class TrackedRequiresAccount {
+
+    long balance = 0
+
+    static boolean isPositive(long value) { value > 0 }
+
+    @Requires({ isPositive(amount) })
+    void deposit(long amount) { balance += amount }
+}
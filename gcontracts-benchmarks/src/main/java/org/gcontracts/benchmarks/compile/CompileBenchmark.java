@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.benchmarks.compile;
+
+import groovy.lang.GroovyClassLoader;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.ProcessingUnit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URL;
+import java.util.*;
+
+/**
+ * <p>Measures the compile time overhead of the GContracts AST transformations on synthetic sources generated by
+ * {@link SyntheticSources}. The sources are compiled up to the class generation phase with and without the
+ * transformations, alternating between both modes, and the average wall time, the average time per compiler phase
+ * and the peak heap usage are reported:</p>
+ *
+ * <pre>
+ *     gradle compileBenchmark -PcompileBenchmark="--classes 2000 --depth 4 --interfaces 2 --methods 5 --contracts 2"
+ * </pre>
+ *
+ * <p>Without transformations, the GContracts entries of <tt>META-INF/services/org.codehaus.groovy.transform.ASTTransformation</tt>
+ * are hidden from the compiler, the contract annotations remain as plain annotations with closure values.</p>
+ *
+ * @author ast
+ */
+public class CompileBenchmark {
+
+    private static final String GLOBAL_TRANSFORMATIONS = "META-INF/services/org.codehaus.groovy.transform.ASTTransformation";
+    private static final String GCONTRACTS_PACKAGE = "org.gcontracts.";
+
+    private final Map<String, String> sources;
+
+    public CompileBenchmark(final Map<String, String> sources)  {
+        this.sources = sources;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, Integer> options = parseOptions(args);
+
+        final SyntheticSources syntheticSources = new SyntheticSources(options.get("classes"), options.get("depth"), options.get("interfaces"), options.get("methods"), options.get("contracts"));
+        final CompileBenchmark benchmark = new CompileBenchmark(syntheticSources.generate());
+
+        final int warmUps = options.get("warmups");
+        final int iterations = options.get("iterations");
+
+        for (int i = 0; i < warmUps; i++)  {
+            benchmark.compile(false);
+            benchmark.compile(true);
+        }
+
+        final Result withoutContracts = new Result();
+        final Result withContracts = new Result();
+        for (int i = 0; i < iterations; i++)  {
+            withoutContracts.add(benchmark.compile(false));
+            withContracts.add(benchmark.compile(true));
+        }
+
+        System.out.println(syntheticSources + ", " + iterations + " iterations after " + warmUps + " warm-ups");
+        System.out.println();
+        System.out.println(report(withoutContracts, withContracts));
+    }
+
+    /**
+     * Compiles all sources up to the class generation phase, no class files are written.
+     *
+     * @param withContracts whether the GContracts AST transformations are applied
+     * @return the wall time, the time per phase and the peak heap usage of the compilation
+     */
+    public Measurement compile(final boolean withContracts)  {
+        final ClassLoader parent = withContracts ? getClass().getClassLoader() : new TransformationHidingClassLoader(getClass().getClassLoader());
+        final CompilerConfiguration configuration = new CompilerConfiguration();
+        final CompilationUnit compilationUnit = new CompilationUnit(configuration, null, new GroovyClassLoader(parent, configuration));
+
+        for (Map.Entry<String, String> source : sources.entrySet())  {
+            compilationUnit.addSource(source.getKey(), source.getValue());
+        }
+
+        System.gc();
+        resetPeakHeapUsage();
+
+        final Measurement measurement = new Measurement();
+        final long start = System.nanoTime();
+
+        // called after every phase
+        compilationUnit.setProgressCallback(new CompilationUnit.ProgressCallback() {
+            private long phaseStart = start;
+
+            @Override
+            public void call(ProcessingUnit context, int phase) {
+                final long now = System.nanoTime();
+                measurement.phaseNanos[phase] += now - phaseStart;
+                phaseStart = now;
+            }
+        });
+
+        compilationUnit.compile(Phases.CLASS_GENERATION);
+        measurement.wallNanos = System.nanoTime() - start;
+        measurement.peakHeapBytes = getPeakHeapUsage();
+
+        return measurement;
+    }
+
+    private static void resetPeakHeapUsage()  {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())  {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    private static long getPeakHeapUsage()  {
+        long result = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())  {
+            if (pool.getType() == MemoryType.HEAP) result += pool.getPeakUsage().getUsed();
+        }
+
+        return result;
+    }
+
+    private static Map<String, Integer> parseOptions(final String[] args)  {
+        final Map<String, Integer> options = new LinkedHashMap<String, Integer>();
+        options.put("classes", 1000);
+        options.put("depth", 3);
+        options.put("interfaces", 2);
+        options.put("methods", 5);
+        options.put("contracts", 2);
+        options.put("warmups", 2);
+        options.put("iterations", 5);
+
+        for (int i = 0; i < args.length; i++)  {
+            final String name = args[i].startsWith("--") ? args[i].substring(2) : args[i];
+            if (!options.containsKey(name) || i + 1 == args.length) throw new IllegalArgumentException("Usage: CompileBenchmark [--<option> <value>]*, options: " + options.keySet());
+
+            options.put(name, Integer.valueOf(args[++i]));
+        }
+
+        return options;
+    }
+
+    private static String report(final Result withoutContracts, final Result withContracts)  {
+        final Formatter formatter = new Formatter();
+        formatter.format("%-24s %18s %18s %12s%n", "", "without contracts", "with contracts", "overhead");
+
+        for (int phase = Phases.INITIALIZATION; phase <= Phases.CLASS_GENERATION; phase++)  {
+            formatLine(formatter, Phases.getDescription(phase) + " (ms)", withoutContracts.averagePhaseMillis(phase), withContracts.averagePhaseMillis(phase));
+        }
+
+        formatLine(formatter, "wall time (ms)", withoutContracts.averageWallMillis(), withContracts.averageWallMillis());
+        formatLine(formatter, "peak heap (MB)", withoutContracts.maxPeakHeapMegabytes(), withContracts.maxPeakHeapMegabytes());
+
+        return formatter.toString();
+    }
+
+    private static void formatLine(final Formatter formatter, final String name, final double withoutContracts, final double withContracts)  {
+        final String overhead = withoutContracts > 0 ? String.format("%+.1f%%", (withContracts - withoutContracts) * 100.0 / withoutContracts) : "";
+        formatter.format("%-24s %18.1f %18.1f %12s%n", name, withoutContracts, withContracts, overhead);
+    }
+
+    /**
+     * The wall time, the time per compiler phase and the peak heap usage of a single compilation.
+     */
+    public static class Measurement {
+        long wallNanos;
+        long peakHeapBytes;
+        final long[] phaseNanos = new long[Phases.ALL + 1];
+
+        public long getWallNanos() { return wallNanos; }
+        public long getPeakHeapBytes() { return peakHeapBytes; }
+        public long getPhaseNanos(int phase) { return phaseNanos[phase]; }
+    }
+
+    private static class Result {
+        private final List<Measurement> measurements = new ArrayList<Measurement>();
+
+        void add(final Measurement measurement)  {
+            measurements.add(measurement);
+        }
+
+        double averageWallMillis()  {
+            long total = 0;
+            for (Measurement measurement : measurements) total += measurement.wallNanos;
+
+            return total / 1e6 / measurements.size();
+        }
+
+        double averagePhaseMillis(final int phase)  {
+            long total = 0;
+            for (Measurement measurement : measurements) total += measurement.phaseNanos[phase];
+
+            return total / 1e6 / measurements.size();
+        }
+
+        double maxPeakHeapMegabytes()  {
+            long max = 0;
+            for (Measurement measurement : measurements) max = Math.max(max, measurement.peakHeapBytes);
+
+            return max / (1024.0 * 1024.0);
+        }
+    }
+
+    /**
+     * Hides global AST transformation descriptors registering GContracts transformations.
+     */
+    static class TransformationHidingClassLoader extends ClassLoader {
+
+        TransformationHidingClassLoader(final ClassLoader parent)  {
+            super(parent);
+        }
+
+        @Override
+        public Enumeration<URL> getResources(String name) throws IOException {
+            final Enumeration<URL> resources = super.getResources(name);
+            if (!GLOBAL_TRANSFORMATIONS.equals(name)) return resources;
+
+            final List<URL> result = new ArrayList<URL>();
+            while (resources.hasMoreElements())  {
+                final URL url = resources.nextElement();
+                if (!registersContractTransformations(url)) result.add(url);
+            }
+
+            return Collections.enumeration(result);
+        }
+
+        private static boolean registersContractTransformations(final URL url) throws IOException {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null)  {
+                    if (line.trim().startsWith(GCONTRACTS_PACKAGE)) return true;
+                }
+                return false;
+            } finally {
+                reader.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.benchmarks.compile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Generates synthetic contracted Groovy sources. Classes are organized in inheritance chains of a configurable
+ * depth, the root class of every chain implements a configurable number of contracted interfaces and every class
+ * declares a class invariant and overrides all methods of its super class with contracts of its own.</p>
+ *
+ * @author ast
+ */
+public class SyntheticSources {
+
+    public static final String PACKAGE_NAME = "synthetic";
+
+    private final int classes;
+    private final int depth;
+    private final int interfaces;
+    private final int methods;
+    private final int contracts;
+
+    /**
+     * @param classes the number of classes
+     * @param depth the depth of the inheritance chains
+     * @param interfaces the number of contracted interfaces every root class implements
+     * @param methods the number of contracted methods per class
+     * @param contracts the number of assertions per precondition and postcondition
+     */
+    public SyntheticSources(final int classes, final int depth, final int interfaces, final int methods, final int contracts)  {
+        if (classes < 1 || depth < 1 || interfaces < 0 || methods < 0 || contracts < 1) throw new IllegalArgumentException("invalid source configuration");
+
+        this.classes = classes;
+        this.depth = depth;
+        this.interfaces = interfaces;
+        this.methods = methods;
+        this.contracts = contracts;
+    }
+
+    /**
+     * @return the generated sources, keyed by their file names
+     */
+    public Map<String, String> generate()  {
+        final Map<String, String> sources = new LinkedHashMap<String, String>();
+
+        for (int i = 0; i < interfaces; i++)  {
+            sources.put(interfaceName(i) + ".groovy", interfaceSource(i));
+        }
+
+        for (int i = 0; i < classes; i++)  {
+            sources.put(className(i) + ".groovy", classSource(i));
+        }
+
+        return sources;
+    }
+
+    private String interfaceSource(final int index)  {
+        final StringBuilder source = header();
+
+        source.append("interface ").append(interfaceName(index)).append(" {\n\n");
+        appendContracts(source, "    ");
+        source.append("    int ").append(interfaceMethodName(index)).append("(int a, int b)\n");
+        source.append("}\n");
+
+        return source.toString();
+    }
+
+    private String classSource(final int index)  {
+        final StringBuilder source = header();
+        final boolean isRoot = index % depth == 0;
+
+        source.append("@Invariant({ value").append(index).append(" >= 0 })\n");
+        source.append("class ").append(className(index));
+        if (!isRoot)  {
+            source.append(" extends ").append(className(index - 1));
+        } else if (interfaces > 0)  {
+            source.append(" implements ");
+            for (int i = 0; i < interfaces; i++)  {
+                if (i > 0) source.append(", ");
+                source.append(interfaceName(i));
+            }
+        }
+        source.append(" {\n\n");
+
+        source.append("    int value").append(index).append(" = 0\n\n");
+
+        for (int i = 0; i < methods; i++)  {
+            appendContracts(source, "    ");
+            source.append("    int method").append(i).append("(int a, int b) { value").append(index).append(" += a; value").append(index).append(" + b }\n\n");
+        }
+
+        if (isRoot)  {
+            for (int i = 0; i < interfaces; i++)  {
+                source.append("    int ").append(interfaceMethodName(i)).append("(int a, int b) { a + b }\n\n");
+            }
+        }
+
+        source.append("}\n");
+
+        return source.toString();
+    }
+
+    // every assertion on a line of its own, power asserts require distinct source lines
+    private void appendContracts(final StringBuilder source, final String indent)  {
+        source.append(indent).append("@Requires({\n");
+        for (int i = 0; i < contracts; i++) source.append(indent).append("    a >= ").append(-i).append('\n');
+        source.append(indent).append("})\n");
+
+        source.append(indent).append("@Ensures({\n");
+        for (int i = 0; i < contracts; i++) source.append(indent).append("    result >= a + b - ").append(i).append('\n');
+        source.append(indent).append("})\n");
+    }
+
+    private StringBuilder header()  {
+        return new StringBuilder("package ").append(PACKAGE_NAME).append("\n\nimport org.gcontracts.annotations.*\n\n");
+    }
+
+    private static String className(final int index)  {
+        return "SyntheticClass" + index;
+    }
+
+    private static String interfaceName(final int index)  {
+        return "SyntheticInterface" + index;
+    }
+
+    private static String interfaceMethodName(final int index)  {
+        return "interfaceMethod" + index;
+    }
+
+    @Override
+    public String toString() {
+        return "classes=" + classes + ", depth=" + depth + ", interfaces=" + interfaces + ", methods=" + methods + ", contracts=" + contracts;
+    }
+}
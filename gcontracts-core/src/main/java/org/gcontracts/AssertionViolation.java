@@ -22,49 +22,99 @@
  */
 package org.gcontracts;
 
+import org.gcontracts.generation.ContractEvents;
+
 /**
  * <p>Abstract base class for all assertion violations.</p>
  *
+ * <p>If contracts are used for high-volume input validation, violations can be created in <i>stackless</i> mode,
+ * either by setting the system property <tt>org.gcontracts.stacklessViolations=true</tt> or by calling
+ * {@link #setStackless(boolean)}. In this mode violations do not fill in their stack trace and the generated
+ * code does not evaluate the power assert statement, the message only consists of the contract site and
+ * the contract's source text.</p>
+ *
+ * <p>Violations are recorded by the {@link ViolationJournal} when they are created, if it has been opened, and
+ * reported to the listeners of {@link ContractEvents}.</p>
+ *
  * @author ast
  */
 public abstract class AssertionViolation extends AssertionError {
 
+    public static final String STACKLESS_VIOLATIONS = "org.gcontracts.stacklessViolations";
+
+    private static volatile boolean stackless = isStacklessProperty();
+
+    /**
+     * @return whether violations are created without stack traces and power assert messages
+     */
+    public static boolean isStackless()  {
+        return stackless;
+    }
+
+    /**
+     * Enables or disables the stackless mode at runtime.
+     *
+     * @param stackless whether violations are created without stack traces and power assert messages
+     */
+    public static void setStackless(final boolean stackless)  {
+        AssertionViolation.stackless = stackless;
+    }
+
+    private static boolean isStacklessProperty()  {
+        try {
+            return Boolean.getBoolean(STACKLESS_VIOLATIONS);
+        } catch (SecurityException e)  {
+            return false;
+        }
+    }
+
     protected AssertionViolation() {
-        ViolationTracker.INSTANCE.get().track(this);
+        created();
     }
 
     protected AssertionViolation(Object o) {
         super(o);
-        if (ViolationTracker.INSTANCE.get() != null) ViolationTracker.INSTANCE.get().track(this);
+        created();
     }
 
     protected AssertionViolation(boolean b) {
         super(b);
-        if (ViolationTracker.INSTANCE.get() != null) ViolationTracker.INSTANCE.get().track(this);
+        created();
     }
 
     protected AssertionViolation(char c) {
         super(c);
-        if (ViolationTracker.INSTANCE.get() != null) ViolationTracker.INSTANCE.get().track(this);
+        created();
     }
 
     protected AssertionViolation(int i) {
         super(i);
-        if (ViolationTracker.INSTANCE.get() != null) ViolationTracker.INSTANCE.get().track(this);
+        created();
     }
 
     protected AssertionViolation(long l) {
         super(l);
-        if (ViolationTracker.INSTANCE.get() != null) ViolationTracker.INSTANCE.get().track(this);
+        created();
     }
 
     protected AssertionViolation(float v) {
         super(v);
-        if (ViolationTracker.INSTANCE.get() != null) ViolationTracker.INSTANCE.get().track(this);
+        created();
     }
 
     protected AssertionViolation(double v) {
         super(v);
-        if (ViolationTracker.INSTANCE.get() != null) ViolationTracker.INSTANCE.get().track(this);
+        created();
+    }
+
+    private void created()  {
+        ViolationTracker.INSTANCE.get().track(this);
+        ViolationJournal.record(this);
+        ContractEvents.violated(this);
+    }
+
+    @Override
+    public Throwable fillInStackTrace() {
+        return stackless ? this : super.fillInStackTrace();
     }
 }
@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts;
+
+import groovy.lang.Closure;
+import org.gcontracts.generation.BaseGenerator;
+import org.gcontracts.generation.GenerationOptions;
+import org.gcontracts.util.Validate;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * <p>
+ * Runtime utilities for contracted objects.
+ * </p>
+ *
+ * <p>
+ * {@link #deferInvariants(Object, groovy.lang.Closure)} populates an object without checking its class invariant
+ * before and after every generated property setter:
+ * </p>
+ *
+ * <pre>
+ *   def person = Contracts.deferInvariants(new Person()) {
+ *       firstName = row.first_name
+ *       lastName = row.last_name
+ *   }
+ * </pre>
+ *
+ * <p>
+ * The class invariant is checked once when the outermost scope for an object is closed. The deferral is kept in the
+ * object itself and is changed while holding the monitor of the object, scopes may therefore be opened and closed by
+ * several threads. Generated setters called by other threads on the same object skip the class invariant as well
+ * while a scope is open. Only generated property setters are deferred, methods keep checking the class invariant.
+ * </p>
+ *
+ * <p>
+ * Setters can only be deferred if the class has been compiled with {@link GenerationOptions#DEFERRABLE_INVARIANTS},
+ * otherwise the closure is called and the setters keep checking the class invariant.
+ * </p>
+ *
+ * @author ast
+ */
+public final class Contracts {
+
+    public static final String INVARIANTS_DEFERRED_FIELD = "$_gc_invariants_deferred";
+
+    // soft references let the cached fields and methods, which refer to their classes, be collected with them
+    private static final Map<Class<?>, SoftReference<InvariantAccess>> invariantAccesses = Collections.synchronizedMap(new WeakHashMap<Class<?>, SoftReference<InvariantAccess>>());
+
+    private Contracts() {}
+
+    /**
+     * Calls the given <tt>closure</tt> with <tt>target</tt> as its delegate and argument, generated property setters of
+     * <tt>target</tt> skip the class invariant while the closure is executed. The class invariant of <tt>target</tt>
+     * is checked once the outermost scope is closed, it is not checked if the closure throws an exception.
+     *
+     * @param target the contracted object
+     * @param closure the closure populating <tt>target</tt>
+     * @return the given <tt>target</tt>
+     * @throws ClassInvariantViolation if the class invariant does not hold once the outermost scope is closed
+     */
+    public static <T> T deferInvariants(final T target, final Closure<?> closure)  {
+        Validate.notNull(target);
+        Validate.notNull(closure);
+
+        final Closure<?> scope = (Closure<?>) closure.clone();
+        scope.setDelegate(target);
+        scope.setResolveStrategy(Closure.DELEGATE_FIRST);
+
+        final InvariantAccess invariantAccess = getInvariantAccess(target.getClass());
+        final List<Field> deferredFields = invariantAccess.deferredFields;
+        if (deferredFields.isEmpty())  {
+            scope.call(target);
+            return target;
+        }
+
+        addDeferral(target, deferredFields, 1);
+
+        final boolean outermost;
+        try {
+            scope.call(target);
+        } finally {
+            outermost = addDeferral(target, deferredFields, -1) == 0;
+        }
+
+        if (outermost) checkInvariant(target, invariantAccess.invariantMethod);
+
+        return target;
+    }
+
+    /**
+     * @param target the contracted object
+     * @return whether the class invariant of <tt>target</tt> is currently deferred
+     */
+    public static boolean isInvariantDeferred(final Object target)  {
+        Validate.notNull(target);
+
+        final List<Field> deferredFields = getInvariantAccess(target.getClass()).deferredFields;
+        synchronized (target)  {
+            for (Field field : deferredFields)  {
+                try {
+                    if (field.getInt(target) > 0) return true;
+                } catch (IllegalAccessException e)  {
+                    // fields have been made accessible
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks the class invariant of the given <tt>target</tt>, the class invariant of the most specific class is
+     * checked which includes all inherited class invariants.
+     *
+     * @param target the contracted object
+     * @throws ClassInvariantViolation if the class invariant does not hold
+     */
+    public static void checkInvariant(final Object target)  {
+        Validate.notNull(target);
+
+        checkInvariant(target, getInvariantAccess(target.getClass()).invariantMethod);
+    }
+
+    private static void checkInvariant(final Object target, final Method invariantMethod)  {
+        if (invariantMethod == null) return;
+
+        try {
+            invariantMethod.invoke(target);
+        } catch (IllegalAccessException e)  {
+            // invariant methods have been made accessible
+        } catch (InvocationTargetException e)  {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static int addDeferral(final Object target, final List<Field> deferredFields, final int delta)  {
+        synchronized (target)  {
+            int result = 0;
+            for (Field field : deferredFields)  {
+                try {
+                    result = field.getInt(target) + delta;
+                    field.setInt(target, result);
+                } catch (IllegalAccessException e)  {
+                    // fields have been made accessible
+                }
+            }
+
+            return result;
+        }
+    }
+
+    private static InvariantAccess getInvariantAccess(final Class<?> type)  {
+        final SoftReference<InvariantAccess> cached = invariantAccesses.get(type);
+        InvariantAccess result = cached != null ? cached.get() : null;
+        if (result == null)  {
+            result = new InvariantAccess(getDeferredFields(type), getInvariantMethod(type));
+            invariantAccesses.put(type, new SoftReference<InvariantAccess>(result));
+        }
+
+        return result;
+    }
+
+    private static List<Field> getDeferredFields(final Class<?> type)  {
+        final List<Field> result = new ArrayList<Field>();
+        for (Class<?> next = type; next != null; next = next.getSuperclass())  {
+            try {
+                final Field field = next.getDeclaredField(INVARIANTS_DEFERRED_FIELD);
+                field.setAccessible(true);
+                result.add(field);
+            } catch (NoSuchFieldException e)  {
+                // class has no deferrable setters
+            } catch (SecurityException e)  {
+                // not allowed to defer, setters keep checking the class invariant
+            }
+        }
+
+        return result;
+    }
+
+    private static Method getInvariantMethod(final Class<?> type)  {
+        for (Class<?> next = type; next != null; next = next.getSuperclass())  {
+            try {
+                final Method method = next.getDeclaredMethod(BaseGenerator.getInvariantMethodName(next.getName()));
+                method.setAccessible(true);
+                return method;
+            } catch (NoSuchMethodException e)  {
+                // class has no class invariant, check the super class
+            } catch (SecurityException e)  {
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * The deferral fields and the class invariant method of a contracted class.
+     */
+    private static final class InvariantAccess  {
+
+        final List<Field> deferredFields;
+        final Method invariantMethod;
+
+        InvariantAccess(final List<Field> deferredFields, final Method invariantMethod)  {
+            this.deferredFields = deferredFields;
+            this.invariantMethod = invariantMethod;
+        }
+    }
+}
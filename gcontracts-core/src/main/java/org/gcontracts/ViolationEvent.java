@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts;
+
+/**
+ * <p>A contract violation recorded by the {@link ViolationLog} instead of being thrown.</p>
+ *
+ * @author ast
+ */
+public final class ViolationEvent {
+
+    private final AssertionViolation violation;
+    private final long timestamp;
+    private final String threadName;
+
+    public ViolationEvent(final AssertionViolation violation, final long timestamp, final String threadName)  {
+        this.violation = violation;
+        this.timestamp = timestamp;
+        this.threadName = threadName;
+    }
+
+    /**
+     * @return the violation which would have been thrown
+     */
+    public AssertionViolation getViolation() { return violation; }
+
+    /**
+     * @return the time of the violation in milliseconds since the epoch
+     */
+    public long getTimestamp() { return timestamp; }
+
+    /**
+     * @return the name of the thread which violated the contract
+     */
+    public String getThreadName() { return threadName; }
+
+    @Override
+    public String toString() {
+        return timestamp + " [" + threadName + "] " + violation.getClass().getName() + ": " + violation.getMessage();
+    }
+}
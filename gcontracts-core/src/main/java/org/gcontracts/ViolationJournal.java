@@ -0,0 +1,380 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Appends compact binary records of contract violations to memory-mapped files. Records are written to the page
+ * cache by plain stores and survive a crash of the JVM, e.g. when it dies shortly after a burst of violations
+ * before a log has been flushed. The journal is enabled at startup with {@code -Dorg.gcontracts.journal=/var/log/contracts}
+ * or at runtime by {@link #open(java.io.File, int, int)}, {@link ViolationJournalReader} decodes it.</p>
+ *
+ * <p>The journal is kept in a directory of segments of fixed size, {@code -Dorg.gcontracts.journal.segmentSize}
+ * bytes each, one megabyte per default. If the current segment is full the next segment is started and the oldest
+ * segment is deleted as soon as there are more than {@code -Dorg.gcontracts.journal.segments} segments.</p>
+ *
+ * <p>Each violation record holds the contract site, the thread id, a timestamp, the kind of assertion and the
+ * power assert rendering of the violated contract, truncated to {@code -Dorg.gcontracts.journal.maxValueLength}
+ * characters. Contract sites are written once per segment to a dictionary record and referenced by their id.
+ * A record starts with its length and is committed by writing its type last, records of a crashed JVM which have
+ * not been completely written are skipped by the reader.</p>
+ *
+ * @see ViolationJournalReader
+ *
+ * @author ast
+ */
+public final class ViolationJournal {
+
+    public static final String JOURNAL = "org.gcontracts.journal";
+    public static final String SEGMENT_SIZE = JOURNAL + ".segmentSize";
+    public static final String SEGMENTS = JOURNAL + ".segments";
+    public static final String MAX_VALUE_LENGTH = JOURNAL + ".maxValueLength";
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+    public static final int DEFAULT_SEGMENTS = 8;
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 512;
+
+    static final int MAGIC = 0x47434a31; // GCJ1
+    static final int MAX_SITE_LENGTH = 1024;
+    // value lengths are stored as unsigned shorts
+    static final int MAX_VALUE_BYTES = 0xFFFF;
+    static final int SEGMENT_HEADER_SIZE = 16;
+    static final String SEGMENT_PREFIX = "violations-";
+    static final String SEGMENT_SUFFIX = ".gcj";
+
+    static final byte SITE_RECORD = 1;
+    static final byte VIOLATION_RECORD = 2;
+
+    static final byte UNKNOWN = 0;
+    static final byte PRECONDITION = 1;
+    static final byte POSTCONDITION = 2;
+    static final byte INVARIANT = 3;
+
+    // the message of generated violations starts with the contract site, followed by the power assert rendering
+    static final String SITE_SEPARATOR = " \n\n";
+
+    private static volatile ViolationJournal journal;
+
+    static {
+        initFromSystemProperties();
+    }
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final int maxValueLength;
+
+    private final Map<String, Integer> siteIds = new ConcurrentHashMap<String, Integer>();
+    private final Map<Integer, byte[]> siteNames = new ConcurrentHashMap<Integer, byte[]>();
+    private final AtomicInteger nextSiteId = new AtomicInteger();
+
+    private volatile Segment segment;
+    private long segmentNumber;
+
+    private ViolationJournal(final File directory, final int segmentSize, final int maxSegments, final int maxValueLength) throws IOException {
+        this.directory = directory;
+        this.segmentSize = Math.max(segmentSize, 4096);
+        this.maxSegments = Math.max(maxSegments, 1);
+        this.maxValueLength = Math.max(maxValueLength, 0);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Could not create journal directory " + directory);
+
+        final File[] segments = segmentFiles(directory);
+        segmentNumber = segments.length > 0 ? segmentNumber(segments[segments.length - 1]) : 0;
+
+        rotate(null);
+        if (segment == Segment.FULL) throw new IOException("Could not create journal segment in " + directory);
+    }
+
+    private static void initFromSystemProperties()  {
+        try {
+            final String directory = System.getProperty(JOURNAL);
+            if (directory == null || directory.trim().length() == 0) return;
+
+            open(new File(directory.trim()), Integer.getInteger(SEGMENT_SIZE, DEFAULT_SEGMENT_SIZE), Integer.getInteger(SEGMENTS, DEFAULT_SEGMENTS));
+        } catch (SecurityException e)  {
+            // violations are not journaled
+        } catch (IOException e)  {
+            // violations are not journaled
+        }
+    }
+
+    /**
+     * Starts journaling violations to the given directory. A previously opened journal is closed.
+     *
+     * @param directory the journal directory, created if it does not exist
+     * @param segmentSize the size of a single segment in bytes
+     * @param maxSegments the maximum number of segments kept in the directory
+     *
+     * @throws IOException if the first segment cannot be created
+     */
+    public static synchronized void open(final File directory, final int segmentSize, final int maxSegments) throws IOException {
+        close();
+
+        int maxValueLength = DEFAULT_MAX_VALUE_LENGTH;
+        try {
+            maxValueLength = Integer.getInteger(MAX_VALUE_LENGTH, DEFAULT_MAX_VALUE_LENGTH);
+        } catch (SecurityException e)  {
+            // the default is used
+        }
+
+        journal = new ViolationJournal(directory, segmentSize, maxSegments, maxValueLength);
+    }
+
+    /**
+     * Stops journaling violations. Records already written remain in the journal directory.
+     */
+    public static synchronized void close()  {
+        journal = null;
+    }
+
+    /**
+     * @return whether violations are journaled
+     */
+    public static boolean isOpen()  {
+        return journal != null;
+    }
+
+    /**
+     * This static method is called by {@link AssertionViolation} to journal a violation when it is created.
+     *
+     * @param violation the violation to journal
+     */
+    public static void record(final AssertionViolation violation)  {
+        final ViolationJournal current = journal;
+        if (current == null) return;
+
+        current.write(violation);
+    }
+
+    private void write(final AssertionViolation violation)  {
+        final String message = violation.getMessage() != null ? violation.getMessage() : "";
+
+        final int separator = message.indexOf(SITE_SEPARATOR);
+        final String site = separator >= 0 ? message.substring(0, separator) : "";
+        final String values = separator >= 0 ? message.substring(separator + SITE_SEPARATOR.length()) : message;
+
+        final int siteId = siteId(site);
+        final byte[] valueBytes = utf8(values.length() > maxValueLength ? values.substring(0, maxValueLength) : values, Math.min(segmentSize / 4, MAX_VALUE_BYTES));
+
+        // length, type, site id, kind, thread id, timestamp, value length, value
+        final int recordSize = 4 + 1 + 4 + 1 + 8 + 8 + 2 + valueBytes.length;
+        final long threadId = Thread.currentThread().getId();
+        final long timestamp = System.currentTimeMillis();
+
+        Segment current = segment;
+        int offset = current.claim(recordSize);
+        if (offset < 0)  {
+            current = rotate(current);
+            offset = current.claim(recordSize);
+            if (offset < 0) return;
+        }
+
+        final MappedByteBuffer buffer = current.buffer;
+        buffer.putInt(offset, recordSize);
+        buffer.putInt(offset + 5, siteId);
+        buffer.put(offset + 9, kindOf(violation));
+        buffer.putLong(offset + 10, threadId);
+        buffer.putLong(offset + 18, timestamp);
+        buffer.putShort(offset + 26, (short) valueBytes.length);
+        for (int i = 0; i < valueBytes.length; i++) buffer.put(offset + 28 + i, valueBytes[i]);
+
+        // committing the record
+        buffer.put(offset + 4, VIOLATION_RECORD);
+    }
+
+    private int siteId(final String site)  {
+        final Integer siteId = siteIds.get(site);
+        if (siteId != null) return siteId;
+
+        return registerSite(site);
+    }
+
+    private synchronized int registerSite(final String site)  {
+        final Integer existing = siteIds.get(site);
+        if (existing != null) return existing;
+
+        final int siteId = nextSiteId.getAndIncrement();
+        final byte[] name = utf8(site, MAX_SITE_LENGTH);
+        siteNames.put(siteId, name);
+        siteIds.put(site, siteId);
+
+        // a new segment starts with the dictionary of all known contract sites, including this one
+        if (!writeSite(segment, siteId, name)) rotate(segment);
+
+        return siteId;
+    }
+
+    private static boolean writeSite(final Segment segment, final int siteId, final byte[] name)  {
+        // length, type, site id, name length, name
+        final int recordSize = 4 + 1 + 4 + 2 + name.length;
+
+        final int offset = segment.claim(recordSize);
+        if (offset < 0) return false;
+
+        final MappedByteBuffer buffer = segment.buffer;
+        buffer.putInt(offset, recordSize);
+        buffer.putInt(offset + 5, siteId);
+        buffer.putShort(offset + 9, (short) name.length);
+        for (int i = 0; i < name.length; i++) buffer.put(offset + 11 + i, name[i]);
+
+        buffer.put(offset + 4, SITE_RECORD);
+        return true;
+    }
+
+    /**
+     * Starts the next segment unless another thread has already done so, the dictionary of all known contract
+     * sites is written to the new segment first.
+     */
+    private synchronized Segment rotate(final Segment full)  {
+        if (segment != full) return segment;
+
+        try {
+            segmentNumber++;
+            final Segment next = new Segment(new File(directory, segmentName(segmentNumber)), segmentSize, segmentNumber);
+            for (Map.Entry<Integer, byte[]> site : siteNames.entrySet())  {
+                writeSite(next, site.getKey(), site.getValue());
+            }
+
+            segment = next;
+        } catch (IOException e)  {
+            // the current segment is kept, further violations are not journaled
+            segment = Segment.FULL;
+        }
+
+        final File[] segments = segmentFiles(directory);
+        for (int i = 0; i < segments.length - maxSegments; i++)  {
+            segments[i].delete();
+        }
+
+        return segment;
+    }
+
+    private static byte kindOf(final AssertionViolation violation)  {
+        if (violation instanceof PreconditionViolation) return PRECONDITION;
+        if (violation instanceof PostconditionViolation) return POSTCONDITION;
+        if (violation instanceof ClassInvariantViolation) return INVARIANT;
+
+        return UNKNOWN;
+    }
+
+    private static byte[] utf8(final String text, final int maxLength)  {
+        try {
+            final byte[] bytes = text.getBytes("UTF-8");
+            return bytes.length > maxLength ? Arrays.copyOf(bytes, maxLength) : bytes;
+        } catch (UnsupportedEncodingException e)  {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String segmentName(final long segmentNumber)  {
+        return SEGMENT_PREFIX + String.format("%012d", segmentNumber) + SEGMENT_SUFFIX;
+    }
+
+    static long segmentNumber(final File segmentFile)  {
+        final String name = segmentFile.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * @param directory the journal directory
+     * @return the segment files of the given directory, oldest first
+     */
+    static File[] segmentFiles(final File directory)  {
+        final File[] files = directory.listFiles();
+        if (files == null) return new File[0];
+
+        int count = 0;
+        final File[] result = new File[files.length];
+        for (File file : files)  {
+            final String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX) && name.length() == segmentName(0).length()) result[count++] = file;
+        }
+
+        // segment names are zero-padded, the lexical order is the order of segments
+        final File[] segments = Arrays.copyOf(result, count);
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    /**
+     * A single memory-mapped segment. Records are appended by claiming a range of bytes with a single atomic
+     * operation, concurrent writers never write to the same range.
+     */
+    static final class Segment {
+
+        static final Segment FULL = new Segment();
+
+        final MappedByteBuffer buffer;
+        private final AtomicInteger position;
+        private final int capacity;
+
+        private Segment()  {
+            this.buffer = null;
+            this.position = new AtomicInteger(Integer.MAX_VALUE);
+            this.capacity = 0;
+        }
+
+        Segment(final File file, final int size, final long segmentNumber) throws IOException {
+            final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                randomAccessFile.setLength(size);
+                buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } finally {
+                // the mapping stays valid after the channel has been closed
+                randomAccessFile.close();
+            }
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, size);
+            buffer.putLong(8, segmentNumber);
+
+            this.position = new AtomicInteger(SEGMENT_HEADER_SIZE);
+            // the last record must be followed by a zero length
+            this.capacity = size - 4;
+        }
+
+        /**
+         * @param recordSize the size of the record in bytes
+         * @return the offset of the claimed range, <tt>-1</tt> if the segment is full
+         */
+        int claim(final int recordSize)  {
+            if (position.get() > capacity) return -1;
+
+            final int offset = position.getAndAdd(recordSize);
+            if (offset < 0 || offset + recordSize > capacity) return -1;
+
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Decodes the segments written by {@link ViolationJournal}. The reader can be used as a command line tool:</p>
+ *
+ * <pre>
+ *     java -cp gcontracts-core.jar org.gcontracts.ViolationJournalReader /var/log/contracts
+ * </pre>
+ *
+ * <p>prints one line per journaled violation, oldest first.</p>
+ *
+ * @author ast
+ */
+public final class ViolationJournalReader {
+
+    /**
+     * A decoded violation record.
+     */
+    public static final class Entry {
+
+        private final int siteId;
+        private final String site;
+        private final String assertionType;
+        private final long threadId;
+        private final long timestamp;
+        private final String values;
+
+        Entry(final int siteId, final String site, final String assertionType, final long threadId, final long timestamp, final String values)  {
+            this.siteId = siteId;
+            this.site = site;
+            this.assertionType = assertionType;
+            this.threadId = threadId;
+            this.timestamp = timestamp;
+            this.values = values;
+        }
+
+        /** @return the id of the contract site within the journal */
+        public int getSiteId() { return siteId; }
+        /** @return the contract site, e.g. <tt>&lt;org.gcontracts.annotations.Requires&gt; org.example.Account.void deposit(int)</tt> */
+        public String getSite() { return site; }
+        /** @return the kind of assertion, <tt>precondition</tt>, <tt>postcondition</tt>, <tt>invariant</tt> or <tt>unknown</tt> */
+        public String getAssertionType() { return assertionType; }
+        /** @return the id of the thread which violated the contract */
+        public long getThreadId() { return threadId; }
+        /** @return the time of the violation in milliseconds since the epoch */
+        public long getTimestamp() { return timestamp; }
+        /** @return the power assert rendering of the violated contract, possibly truncated */
+        public String getValues() { return values; }
+
+        @Override
+        public String toString() {
+            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(timestamp)) + " [thread " + threadId + "] " + assertionType + " " + site + "\n" + values;
+        }
+    }
+
+    private ViolationJournalReader() {}
+
+    /**
+     * @param directory the journal directory
+     * @return all violations of the journal, oldest first
+     *
+     * @throws IOException if a segment cannot be read
+     */
+    public static List<Entry> read(final File directory) throws IOException {
+        final List<Entry> result = new ArrayList<Entry>();
+        for (File segment : ViolationJournal.segmentFiles(directory))  {
+            readSegment(segment, result);
+        }
+
+        return result;
+    }
+
+    private static void readSegment(final File segment, final List<Entry> result) throws IOException {
+        final ByteBuffer buffer;
+        final RandomAccessFile file = new RandomAccessFile(segment, "r");
+        try {
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        } finally {
+            file.close();
+        }
+
+        if (buffer.limit() < ViolationJournal.SEGMENT_HEADER_SIZE || buffer.getInt(0) != ViolationJournal.MAGIC) throw new IOException("Not a journal segment: " + segment);
+
+        final Map<Integer, String> sites = new HashMap<Integer, String>();
+
+        int offset = ViolationJournal.SEGMENT_HEADER_SIZE;
+        while (offset + 4 <= buffer.limit())  {
+            final int length = buffer.getInt(offset);
+            if (length <= 0 || offset + length > buffer.limit()) break;
+
+            final byte type = buffer.get(offset + 4);
+            if (type == ViolationJournal.SITE_RECORD)  {
+                sites.put(buffer.getInt(offset + 5), string(buffer, offset + 11, buffer.getShort(offset + 9) & 0xFFFF));
+
+            } else if (type == ViolationJournal.VIOLATION_RECORD)  {
+                final int siteId = buffer.getInt(offset + 5);
+                final String site = sites.containsKey(siteId) ? sites.get(siteId) : "<unknown site " + siteId + ">";
+
+                result.add(new Entry(siteId, site, assertionType(buffer.get(offset + 9)), buffer.getLong(offset + 10), buffer.getLong(offset + 18), string(buffer, offset + 28, buffer.getShort(offset + 26) & 0xFFFF)));
+            }
+            // records without a type have not been committed before the JVM died
+
+            offset += length;
+        }
+    }
+
+    private static String assertionType(final byte kind)  {
+        switch (kind)  {
+            case ViolationJournal.PRECONDITION: return "precondition";
+            case ViolationJournal.POSTCONDITION: return "postcondition";
+            case ViolationJournal.INVARIANT: return "invariant";
+            default: return "unknown";
+        }
+    }
+
+    private static String string(final ByteBuffer buffer, final int offset, final int length)  {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) bytes[i] = buffer.get(offset + i);
+
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException e)  {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1)  {
+            System.err.println("usage: java " + ViolationJournalReader.class.getName() + " <journal directory>");
+            System.exit(1);
+        }
+
+        final PrintStream out = System.out;
+        for (Entry entry : read(new File(args[0])))  {
+            out.println(entry);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>Log-and-continue enforcement: while the violation log is enabled, contract violations are not thrown but
+ * recorded and the contracted method continues. Violations are published to a bounded, lock-free ring buffer and a
+ * background thread writes them in batches to a {@link ViolationSink}:</p>
+ *
+ * <pre>
+ *     ViolationLog.enable(ViolationSinks.logger(Logger.getLogger('contracts'), Level.WARNING))
+ * </pre>
+ *
+ * <p>The violation log is enabled at startup with {@code -Dorg.gcontracts.logAndContinue=true}, violations are
+ * written to <tt>System.err</tt> or appended to the file given by {@code -Dorg.gcontracts.logAndContinue.file}.
+ * The buffer size is set by {@code -Dorg.gcontracts.logAndContinue.bufferSize}.</p>
+ *
+ * <p>Threads violating a contract never block: if the buffer is full the violation is dropped and counted, see
+ * {@link #getDroppedCount()}. Violations the sink fails to write are counted as dropped as well.</p>
+ *
+ * @see ViolationTracker
+ *
+ * @author ast
+ */
+public final class ViolationLog {
+
+    public static final String LOG_AND_CONTINUE = "org.gcontracts.logAndContinue";
+    public static final String LOG_FILE = LOG_AND_CONTINUE + ".file";
+    public static final String BUFFER_SIZE = LOG_AND_CONTINUE + ".bufferSize";
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+    public static final int BATCH_SIZE = 256;
+
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static volatile ViolationRingBuffer buffer;
+    private static ViolationSink sink;
+    private static Drainer drainer;
+
+    // serializes draining, the ring buffer supports a single consumer only
+    private static final Object drainLock = new Object();
+
+    private static final AtomicLong droppedBySink = new AtomicLong();
+
+    static {
+        initFromSystemProperties();
+    }
+
+    private ViolationLog() {}
+
+    private static void initFromSystemProperties()  {
+        try {
+            if (!Boolean.getBoolean(LOG_AND_CONTINUE)) return;
+
+            final String fileName = System.getProperty(LOG_FILE);
+            final ViolationSink sink = fileName != null && fileName.trim().length() > 0 ? ViolationSinks.file(new File(fileName.trim())) : ViolationSinks.standardError();
+
+            enable(sink, Integer.getInteger(BUFFER_SIZE, DEFAULT_BUFFER_SIZE));
+        } catch (SecurityException e)  {
+            // violations are thrown
+        }
+    }
+
+    /**
+     * @return whether violations are recorded instead of being thrown
+     */
+    public static boolean isEnabled()  {
+        return buffer != null;
+    }
+
+    /**
+     * Records violations instead of throwing them, with a buffer of {@link #DEFAULT_BUFFER_SIZE} violations.
+     *
+     * @param sink the sink the recorded violations are written to
+     */
+    public static void enable(final ViolationSink sink)  {
+        enable(sink, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Records violations instead of throwing them. If the violation log is already enabled, pending violations are
+     * written to the previous sink first.
+     *
+     * @param sink the sink the recorded violations are written to
+     * @param bufferSize the number of violations which can be buffered before violations are dropped
+     */
+    public static synchronized void enable(final ViolationSink sink, final int bufferSize)  {
+        if (sink == null) throw new IllegalArgumentException("sink must not be null");
+
+        disable();
+
+        synchronized (drainLock)  {
+            ViolationLog.sink = sink;
+        }
+        droppedBySink.set(0);
+
+        buffer = new ViolationRingBuffer(Math.max(bufferSize, 1));
+
+        drainer = new Drainer(buffer);
+        drainer.start();
+    }
+
+    /**
+     * Throws violations again. Pending violations are written to the sink before this method returns.
+     */
+    public static synchronized void disable()  {
+        if (buffer == null) return;
+
+        drainer.shutdown();
+
+        flush();
+
+        buffer = null;
+        drainer = null;
+    }
+
+    /**
+     * This static method is used by the {@link ViolationTracker} to record a violation instead of throwing it.
+     *
+     * @param violation the violation to record
+     * @return whether the violation has been recorded, <tt>false</tt> if the violation log is not enabled and the
+     * violation has to be thrown
+     */
+    public static boolean publish(final AssertionViolation violation)  {
+        final ViolationRingBuffer current = buffer;
+        if (current == null) return false;
+
+        current.offer(new ViolationEvent(violation, System.currentTimeMillis(), Thread.currentThread().getName()));
+        return true;
+    }
+
+    /**
+     * Writes all pending violations to the sink on the calling thread.
+     */
+    public static void flush()  {
+        final ViolationRingBuffer current = buffer;
+        if (current == null) return;
+
+        while (drain(current) > 0) {}
+    }
+
+    /**
+     * @return the number of violations dropped because the buffer was full or the sink failed to write them
+     */
+    public static long getDroppedCount()  {
+        final ViolationRingBuffer current = buffer;
+        return droppedBySink.get() + (current != null ? current.getDroppedCount() : 0);
+    }
+
+    /**
+     * @return the number of violations recorded since the violation log has been enabled
+     */
+    public static long getRecordedCount()  {
+        final ViolationRingBuffer current = buffer;
+        return current != null ? current.getPublishedCount() : 0;
+    }
+
+    private static int drain(final ViolationRingBuffer current)  {
+        synchronized (drainLock)  {
+            final List<ViolationEvent> events = new ArrayList<ViolationEvent>();
+            final int count = current.drain(events, BATCH_SIZE);
+            if (count == 0) return 0;
+
+            try {
+                sink.write(events);
+            } catch (Exception e)  {
+                droppedBySink.addAndGet(count);
+            }
+
+            return count;
+        }
+    }
+
+    private static final class Drainer extends Thread {
+
+        private final ViolationRingBuffer buffer;
+
+        // sinks might swallow interrupts, the drainer is stopped by this flag
+        private volatile boolean stopped;
+
+        Drainer(final ViolationRingBuffer buffer)  {
+            super("gcontracts-violation-log");
+            setDaemon(true);
+
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void run() {
+            while (!stopped)  {
+                if (drain(buffer) == 0) LockSupport.parkNanos(IDLE_NANOS);
+            }
+        }
+
+        void shutdown()  {
+            stopped = true;
+            LockSupport.unpark(this);
+
+            try {
+                join();
+            } catch (InterruptedException e)  {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
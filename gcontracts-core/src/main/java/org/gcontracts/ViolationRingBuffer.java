@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>Bounded multi-producer, single-consumer ring buffer of {@link ViolationEvent}s. Producers claim a slot with a
+ * single compare-and-set and never block, an event is dropped and counted if the buffer is full. The consumer is
+ * the background thread of the {@link ViolationLog}, calls to {@link #drain(java.util.List, int)} must be
+ * serialized by the caller.</p>
+ *
+ * @author ast
+ */
+final class ViolationRingBuffer {
+
+    private final int mask;
+    private final AtomicReferenceArray<ViolationEvent> slots;
+
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile long consumerIndex;
+
+    /**
+     * @param capacity the minimum number of events the buffer can hold, rounded up to the next power of two
+     */
+    ViolationRingBuffer(final int capacity)  {
+        int size = 1;
+        while (size < capacity) size <<= 1;
+
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<ViolationEvent>(size);
+    }
+
+    /**
+     * @param event the event to publish
+     * @return whether the event has been published, <tt>false</tt> if the buffer was full and the event has been dropped
+     */
+    boolean offer(final ViolationEvent event)  {
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex > mask)  {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+
+        // the slot is free as the consumer has moved past it before the index could be claimed
+        slots.lazySet((int) index & mask, event);
+        return true;
+    }
+
+    /**
+     * Moves published events to the given list. Draining stops at a claimed slot whose event is not yet published.
+     *
+     * @param events the list the events are added to
+     * @param maxEvents the maximum number of events to drain
+     * @return the number of drained events
+     */
+    int drain(final List<ViolationEvent> events, final int maxEvents)  {
+        long index = consumerIndex;
+        int count = 0;
+
+        while (count < maxEvents)  {
+            final int slot = (int) index & mask;
+            final ViolationEvent event = slots.get(slot);
+            if (event == null) break;
+
+            slots.lazySet(slot, null);
+            events.add(event);
+
+            index++;
+            count++;
+        }
+
+        consumerIndex = index;
+        return count;
+    }
+
+    /**
+     * @return the number of events dropped because the buffer was full
+     */
+    long getDroppedCount()  {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the number of events published so far, including events not yet drained
+     */
+    long getPublishedCount()  {
+        return producerIndex.get();
+    }
+
+    /**
+     * @return whether all claimed slots have been drained
+     */
+    boolean isEmpty()  {
+        return consumerIndex == producerIndex.get();
+    }
+}
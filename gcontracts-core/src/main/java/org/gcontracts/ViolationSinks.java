@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * <p>Factory methods for the {@link ViolationSink} implementations provided by GContracts.</p>
+ *
+ * @author ast
+ */
+public final class ViolationSinks {
+
+    private ViolationSinks() {}
+
+    /**
+     * @return a sink printing violations to <tt>System.err</tt>
+     */
+    public static ViolationSink standardError()  {
+        return new ViolationSink() {
+            public void write(List<ViolationEvent> events) {
+                final PrintStream err = System.err;
+                for (ViolationEvent event : events) err.println(event);
+                err.flush();
+            }
+        };
+    }
+
+    /**
+     * @param file the file violations are appended to, one line per violation
+     * @return a sink appending violations to the given file
+     */
+    public static ViolationSink file(final File file)  {
+        return new ViolationSink() {
+            public void write(List<ViolationEvent> events) throws IOException {
+                final Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8");
+                try {
+                    for (ViolationEvent event : events)  {
+                        writer.write(event.toString().replace('\n', ' '));
+                        writer.write('\n');
+                    }
+                } finally {
+                    writer.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * @param logger the logger violations are logged to
+     * @param level the level violations are logged with
+     * @return a sink logging violations with <tt>java.util.logging</tt>
+     */
+    public static ViolationSink logger(final Logger logger, final Level level)  {
+        return new ViolationSink() {
+            public void write(List<ViolationEvent> events) {
+                if (!logger.isLoggable(level)) return;
+
+                for (ViolationEvent event : events)  {
+                    final LogRecord record = new LogRecord(level, "[" + event.getThreadName() + "] " + event.getViolation().getMessage());
+                    record.setMillis(event.getTimestamp());
+                    record.setThrown(event.getViolation());
+                    record.setLoggerName(logger.getName());
+                    logger.log(record);
+                }
+            }
+        };
+    }
+}
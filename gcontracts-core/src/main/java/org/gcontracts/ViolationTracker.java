@@ -24,8 +24,6 @@ package org.gcontracts;
 
 import org.gcontracts.util.Validate;
 
-import java.util.TreeMap;
-
 /**
  * <p>
  * A violation tracker is used to keep a list of pre-, post-condition or class-invariant
@@ -33,18 +31,37 @@ import java.util.TreeMap;
  * being able to rethrow assertion errors.
  * </p>
  *
+ * <p>
+ * There is a single tracker per thread which is reused for all contract evaluations. Every {@link #init()} opens a
+ * new evaluation frame and {@link #deinit()} closes it again, nested evaluations therefore never see the violations of
+ * the enclosing evaluation. As only the first and the last violation of a frame are ever rethrown, these are kept in
+ * fixed slots per frame, so a successful evaluation neither allocates nor reads the system clock.
+ * </p>
+ *
+ * <p>
+ * Violations are thrown by {@link #rethrow(AssertionViolation)}, which hands them to the {@link ViolationLog}
+ * instead if log-and-continue enforcement is enabled.
+ * </p>
+ *
  * @author ast
  */
 public class ViolationTracker {
 
-    public static ThreadLocal<ViolationTracker> INSTANCE = new ThreadLocal<ViolationTracker>();
+    private static final int INITIAL_FRAME_CAPACITY = 4;
+
+    public static ThreadLocal<ViolationTracker> INSTANCE = new ThreadLocal<ViolationTracker>() {
+        @Override
+        protected ViolationTracker initialValue() {
+            return new ViolationTracker();
+        }
+    };
 
     public static void init()  {
-        INSTANCE.set(new ViolationTracker());
+        INSTANCE.get().enterFrame();
     }
 
     public static void deinit()  {
-        INSTANCE.remove();
+        INSTANCE.get().exitFrame();
     }
 
     public static boolean violationsOccured()  {
@@ -52,30 +69,76 @@ public class ViolationTracker {
     }
 
     public static void rethrowFirst()  {
-        throw INSTANCE.get().first();
+        rethrow(INSTANCE.get().first());
     }
 
     public static void rethrowLast()  {
-        throw INSTANCE.get().last();
+        rethrow(INSTANCE.get().last());
+    }
+
+    /**
+     * Throws the given violation, or records it with the {@link ViolationLog} if log-and-continue enforcement
+     * is enabled.
+     *
+     * @param assertionViolation the {@link AssertionViolation} to throw
+     */
+    public static void rethrow(final AssertionViolation assertionViolation)  {
+        if (ViolationLog.publish(assertionViolation)) return;
+
+        throw assertionViolation;
     }
 
-    private TreeMap<Long, AssertionViolation> violations = new TreeMap<Long, AssertionViolation>();
+    private AssertionViolation[] firstViolations = new AssertionViolation[INITIAL_FRAME_CAPACITY];
+    private AssertionViolation[] lastViolations = new AssertionViolation[INITIAL_FRAME_CAPACITY];
+    private int depth = 0;
+
+    private void enterFrame()  {
+        if (depth == firstViolations.length)  {
+            // only happens for deeper nested contract evaluations than ever before on this thread
+            final AssertionViolation[] newFirstViolations = new AssertionViolation[depth * 2];
+            final AssertionViolation[] newLastViolations = new AssertionViolation[depth * 2];
+            System.arraycopy(firstViolations, 0, newFirstViolations, 0, depth);
+            System.arraycopy(lastViolations, 0, newLastViolations, 0, depth);
+
+            firstViolations = newFirstViolations;
+            lastViolations = newLastViolations;
+        }
+
+        depth++;
+    }
+
+    private void exitFrame()  {
+        if (depth == 0) return;
+
+        depth--;
+        firstViolations[depth] = null;
+        lastViolations[depth] = null;
+    }
 
+    /**
+     * Tracks the given violation in the current evaluation frame. Violations created outside of
+     * a contract evaluation are ignored.
+     *
+     * @param assertionViolation the {@link AssertionViolation} to track
+     */
     public void track(final AssertionViolation assertionViolation)  {
         Validate.notNull(assertionViolation);
+        if (depth == 0) return;
 
-        violations.put(System.nanoTime(), assertionViolation);
+        final int frame = depth - 1;
+        if (firstViolations[frame] == null) firstViolations[frame] = assertionViolation;
+        lastViolations[frame] = assertionViolation;
     }
 
     public boolean hasViolations()  {
-        return violations.size() > 0;
+        return depth > 0 && firstViolations[depth - 1] != null;
     }
 
     public AssertionViolation first()  {
-        return violations.firstEntry().getValue();
+        return depth > 0 ? firstViolations[depth - 1] : null;
     }
 
     public AssertionViolation last()  {
-        return violations.lastEntry().getValue();
+        return depth > 0 ? lastViolations[depth - 1] : null;
     }
 }
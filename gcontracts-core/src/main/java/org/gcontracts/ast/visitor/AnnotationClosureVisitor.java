@@ -37,7 +37,9 @@ import org.gcontracts.annotations.meta.ContractElement;
 import org.gcontracts.annotations.meta.Postcondition;
 import org.gcontracts.classgen.asm.ContractClosureWriter;
 import org.gcontracts.generation.AssertStatementCreationUtility;
+import org.gcontracts.generation.BaseGenerator;
 import org.gcontracts.generation.CandidateChecks;
+import org.gcontracts.generation.OldVariableGenerationUtility;
 import org.gcontracts.generation.TryCatchBlockGenerator;
 import org.gcontracts.util.AnnotationUtils;
 import org.gcontracts.util.ExpressionUtils;
@@ -139,6 +141,7 @@ public class AnnotationClosureVisitor extends BaseVisitor implements ASTNodeMeta
         }
 
         super.visitClass(node);
+        BaseGenerator.addPendingFieldAccessors(node);
 
         // generate closure classes for the super class and all implemented interfaces
         visitClass(node.getSuperClass());
@@ -206,6 +209,15 @@ public class AnnotationClosureVisitor extends BaseVisitor implements ASTNodeMeta
 
         boolean isConstructor = methodNode instanceof ConstructorNode;
         ClassNode closureClassNode = contractClosureWriter.createClosureClass(classNode, methodNode, rewrittenClosureExpression, isPostcondition && !isConstructor, isPostcondition && !isConstructor, Opcodes.ACC_PUBLIC);
+
+        // remember the referenced old variables, postconditions in this or descendant classes only capture these
+        if (isPostcondition && !isConstructor)  {
+            final Set<String> oldVariableNames = OldVariableGenerationUtility.getReferencedOldVariables(closureBlockStatement);
+            if (oldVariableNames != null)  {
+                closureClassNode.setNodeMetaData(OldVariableGenerationUtility.META_DATA_OLD_VARIABLES, oldVariableNames);
+                closureClassNode.setNodeMetaData(OldVariableGenerationUtility.META_DATA_OLD_VARIABLE_SIZE_PROJECTIONS, OldVariableGenerationUtility.getSizeProjectedOldVariables(closureBlockStatement));
+            }
+        }
         classNode.getModule().addClass(closureClassNode);
 
         final ClassExpression value = new ClassExpression(closureClassNode);
@@ -273,7 +285,7 @@ public class AnnotationClosureVisitor extends BaseVisitor implements ASTNodeMeta
         private final AnnotationNode annotationNode;
         private final SourceUnit sourceUnit;
 
-        private final Map<VariableExpression, StaticMethodCallExpression> variableExpressions;
+        private final Map<VariableExpression, Expression> variableExpressions;
 
         private boolean secondPass = false;
         private boolean methodCalls = false;
@@ -283,7 +295,7 @@ public class AnnotationClosureVisitor extends BaseVisitor implements ASTNodeMeta
             this.methodNode = methodNode;
             this.annotationNode = annotationNode;
             this.sourceUnit = sourceUnit;
-            this.variableExpressions = new HashMap<VariableExpression, StaticMethodCallExpression> ();
+            this.variableExpressions = new HashMap<VariableExpression, Expression> ();
         }
 
         @Override
@@ -328,8 +340,11 @@ public class AnnotationClosureVisitor extends BaseVisitor implements ASTNodeMeta
 
                 if ((fieldNode.getModifiers() & ACC_PRIVATE) != 0 && !classNode.hasProperty(fieldNode.getName()))  {
                     // if this is a class invariant we'll change the field node access
-                    StaticMethodCallExpression staticMethodCallExpression = new StaticMethodCallExpression(FIELD_VALUES, "fieldValue", new ArgumentListExpression(VariableExpression.THIS_EXPRESSION, new ConstantExpression(fieldNode.getName()), new ClassExpression(fieldNode.getType())));
-                    variableExpressions.put(expression, staticMethodCallExpression);
+                    if (fieldNode.getOwner() == classNode)  {
+                        variableExpressions.put(expression, BaseGenerator.getFieldAccessExpression(classNode, fieldNode));
+                    } else {
+                        variableExpressions.put(expression, new StaticMethodCallExpression(FIELD_VALUES, "fieldValue", new ArgumentListExpression(VariableExpression.THIS_EXPRESSION, new ConstantExpression(fieldNode.getName()), new ClassExpression(fieldNode.getType()))));
+                    }
                 }
             }
 
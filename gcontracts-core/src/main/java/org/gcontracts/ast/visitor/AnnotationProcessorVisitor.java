@@ -31,6 +31,7 @@ import org.codehaus.groovy.control.io.ReaderSource;
 import org.gcontracts.annotations.meta.ContractElement;
 import org.gcontracts.common.spi.AnnotationProcessor;
 import org.gcontracts.common.spi.ProcessingContextInformation;
+import org.gcontracts.generation.BaseGenerator;
 import org.gcontracts.generation.CandidateChecks;
 import org.gcontracts.util.AnnotationUtils;
 import org.gcontracts.util.Validate;
@@ -132,7 +133,7 @@ public class AnnotationProcessorVisitor extends BaseVisitor {
                 final ClassExpression closureClassExpression = (ClassExpression) annotationNode.getMember(CLOSURE_ATTRIBUTE_NAME);
 
                 MethodCallExpression doCall = new MethodCallExpression(
-                        new ConstructorCallExpression(closureClassExpression.getType(), new ArgumentListExpression(VariableExpression.THIS_EXPRESSION, VariableExpression.THIS_EXPRESSION)),
+                        BaseGenerator.getContractClosureInstanceExpression(classNode, closureClassExpression.getType(), false),
                         "doCall",
                         ArgumentListExpression.EMPTY_ARGUMENTS
                 );
@@ -182,7 +183,7 @@ public class AnnotationProcessorVisitor extends BaseVisitor {
                 }
 
                 MethodCallExpression doCall = new MethodCallExpression(
-                        new ConstructorCallExpression(annotationNode.getMember(CLOSURE_ATTRIBUTE_NAME).getType(), new ArgumentListExpression(VariableExpression.THIS_EXPRESSION, VariableExpression.THIS_EXPRESSION)),
+                        BaseGenerator.getContractClosureInstanceExpression(methodNode.getDeclaringClass(), closureClassExpression.getType(), methodNode.isStatic()),
                         "doCall",
                         closureArgumentList
                 );
@@ -192,7 +193,12 @@ public class AnnotationProcessorVisitor extends BaseVisitor {
                 final BooleanExpression booleanExpression = new BooleanExpression(doCall);
                 booleanExpression.setSourcePosition(annotationNode);
 
-                annotationProcessor.process(pci, pci.contract(), methodNode.getDeclaringClass(), methodNode, (BlockStatement) closureClassExpression.getNodeMetaData(AnnotationClosureVisitor.META_DATA_ORIGINAL_TRY_CATCH_BLOCK), booleanExpression);
+                // inline mode statements carry the source positions of their module, contracts of interfaces declared in
+                // other modules are evaluated by calling their contract closure
+                final BlockStatement originalBlockStatement = closureClassExpression.getType().getModule() == methodNode.getDeclaringClass().getModule() ?
+                        (BlockStatement) closureClassExpression.getNodeMetaData(AnnotationClosureVisitor.META_DATA_ORIGINAL_TRY_CATCH_BLOCK) : null;
+
+                annotationProcessor.process(pci, pci.contract(), methodNode.getDeclaringClass(), methodNode, originalBlockStatement, booleanExpression);
 
                 // if the implementation method has no annotation, we need to set a dummy marker in order to find parent pre/postconditions
                 if (!AnnotationUtils.hasAnnotationOfType(methodNode, annotationNode.getClassNode().getName()))  {
@@ -29,6 +29,8 @@ import org.codehaus.groovy.ast.expr.*;
 import org.codehaus.groovy.control.SourceUnit;
 import org.codehaus.groovy.control.io.ReaderSource;
 import org.gcontracts.generation.Configurator;
+import org.gcontracts.generation.ContractEnablement;
+import org.gcontracts.generation.GenerationOptions;
 import org.gcontracts.util.Validate;
 import org.objectweb.asm.Opcodes;
 
@@ -53,7 +55,22 @@ public class ConfigurationSetup {
     public void init(final ClassNode type) {
         Validate.notNull(type);
 
-        StaticMethodCallExpression checkAssertionsEnabledMethodCall = new StaticMethodCallExpression(ClassHelper.makeWithoutCaching(Configurator.class), "checkAssertionsEnabled", new ArgumentListExpression(new ConstantExpression(type.getName())));
+        // a non-final field is registered with the contract enablement registry which switches it at runtime
+        if (GenerationOptions.isRuntimeEnablement() && !type.isInterface())  {
+            final ArgumentListExpression registerArguments = new ArgumentListExpression(new ClassExpression(type));
+            if (GenerationOptions.isSampling()) registerArguments.addExpression(ConstantExpression.PRIM_TRUE);
+
+            StaticMethodCallExpression registerMethodCall = new StaticMethodCallExpression(ClassHelper.makeWithoutCaching(ContractEnablement.class), "register", registerArguments);
+
+            final FieldNode fieldNode = type.addField(BaseVisitor.GCONTRACTS_ENABLED_VAR, Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC, ClassHelper.boolean_TYPE, registerMethodCall);
+            fieldNode.setSynthetic(true);
+
+            return;
+        }
+
+        // classes with sampled contract sites apply method rules and rules for a kind of assertion
+        final String checkMethodName = GenerationOptions.isSampling() ? "checkSampledAssertionsEnabled" : "checkAssertionsEnabled";
+        StaticMethodCallExpression checkAssertionsEnabledMethodCall = new StaticMethodCallExpression(ClassHelper.makeWithoutCaching(Configurator.class), checkMethodName, new ArgumentListExpression(new ConstantExpression(type.getName())));
 
         final FieldNode fieldNode = type.addField(BaseVisitor.GCONTRACTS_ENABLED_VAR, Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC | Opcodes.ACC_FINAL, ClassHelper.boolean_TYPE, checkAssertionsEnabledMethodCall);
 
@@ -25,15 +25,20 @@ package org.gcontracts.ast.visitor;
 import org.codehaus.groovy.ast.*;
 import org.codehaus.groovy.ast.expr.*;
 import org.codehaus.groovy.ast.stmt.BlockStatement;
+import org.codehaus.groovy.ast.stmt.EmptyStatement;
 import org.codehaus.groovy.ast.stmt.ExpressionStatement;
+import org.codehaus.groovy.ast.stmt.IfStatement;
 import org.codehaus.groovy.ast.stmt.Statement;
 import org.codehaus.groovy.control.SourceUnit;
 import org.codehaus.groovy.control.io.ReaderSource;
 import org.codehaus.groovy.runtime.MetaClassHelper;
 import org.codehaus.groovy.syntax.Token;
 import org.codehaus.groovy.syntax.Types;
+import org.gcontracts.Contracts;
 import org.gcontracts.generation.BaseGenerator;
 import org.gcontracts.generation.CandidateChecks;
+import org.gcontracts.generation.DirtyTrackingGenerationUtility;
+import org.gcontracts.generation.GenerationOptions;
 import org.gcontracts.util.AnnotationUtils;
 import org.objectweb.asm.Opcodes;
 
@@ -44,6 +49,11 @@ import java.util.List;
  * Implements contract support for setter methods and default constructors of POGOs.
  * </p>
  *
+ * <p>
+ * If {@link GenerationOptions#DEFERRABLE_INVARIANTS} is enabled, generated setters skip the class invariant while
+ * the object is populated within {@link org.gcontracts.Contracts#deferInvariants(Object, groovy.lang.Closure)}.
+ * </p>
+ *
  * @see BaseVisitor
  *
  * @author ast
@@ -61,20 +71,40 @@ public class DynamicSetterInjectionVisitor extends BaseVisitor {
     protected Statement createSetterBlock(final ClassNode classNode, final FieldNode field, final Parameter parameter) {
         final BlockStatement setterMethodBlock = new BlockStatement();
 
+        final FieldNode deferredField = GenerationOptions.isDeferrableInvariants() ? getDeferredField(classNode) : null;
+        final Statement invariantStatement = deferredField != null ?
+                new IfStatement(new BooleanExpression(new BinaryExpression(new FieldExpression(deferredField), Token.newSymbol(Types.COMPARE_EQUAL, -1, -1), new ConstantExpression(0))), invariantAssertionBlockStatement, EmptyStatement.INSTANCE) :
+                invariantAssertionBlockStatement;
+
         // check invariant before assignment
-        setterMethodBlock.addStatement(invariantAssertionBlockStatement);
+        setterMethodBlock.addStatement(invariantStatement);
 
         // do assignment
         BinaryExpression fieldAssignment = new BinaryExpression(new FieldExpression(field), Token.newSymbol(Types.ASSIGN, -1, -1), new VariableExpression(parameter));
         setterMethodBlock.addStatement(new org.codehaus.groovy.ast.stmt.ExpressionStatement(fieldAssignment));
 
+        // a deferred assignment has to be re-checked when the deferral ends
+        final FieldNode invariantCheckedField = DirtyTrackingGenerationUtility.getInvariantCheckedField(classNode);
+        if (deferredField != null && invariantCheckedField != null)  {
+            setterMethodBlock.addStatement(new ExpressionStatement(new BinaryExpression(new FieldExpression(invariantCheckedField), Token.newSymbol(Types.ASSIGN, -1, -1), ConstantExpression.FALSE)));
+        }
 
         // check invariant after assignment
-        setterMethodBlock.addStatement(invariantAssertionBlockStatement);
+        setterMethodBlock.addStatement(invariantStatement);
 
         return setterMethodBlock;
     }
 
+    private static FieldNode getDeferredField(final ClassNode classNode)  {
+        FieldNode deferredField = classNode.getDeclaredField(Contracts.INVARIANTS_DEFERRED_FIELD);
+        if (deferredField == null)  {
+            deferredField = classNode.addField(Contracts.INVARIANTS_DEFERRED_FIELD, Opcodes.ACC_PRIVATE | Opcodes.ACC_TRANSIENT | Opcodes.ACC_SYNTHETIC, ClassHelper.int_TYPE, null);
+            deferredField.setSynthetic(true);
+        }
+
+        return deferredField;
+    }
+
     @Override
     public void visitProperty(PropertyNode node) {
         final ClassNode classNode = node.getDeclaringClass();
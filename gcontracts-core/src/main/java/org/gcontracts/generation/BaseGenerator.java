@@ -26,7 +26,6 @@ import org.codehaus.groovy.ast.*;
 import org.codehaus.groovy.ast.expr.*;
 import org.codehaus.groovy.ast.stmt.*;
 import org.codehaus.groovy.control.io.ReaderSource;
-import org.codehaus.groovy.runtime.InvokerHelper;
 import org.codehaus.groovy.syntax.Token;
 import org.codehaus.groovy.syntax.Types;
 import org.gcontracts.ViolationTracker;
@@ -35,9 +34,13 @@ import org.gcontracts.ast.visitor.AnnotationProcessorVisitor;
 import org.gcontracts.ast.visitor.BaseVisitor;
 import org.gcontracts.util.AnnotationUtils;
 import org.gcontracts.util.ExpressionUtils;
+import org.gcontracts.util.FieldValues;
+import org.objectweb.asm.Opcodes;
 
 import java.lang.annotation.Annotation;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -52,6 +55,12 @@ public abstract class BaseGenerator {
 
     public static final String INVARIANT_CLOSURE_PREFIX = "invariant";
     public static final String META_DATA_USE_INLINE_MODE = "org.gcontracts.USE_INLINE_MODE";
+    public static final String META_DATA_CONTRACT_SITES = "org.gcontracts.CONTRACT_SITES";
+    public static final String CONTRACT_SITE_FIELD_PREFIX = "$_gc_site_";
+    public static final String META_DATA_CONTRACT_CLOSURE_FIELDS = "org.gcontracts.CONTRACT_CLOSURE_FIELDS";
+    public static final String CONTRACT_CLOSURE_FIELD_PREFIX = "$_gc_closure_instance_";
+    public static final String FIELD_ACCESSOR_PREFIX = "$_gc_field_";
+    public static final String META_DATA_PENDING_FIELD_ACCESSORS = "org.gcontracts.PENDING_FIELD_ACCESSORS";
 
     protected final ReaderSource source;
 
@@ -65,7 +74,15 @@ public abstract class BaseGenerator {
      * @return the field name of the invariant closure field of the given <tt>classNode</tt>
      */
     public static String getInvariantMethodName(final ClassNode classNode)  {
-        return INVARIANT_CLOSURE_PREFIX + "_" + classNode.getName().replaceAll("\\.", "_");
+        return getInvariantMethodName(classNode.getName());
+    }
+
+    /**
+     * @param className the name of the class the class invariant method is declared in
+     * @return the name of the synthetic class invariant method of the given class
+     */
+    public static String getInvariantMethodName(final String className)  {
+        return INVARIANT_CLOSURE_PREFIX + "_" + className.replaceAll("\\.", "_");
     }
 
     /**
@@ -77,34 +94,289 @@ public abstract class BaseGenerator {
         return classNode.getDeclaredMethod(getInvariantMethodName(classNode), Parameter.EMPTY_ARRAY);
     }
 
-    protected BlockStatement getInlineModeBlockStatement(BlockStatement blockStatement)  {
+    /**
+     * @param classNode the {@link org.codehaus.groovy.ast.ClassNode} declaring the field
+     * @param fieldName the name of the field
+     * @return the name of the synthetic accessor method of the given field
+     */
+    public static String getFieldAccessorName(final ClassNode classNode, final String fieldName)  {
+        return FIELD_ACCESSOR_PREFIX + classNode.getName().replaceAll("\\.", "_") + "_" + fieldName;
+    }
+
+    /**
+     * Returns the expression reading the given private field of <tt>classNode</tt> from within contract closures
+     * and inline mode assertions. A package-private synthetic accessor method is added to <tt>classNode</tt>, it is
+     * only called by the class itself and by its contract closures which are generated into the same package. The
+     * owner name is part of the accessor name so that sub-classes do not override it. The receiver of the accessor is
+     * resolved by {@link FieldValues#thisObject(Object)} as <tt>this</tt> is the contract closure in closure mode.
+     * As this method is called while visitors iterate the methods of <tt>classNode</tt>, the accessor is only
+     * added by {@link #addPendingFieldAccessors(org.codehaus.groovy.ast.ClassNode)}.
+     *
+     * @param classNode the {@link org.codehaus.groovy.ast.ClassNode} declaring the field
+     * @param fieldNode the private {@link org.codehaus.groovy.ast.FieldNode} to read
+     * @return an {@link org.codehaus.groovy.ast.expr.Expression} evaluating to the value of the field
+     */
+    public static Expression getFieldAccessExpression(final ClassNode classNode, final FieldNode fieldNode)  {
+        final String accessorName = getFieldAccessorName(classNode, fieldNode.getName());
+
+        Map<String, MethodNode> pendingAccessors = classNode.getNodeMetaData(META_DATA_PENDING_FIELD_ACCESSORS);
+        if (pendingAccessors == null)  {
+            pendingAccessors = new LinkedHashMap<String, MethodNode>();
+            classNode.setNodeMetaData(META_DATA_PENDING_FIELD_ACCESSORS, pendingAccessors);
+        }
+
+        if (classNode.getDeclaredMethod(accessorName, Parameter.EMPTY_ARRAY) == null && !pendingAccessors.containsKey(accessorName))  {
+            final ClassNode returnType = fieldNode.getType().isGenericsPlaceHolder() ? ClassHelper.OBJECT_TYPE : fieldNode.getType();
+            final int modifiers = Opcodes.ACC_SYNTHETIC | (fieldNode.isStatic() ? Opcodes.ACC_STATIC : 0);
+
+            final BlockStatement accessorBlock = new BlockStatement();
+            accessorBlock.addStatement(new ReturnStatement(new FieldExpression(fieldNode)));
+
+            final MethodNode accessor = new MethodNode(accessorName, modifiers, returnType, Parameter.EMPTY_ARRAY, ClassNode.EMPTY_ARRAY, accessorBlock);
+            accessor.setSynthetic(true);
+            pendingAccessors.put(accessorName, accessor);
+        }
+
+        if (fieldNode.isStatic()) return new StaticMethodCallExpression(classNode, accessorName, ArgumentListExpression.EMPTY_ARGUMENTS);
+
+        final Expression receiver = new StaticMethodCallExpression(ClassHelper.makeWithoutCaching(FieldValues.class), "thisObject", new ArgumentListExpression(VariableExpression.THIS_EXPRESSION));
+        return new MethodCallExpression(receiver, accessorName, ArgumentListExpression.EMPTY_ARGUMENTS);
+    }
+
+    /**
+     * Adds the field accessor methods created by {@link #getFieldAccessExpression(org.codehaus.groovy.ast.ClassNode, org.codehaus.groovy.ast.FieldNode)}
+     * to the given <tt>classNode</tt>.
+     *
+     * @param classNode the {@link org.codehaus.groovy.ast.ClassNode} to add the pending accessors to
+     */
+    public static void addPendingFieldAccessors(final ClassNode classNode)  {
+        final Map<String, MethodNode> pendingAccessors = classNode.getNodeMetaData(META_DATA_PENDING_FIELD_ACCESSORS);
+        if (pendingAccessors == null) return;
+
+        for (MethodNode accessor : pendingAccessors.values())  {
+            classNode.addMethod(accessor);
+        }
+
+        classNode.removeNodeMetaData(META_DATA_PENDING_FIELD_ACCESSORS);
+    }
+
+    /**
+     * Creates the receiver expression for calling <tt>doCall</tt> on a contract closure of the given <tt>closureType</tt>.
+     * Per default a new closure instance is created on every evaluation. If
+     * {@link GenerationOptions#isCacheContractClosures()} is set, the closure instance is created once and kept
+     * in a synthetic transient field of the given <tt>type</tt>, static contexts keep it in a static field. The field
+     * is added to <tt>type</tt> as soon as the expression is used by {@link #wrapAssertionBooleanExpression}.
+     * As {@link Object#clone()} copies the field, an instance is only reused if it has been created for the current
+     * receiver.
+     *
+     * @param type the {@link org.codehaus.groovy.ast.ClassNode} the contract closure is evaluated in
+     * @param closureType the {@link org.codehaus.groovy.ast.ClassNode} of the generated contract closure class
+     * @param isStatic whether the contract closure is evaluated in a static context
+     * @return an {@link org.codehaus.groovy.ast.expr.Expression} evaluating to an instance of <tt>closureType</tt>
+     */
+    @SuppressWarnings("unchecked")
+    public static Expression getContractClosureInstanceExpression(final ClassNode type, final ClassNode closureType, final boolean isStatic)  {
+        final ConstructorCallExpression newInstance = new ConstructorCallExpression(closureType, new ArgumentListExpression(VariableExpression.THIS_EXPRESSION, VariableExpression.THIS_EXPRESSION));
+        if (!GenerationOptions.isCacheContractClosures() || type.isInterface()) return newInstance;
+
+        Map<String, FieldNode> closureFields = (Map<String, FieldNode>) type.getNodeMetaData(META_DATA_CONTRACT_CLOSURE_FIELDS);
+        if (closureFields == null)  {
+            closureFields = new HashMap<String, FieldNode>();
+            type.setNodeMetaData(META_DATA_CONTRACT_CLOSURE_FIELDS, closureFields);
+        }
+
+        final String key = closureType.getName() + "#" + isStatic;
+
+        FieldNode fieldNode = closureFields.get(key);
+        if (fieldNode == null)  {
+            final int modifiers = Opcodes.ACC_PRIVATE | Opcodes.ACC_TRANSIENT | Opcodes.ACC_SYNTHETIC | (isStatic ? Opcodes.ACC_STATIC : 0);
+
+            // the field is declared by wrapAssertionBooleanExpression, inline mode checks do not need it
+            fieldNode = new FieldNode(CONTRACT_CLOSURE_FIELD_PREFIX + closureFields.size(), modifiers, closureType, type, null);
+            fieldNode.setSynthetic(true);
+
+            closureFields.put(key, fieldNode);
+        }
+
+        final FieldExpression closureField = new FieldExpression(fieldNode);
+
+        Expression isCachedExpression = new BinaryExpression(closureField, Token.newSymbol(Types.COMPARE_NOT_EQUAL, -1, -1), ConstantExpression.NULL);
+        if (!isStatic)  {
+            // a clone shares the closure instance of the original object, which is bound to the original object
+            final MethodCallExpression thisObject = new MethodCallExpression(closureField, "getThisObject", ArgumentListExpression.EMPTY_ARGUMENTS);
+            isCachedExpression = new BinaryExpression(isCachedExpression, Token.newSymbol(Types.LOGICAL_AND, -1, -1),
+                    new MethodCallExpression(thisObject, "is", new ArgumentListExpression(VariableExpression.THIS_EXPRESSION)));
+        }
+
+        return new TernaryExpression(
+                new BooleanExpression(isCachedExpression),
+                closureField,
+                new BinaryExpression(closureField, Token.newSymbol(Types.ASSIGN, -1, -1), newInstance)
+        );
+    }
+
+    private static void declareContractClosureFields(final ClassNode type, final Expression expression)  {
+        expression.visit(new CodeVisitorSupport() {
+            @Override
+            public void visitFieldExpression(FieldExpression fieldExpression) {
+                final FieldNode fieldNode = fieldExpression.getField();
+                if (fieldNode.getName().startsWith(CONTRACT_CLOSURE_FIELD_PREFIX) && fieldNode.getOwner() == type && type.getDeclaredField(fieldNode.getName()) == null)  {
+                    type.addField(fieldNode);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the expression deciding whether the contract site identified by the given <tt>methodNode</tt> and
+     * <tt>assertionType</tt> is checked. This is the <tt>$GCONTRACTS_ENABLED</tt> field of the class and, if
+     * {@link GenerationOptions#SAMPLING} is enabled, the decision of {@link ContractSampler#sample(int)}.
+     *
+     * @param type the {@link org.codehaus.groovy.ast.ClassNode} declaring the contract site
+     * @param methodNode the {@link org.codehaus.groovy.ast.MethodNode} the contract belongs to
+     * @param assertionType the kind of assertion, e.g. <tt>precondition</tt>
+     * @return the boolean expression guarding the contract check
+     */
+    protected BooleanExpression contractEnabledExpression(final ClassNode type, final MethodNode methodNode, final String assertionType)  {
+        final VariableExpression enabledVariableExpression = new VariableExpression(BaseVisitor.GCONTRACTS_ENABLED_VAR, ClassHelper.boolean_TYPE);
+        if (!GenerationOptions.isSampling()) return new BooleanExpression(enabledVariableExpression);
+
+        final Expression sampleExpression = new StaticMethodCallExpression(ClassHelper.makeWithoutCaching(ContractSampler.class), "sample",
+                new ArgumentListExpression(new FieldExpression(getContractSiteField(type, methodNode, assertionType))));
+
+        return new BooleanExpression(new BinaryExpression(enabledVariableExpression, Token.newSymbol(Types.LOGICAL_AND, -1, -1), sampleExpression));
+    }
+
+    /**
+     * Returns the statement reporting a failed check of the contract site identified by the given <tt>methodNode</tt>
+     * and <tt>assertionType</tt> to {@link ContractSampler#violated(int)}, which re-arms the warm-up of the site. The
+     * statement is only needed if {@link GenerationOptions#SAMPLING} is enabled.
+     *
+     * @param type the {@link org.codehaus.groovy.ast.ClassNode} declaring the contract site
+     * @param methodNode the {@link org.codehaus.groovy.ast.MethodNode} the contract belongs to
+     * @param assertionType the kind of assertion, e.g. <tt>precondition</tt>
+     * @return the statement to execute before the violation is thrown
+     */
+    protected Statement contractViolatedStatement(final ClassNode type, final MethodNode methodNode, final String assertionType)  {
+        if (!GenerationOptions.isSampling()) return EmptyStatement.INSTANCE;
+
+        return new ExpressionStatement(new StaticMethodCallExpression(ClassHelper.makeWithoutCaching(ContractSampler.class), "violated",
+                new ArgumentListExpression(new FieldExpression(getContractSiteField(type, methodNode, assertionType)))));
+    }
+
+    private static VariableExpression metricsStartVariable()  {
+        final VariableExpression $_gc_start = new VariableExpression("$_gc_metrics_start", ClassHelper.long_TYPE);
+        $_gc_start.setAccessedVariable($_gc_start);
+        return $_gc_start;
+    }
+
+    private static Statement metricsStartStatement(final VariableExpression $_gc_start)  {
+        return new ExpressionStatement(new DeclarationExpression($_gc_start, Token.newSymbol(Types.ASSIGN, -1, -1),
+                new StaticMethodCallExpression(ClassHelper.makeWithoutCaching(ContractMetrics.class), "start", ArgumentListExpression.EMPTY_ARGUMENTS)));
+    }
+
+    /**
+     * Returns the statement recording the evaluation of the contract site identified by the given <tt>methodNode</tt>
+     * and <tt>assertionType</tt> with {@link ContractMetrics#record(int, long, boolean)}. The statement is only
+     * needed if {@link GenerationOptions#METRICS} is enabled.
+     */
+    private Statement metricsRecordStatement(final ClassNode type, final MethodNode methodNode, final String assertionType, final VariableExpression $_gc_start, final VariableExpression $_gc_passed)  {
+        return new ExpressionStatement(new StaticMethodCallExpression(ClassHelper.makeWithoutCaching(ContractMetrics.class), "record",
+                new ArgumentListExpression(Arrays.<Expression>asList(new FieldExpression(getContractSiteField(type, methodNode, assertionType)), $_gc_start, $_gc_passed))));
+    }
+
+    protected BlockStatement getInlineModeBlockStatement(ClassNode type, MethodNode methodNode, String assertionType, BooleanExpression enabledExpression, BlockStatement blockStatement)  {
 
         final BlockStatement result = new BlockStatement();
         final BooleanExpression combinedBooleanExpression = ExpressionUtils.getBooleanExpression(ExpressionUtils.getBooleanExpressionsFromAssertionStatements(blockStatement));
 
+        final BlockStatement violationBlockStatement = new BlockStatement();
+        violationBlockStatement.addStatement(contractViolatedStatement(type, methodNode, assertionType));
+        violationBlockStatement.addStatement(blockStatement);
+
         final BlockStatement assertionBlockStatement = new BlockStatement();
-        assertionBlockStatement.addStatement(new IfStatement(new NotExpression(combinedBooleanExpression), blockStatement, EmptyStatement.INSTANCE));
+        if (GenerationOptions.isMetrics())  {
+            final VariableExpression $_gc_passed = new VariableExpression("$_gc_metrics_passed", ClassHelper.boolean_TYPE);
+            $_gc_passed.setAccessedVariable($_gc_passed);
+
+            final VariableExpression $_gc_start = metricsStartVariable();
+            assertionBlockStatement.addStatement(metricsStartStatement($_gc_start));
+            assertionBlockStatement.addStatement(new ExpressionStatement(new DeclarationExpression($_gc_passed, Token.newSymbol(Types.ASSIGN, -1, -1), combinedBooleanExpression)));
+            assertionBlockStatement.addStatement(metricsRecordStatement(type, methodNode, assertionType, $_gc_start, $_gc_passed));
+            assertionBlockStatement.addStatement(new IfStatement(new BooleanExpression(new NotExpression($_gc_passed)), violationBlockStatement, EmptyStatement.INSTANCE));
+        } else {
+            assertionBlockStatement.addStatement(new IfStatement(new NotExpression(combinedBooleanExpression), violationBlockStatement, EmptyStatement.INSTANCE));
+        }
 
-        result.addStatement(new IfStatement(new BooleanExpression(new VariableExpression(BaseVisitor.GCONTRACTS_ENABLED_VAR, ClassHelper.boolean_TYPE)), assertionBlockStatement, EmptyStatement.INSTANCE));
+        result.addStatement(new IfStatement(enabledExpression, assertionBlockStatement, EmptyStatement.INSTANCE));
 
         return result;
     }
 
+    /**
+     * Returns the synthetic static field holding the id of the contract site identified by the given
+     * <tt>methodNode</tt> and <tt>assertionType</tt>. The field is initialized with the id returned by
+     * {@link ContractExecutionTracker#register(String, String, String, boolean)} when the class is loaded.
+     *
+     * @param type the {@link org.codehaus.groovy.ast.ClassNode} declaring the contract site
+     * @param methodNode the {@link org.codehaus.groovy.ast.MethodNode} the contract belongs to
+     * @param assertionType the kind of assertion, e.g. <tt>precondition</tt>
+     * @return the {@link org.codehaus.groovy.ast.FieldNode} holding the contract site id
+     */
+    @SuppressWarnings("unchecked")
+    protected FieldNode getContractSiteField(final ClassNode type, final MethodNode methodNode, final String assertionType)  {
+        Map<String, FieldNode> contractSites = (Map<String, FieldNode>) type.getNodeMetaData(META_DATA_CONTRACT_SITES);
+        if (contractSites == null)  {
+            contractSites = new HashMap<String, FieldNode>();
+            type.setNodeMetaData(META_DATA_CONTRACT_SITES, contractSites);
+        }
+
+        final String key = methodNode.getTypeDescriptor() + "#" + assertionType + "#" + methodNode.isStatic();
+
+        FieldNode fieldNode = contractSites.get(key);
+        if (fieldNode == null)  {
+            final StaticMethodCallExpression registerCall = new StaticMethodCallExpression(ClassHelper.makeWithoutCaching(ContractExecutionTracker.class), "register",
+                    new ArgumentListExpression(Arrays.<Expression>asList(new ConstantExpression(type.getName()), new ConstantExpression(methodNode.getTypeDescriptor()), new ConstantExpression(assertionType), methodNode.isStatic() ? ConstantExpression.TRUE : ConstantExpression.FALSE)));
+
+            fieldNode = type.addField(CONTRACT_SITE_FIELD_PREFIX + contractSites.size(), Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC, ClassHelper.int_TYPE, registerCall);
+            fieldNode.setSynthetic(true);
+
+            contractSites.put(key, fieldNode);
+        }
+
+        return fieldNode;
+    }
+
     protected BlockStatement wrapAssertionBooleanExpression(ClassNode type, MethodNode methodNode, BooleanExpression classInvariantExpression, String assertionType) {
+        return wrapAssertionBooleanExpression(type, methodNode, classInvariantExpression, assertionType, contractEnabledExpression(type, methodNode, assertionType));
+    }
+
+    protected BlockStatement wrapAssertionBooleanExpression(ClassNode type, MethodNode methodNode, BooleanExpression classInvariantExpression, String assertionType, BooleanExpression enabledExpression) {
+        return wrapAssertionBooleanExpression(type, methodNode, classInvariantExpression, assertionType, enabledExpression, EmptyStatement.INSTANCE);
+    }
+
+    protected BlockStatement wrapAssertionBooleanExpression(ClassNode type, MethodNode methodNode, BooleanExpression classInvariantExpression, String assertionType, BooleanExpression enabledExpression, Statement successStatement) {
 
         final ClassNode violationTrackerClassNode = ClassHelper.makeWithoutCaching(ViolationTracker.class);
         final VariableExpression $_gc_result = new VariableExpression("$_gc_result", ClassHelper.boolean_TYPE);
         $_gc_result.setAccessedVariable($_gc_result);
 
-        final BlockStatement assertBlockStatement = new BlockStatement();
-        final TryCatchStatement lockTryCatchStatement = new TryCatchStatement(assertBlockStatement, new BlockStatement(Arrays.<Statement>asList(
-                new ExpressionStatement(new MethodCallExpression(new ClassExpression(ClassHelper.make(ContractExecutionTracker.class)), "clear", new ArgumentListExpression(Arrays.<Expression>asList(new ConstantExpression(type.getName()), new ConstantExpression(methodNode.getTypeDescriptor()), new ConstantExpression(assertionType), methodNode.isStatic() ? ConstantExpression.TRUE : ConstantExpression.FALSE))))
-        ), new VariableScope()));
+        final FieldExpression contractSiteId = new FieldExpression(getContractSiteField(type, methodNode, assertionType));
+        declareContractClosureFields(type, classInvariantExpression);
+
         final BlockStatement ifBlockStatement = new BlockStatement();
 
+        // only the execution which successfully tracked the contract site may clear it again, otherwise a skipped
+        // cyclic execution would re-enable the site while the outer execution is still evaluating it
+        final TryCatchStatement lockTryCatchStatement = new TryCatchStatement(ifBlockStatement, new BlockStatement(Arrays.<Statement>asList(
+                new ExpressionStatement(new MethodCallExpression(new ClassExpression(violationTrackerClassNode), "deinit", ArgumentListExpression.EMPTY_ARGUMENTS)),
+                new ExpressionStatement(new MethodCallExpression(new ClassExpression(ClassHelper.make(ContractExecutionTracker.class)), "clear", new ArgumentListExpression(contractSiteId)))
+        ), new VariableScope()));
+
+        final BlockStatement assertBlockStatement = new BlockStatement();
         assertBlockStatement.addStatement(new IfStatement(new BooleanExpression(
-                new MethodCallExpression(new ClassExpression(ClassHelper.make(ContractExecutionTracker.class)), "track", new ArgumentListExpression(Arrays.<Expression>asList(new ConstantExpression(type.getName()), new ConstantExpression(methodNode.getTypeDescriptor()), new ConstantExpression(assertionType), methodNode.isStatic() ? ConstantExpression.TRUE : ConstantExpression.FALSE)))),
-                ifBlockStatement,
+                new MethodCallExpression(new ClassExpression(ClassHelper.make(ContractExecutionTracker.class)), "track", new ArgumentListExpression(contractSiteId))),
+                lockTryCatchStatement,
                 EmptyStatement.INSTANCE
         ));
 
@@ -114,6 +386,9 @@ public abstract class BaseGenerator {
                 new MethodCallExpression(new ClassExpression(violationTrackerClassNode), "init", ArgumentListExpression.EMPTY_ARGUMENTS))
         );
 
+        final VariableExpression $_gc_start = metricsStartVariable();
+        if (GenerationOptions.isMetrics()) ifBlockStatement.addStatement(metricsStartStatement($_gc_start));
+
         ifBlockStatement.addStatement(
                 new ExpressionStatement(new BinaryExpression($_gc_result,
                         Token.newSymbol(Types.ASSIGN, -1, -1),
@@ -121,28 +396,29 @@ public abstract class BaseGenerator {
                 )
                 ));
 
-        BlockStatement finallyBlockStatement = new BlockStatement();
-        finallyBlockStatement.addStatement(new ExpressionStatement(new MethodCallExpression(new ClassExpression(violationTrackerClassNode), "deinit", ArgumentListExpression.EMPTY_ARGUMENTS)));
+        if (GenerationOptions.isMetrics()) ifBlockStatement.addStatement(metricsRecordStatement(type, methodNode, assertionType, $_gc_start, $_gc_result));
 
+        // the violation tracker frame is closed in the finally block above, no matter whether the evaluation succeeded
         ifBlockStatement.addStatement(
                 new IfStatement(
                         new BooleanExpression(
-                            new NotExpression(new MethodCallExpression($_gc_result, "booleanValue", ArgumentListExpression.EMPTY_ARGUMENTS))
+                            new NotExpression($_gc_result)
                         ),
 
-                        new IfStatement(
-                                new BooleanExpression(
-                                        new MethodCallExpression(new ClassExpression(violationTrackerClassNode), "violationsOccured", ArgumentListExpression.EMPTY_ARGUMENTS)), new TryCatchStatement(
-                                new ExpressionStatement(new MethodCallExpression(new ClassExpression(violationTrackerClassNode), "rethrowFirst", ArgumentListExpression.EMPTY_ARGUMENTS)),
-                                finallyBlockStatement
-                        ), EmptyStatement.INSTANCE)
-                        ,
-                        EmptyStatement.INSTANCE
+                        new BlockStatement(Arrays.<Statement>asList(
+                                contractViolatedStatement(type, methodNode, assertionType),
+                                new IfStatement(
+                                        new BooleanExpression(
+                                                new MethodCallExpression(new ClassExpression(violationTrackerClassNode), "violationsOccured", ArgumentListExpression.EMPTY_ARGUMENTS)),
+                                        new ExpressionStatement(new MethodCallExpression(new ClassExpression(violationTrackerClassNode), "rethrowFirst", ArgumentListExpression.EMPTY_ARGUMENTS)),
+                                        EmptyStatement.INSTANCE)
+                        ), new VariableScope()),
+                        successStatement
                 )
         );
 
         final BlockStatement blockStatement = new BlockStatement();
-        blockStatement.addStatement(new IfStatement(new BooleanExpression(new VariableExpression(BaseVisitor.GCONTRACTS_ENABLED_VAR, ClassHelper.boolean_TYPE)), lockTryCatchStatement, EmptyStatement.INSTANCE));
+        blockStatement.addStatement(new IfStatement(enabledExpression, assertBlockStatement, EmptyStatement.INSTANCE));
 
         return blockStatement;
     }
@@ -179,22 +455,9 @@ public abstract class BaseGenerator {
                 callArgumentList.addExpression(variableExpression);
             }
 
-            ArgumentListExpression newInstanceArguments = new ArgumentListExpression(
-                    classExpression,
-                    new ArrayExpression(
-                            ClassHelper.DYNAMIC_TYPE,
-                            Arrays.<Expression>asList(VariableExpression.THIS_EXPRESSION, VariableExpression.THIS_EXPRESSION)
-                    )
-            );
-
-            StaticMethodCallExpression methodCallExpression = new StaticMethodCallExpression(
-                    ClassHelper.makeWithoutCaching(InvokerHelper.class),
-                    "invokeConstructorOf",
-                    newInstanceArguments
-            );
-
+            // call the inherited contract closure directly, the closure class is public and has a (Object, Object) constructor
             MethodCallExpression doCall = new MethodCallExpression(
-                    methodCallExpression,
+                    getContractClosureInstanceExpression(type, classExpression.getType(), methodNode.isStatic()),
                     "doCall",
                     callArgumentList
             );
@@ -24,10 +24,7 @@ package org.gcontracts.generation;
 
 import org.codehaus.groovy.ast.*;
 import org.codehaus.groovy.ast.expr.*;
-import org.codehaus.groovy.ast.stmt.BlockStatement;
-import org.codehaus.groovy.ast.stmt.ExpressionStatement;
-import org.codehaus.groovy.ast.stmt.ReturnStatement;
-import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.ast.stmt.*;
 import org.codehaus.groovy.control.io.ReaderSource;
 import org.codehaus.groovy.syntax.Token;
 import org.codehaus.groovy.syntax.Types;
@@ -37,17 +34,32 @@ import org.gcontracts.util.AnnotationUtils;
 import org.objectweb.asm.Opcodes;
 
 import java.lang.annotation.Annotation;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * <p>
  * Code generator for class invariants.
  * </p>
  *
+ * <p>
+ * If {@link GenerationOptions#SKIP_INTERNAL_CALL_INVARIANTS} is enabled, methods of classes calling their own
+ * contracted methods without a qualifier (or qualified with <tt>this</tt>) register their calls with the
+ * {@link InternalCallTracker} of the current thread. The class invariant is only checked by the outermost call, nested
+ * calls on the same object and thread skip it. Calls which reach the same object through another reference while it
+ * is executing one of its methods on the same thread are treated as nested calls, too.
+ * </p>
+ *
  * @author ast
  */
 public class ClassInvariantGenerator extends BaseGenerator {
 
+    public static final String INTERNAL_CALL_VAR = "$_gc_internal_call";
+    public static final String INTERNAL_CALL_TRACKER_VAR = "$_gc_internal_call_tracker";
+
+    private static final String META_DATA_INTERNAL_CALLS = "org.gcontracts.META_DATA.INTERNAL_CALLS";
+
     public ClassInvariantGenerator(final ReaderSource source) {
         super(source);
     }
@@ -62,6 +74,7 @@ public class ClassInvariantGenerator extends BaseGenerator {
      */
     public void generateInvariantAssertionStatement(final ClassNode type, final org.gcontracts.domain.ClassInvariant classInvariant)  {
 
+        // inherited class invariants read fields of super classes, these classes are not dirty checked
         BooleanExpression classInvariantExpression = addCallsToSuperAnnotationClosure(type, ClassInvariant.class, classInvariant.booleanExpression());
 
         final BlockStatement blockStatement = new BlockStatement();
@@ -70,7 +83,15 @@ public class ClassInvariantGenerator extends BaseGenerator {
         MethodNode methodNode = type.addMethod(getInvariantMethodName(type), Opcodes.ACC_PROTECTED | Opcodes.ACC_SYNTHETIC, ClassHelper.VOID_TYPE, Parameter.EMPTY_ARRAY, ClassNode.EMPTY_ARRAY, blockStatement);
         methodNode.setSynthetic(true);
 
-        blockStatement.addStatements(wrapAssertionBooleanExpression(type, methodNode, classInvariantExpression, "invariant").getStatements());
+        Statement successStatement = EmptyStatement.INSTANCE;
+        if (GenerationOptions.isDirtyCheckedInvariants() && classInvariantExpression == classInvariant.booleanExpression())  {
+            final FieldNode invariantCheckedField = DirtyTrackingGenerationUtility.addDirtyTracking(type, classInvariant);
+            if (invariantCheckedField != null)  {
+                successStatement = new ExpressionStatement(new BinaryExpression(new FieldExpression(invariantCheckedField), Token.newSymbol(Types.ASSIGN, -1, -1), ConstantExpression.TRUE));
+            }
+        }
+
+        blockStatement.addStatements(wrapAssertionBooleanExpression(type, methodNode, classInvariantExpression, "invariant", contractEnabledExpression(type, methodNode, "invariant"), successStatement).getStatements());
     }
 
     private BooleanExpression addCallsToSuperAnnotationClosure(final ClassNode type, final Class<? extends Annotation> annotationType, BooleanExpression booleanExpression)  {
@@ -83,7 +104,7 @@ public class ClassInvariantGenerator extends BaseGenerator {
             if (classExpression == null) continue;
 
             MethodCallExpression doCall = new MethodCallExpression(
-                    new ConstructorCallExpression(classExpression.getType(), new ArgumentListExpression(VariableExpression.THIS_EXPRESSION, VariableExpression.THIS_EXPRESSION)),
+                    getContractClosureInstanceExpression(type, classExpression.getType(), false),
                     "doCall",
                     ArgumentListExpression.EMPTY_ARGUMENTS
             );
@@ -123,6 +144,23 @@ public class ClassInvariantGenerator extends BaseGenerator {
                 )
         );
 
+        final FieldNode invariantCheckedField = DirtyTrackingGenerationUtility.getInvariantCheckedField(type);
+        if (invariantCheckedField != null)  {
+            invariantMethodCall = new IfStatement(new NotExpression(new FieldExpression(invariantCheckedField)), invariantMethodCall, EmptyStatement.INSTANCE);
+        }
+
+        VariableExpression internalCallVariable = null;
+        if (GenerationOptions.isSkipInternalCallInvariants() && hasInternalCalls(type))  {
+            internalCallVariable = new VariableExpression(INTERNAL_CALL_VAR, ClassHelper.boolean_TYPE);
+            internalCallVariable.setAccessedVariable(internalCallVariable);
+
+            invariantMethodCall = new IfStatement(
+                    new BooleanExpression(new NotExpression(internalCallVariable)),
+                    invariantMethodCall,
+                    EmptyStatement.INSTANCE
+            );
+        }
+
         final Statement statement = method.getCode();
         if (statement instanceof BlockStatement && method.getReturnType() != ClassHelper.VOID_TYPE && !(method instanceof ConstructorNode))  {
             final BlockStatement blockStatement = (BlockStatement) statement;
@@ -144,5 +182,101 @@ public class ClassInvariantGenerator extends BaseGenerator {
 
             method.setCode(assertionBlock);
         }
+
+        if (internalCallVariable != null) addInternalCallTracking(method, internalCallVariable);
+    }
+
+    /**
+     * Wraps the code of the given <tt>method</tt> so that the call is registered with the {@link InternalCallTracker}
+     * of the current thread while the method executes. Whether the call is nested in another call on the same object
+     * is kept in <tt>internalCallVariable</tt>.
+     */
+    private void addInternalCallTracking(final MethodNode method, final VariableExpression internalCallVariable)  {
+        final ClassNode trackerClassNode = ClassHelper.makeWithoutCaching(InternalCallTracker.class);
+        final VariableExpression trackerVariable = new VariableExpression(INTERNAL_CALL_TRACKER_VAR, trackerClassNode);
+        trackerVariable.setAccessedVariable(trackerVariable);
+
+        final BlockStatement code = (BlockStatement) method.getCode();
+        final BlockStatement result = new BlockStatement();
+
+        // this(...) and super(...) calls have to remain the first statement of a constructor
+        final List<Statement> statements = code.getStatements();
+        if (method instanceof ConstructorNode && !statements.isEmpty() && isSpecialConstructorCall(statements.get(0)))  {
+            result.addStatement(statements.remove(0));
+        }
+
+        result.addStatement(new ExpressionStatement(new DeclarationExpression(trackerVariable, Token.newSymbol(Types.ASSIGN, -1, -1),
+                new StaticMethodCallExpression(trackerClassNode, "current", ArgumentListExpression.EMPTY_ARGUMENTS))));
+        result.addStatement(new ExpressionStatement(new DeclarationExpression(internalCallVariable, Token.newSymbol(Types.ASSIGN, -1, -1),
+                new MethodCallExpression(trackerVariable, "enter", new ArgumentListExpression(VariableExpression.THIS_EXPRESSION)))));
+
+        final TryCatchStatement tryCatchStatement = new TryCatchStatement(code,
+                new ExpressionStatement(new MethodCallExpression(trackerVariable, "exit", ArgumentListExpression.EMPTY_ARGUMENTS)));
+        result.addStatement(tryCatchStatement);
+
+        method.setCode(result);
+    }
+
+    private static boolean isSpecialConstructorCall(final Statement statement)  {
+        if (!(statement instanceof ExpressionStatement)) return false;
+
+        final Expression expression = ((ExpressionStatement) statement).getExpression();
+        return expression instanceof ConstructorCallExpression && ((ConstructorCallExpression) expression).isSpecialCall();
+    }
+
+    /**
+     * Decides whether one of the methods or constructors of the given <tt>type</tt> calls a class invariant candidate
+     * of <tt>type</tt> without a qualifier or qualified with <tt>this</tt>. The result is kept as node meta data.
+     *
+     * @param type the {@link org.codehaus.groovy.ast.ClassNode} to analyze
+     * @return whether <tt>type</tt> has internal calls to methods checking the class invariant
+     */
+    public static boolean hasInternalCalls(final ClassNode type)  {
+        Boolean result = (Boolean) type.getNodeMetaData(META_DATA_INTERNAL_CALLS);
+        if (result == null)  {
+            result = findInternalCalls(type);
+            type.setNodeMetaData(META_DATA_INTERNAL_CALLS, result);
+        }
+
+        return result;
+    }
+
+    private static boolean findInternalCalls(final ClassNode type)  {
+        final Set<String> candidateNames = new HashSet<String>();
+        for (MethodNode methodNode : type.getMethods())  {
+            if (CandidateChecks.isClassInvariantCandidate(type, methodNode)) candidateNames.add(methodNode.getName());
+        }
+
+        if (candidateNames.isEmpty()) return false;
+
+        final InternalCallVisitor internalCallVisitor = new InternalCallVisitor(candidateNames);
+        for (MethodNode methodNode : type.getMethods())  {
+            if (!methodNode.isStatic() && methodNode.getCode() != null) methodNode.getCode().visit(internalCallVisitor);
+        }
+        for (ConstructorNode constructorNode : type.getDeclaredConstructors())  {
+            if (constructorNode.getCode() != null) constructorNode.getCode().visit(internalCallVisitor);
+        }
+
+        return internalCallVisitor.found;
+    }
+
+    private static class InternalCallVisitor extends CodeVisitorSupport {
+
+        private final Set<String> candidateNames;
+        private boolean found;
+
+        InternalCallVisitor(final Set<String> candidateNames)  {
+            this.candidateNames = candidateNames;
+        }
+
+        @Override
+        public void visitMethodCallExpression(MethodCallExpression call) {
+            final Expression objectExpression = call.getObjectExpression();
+            final boolean unqualified = call.isImplicitThis() || (objectExpression instanceof VariableExpression && ((VariableExpression) objectExpression).isThisExpression());
+
+            if (unqualified && candidateNames.contains(call.getMethodAsString())) found = true;
+
+            super.visitMethodCallExpression(call);
+        }
     }
 }
@@ -0,0 +1,328 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Reads contract enablement rules from a configuration file and reloads them whenever the file changes. The file
+ * is given by {@code -Dorg.gcontracts.configurationFile=/etc/contracts.conf} and checked for changes every
+ * {@code -Dorg.gcontracts.configurationFile.pollInterval} milliseconds, two seconds per default.</p>
+ *
+ * <p>Each line holds a rule of the form <tt>[kind:]name[#method] = enabled|disabled</tt>, where <tt>kind</tt>
+ * is one of <tt>precondition</tt>, <tt>postcondition</tt> or <tt>invariant</tt> and <tt>name</tt> is a class or
+ * package name, or <tt>*</tt> for the default. Empty lines and lines starting with <tt>#</tt> are ignored:</p>
+ *
+ * <pre>
+ * # contracts of the billing package are checked, except for postconditions of the invoice
+ * * = disabled
+ * org.example.billing = enabled
+ * postcondition:org.example.billing.Invoice = disabled
+ * org.example.billing.Invoice#pay = enabled
+ * </pre>
+ *
+ * <p>Class and package rules switch the <tt>$GCONTRACTS_ENABLED</tt> field of classes compiled with
+ * {@link GenerationOptions#RUNTIME_ENABLEMENT}. Method rules and rules for a kind of assertion are applied to single
+ * contract sites, which are only known to classes compiled with {@link GenerationOptions#SAMPLING}: a disabled
+ * contract site is not evaluated by {@link ContractSampler}. They can only narrow the rules of their class, a class
+ * is enabled as soon as one kind of assertion is enabled for the class. Such rules have no effect on other classes,
+ * {@link Configurator} logs a warning if they match one.</p>
+ *
+ * <p>The file is polled as file system notifications are not available on all supported Java versions. A file
+ * that cannot be read or parsed keeps the previous rules in place until it changes again.</p>
+ *
+ * <p>The file given by the system property is read and watched when {@link Configurator} looks up a rule for the
+ * first time, not while it is initialized. Another file can be watched explicitly with {@link #watch(File, long)}.
+ * Contracts are switched after the rules have been replaced and without holding a lock, as switching a class which
+ * is being initialized by another thread waits for its static initializer.</p>
+ *
+ * @see Configurator
+ *
+ * @author ast
+ */
+public final class ConfigurationFile {
+
+    public static final String CONFIGURATION_FILE = "org.gcontracts.configurationFile";
+    public static final String POLL_INTERVAL = CONFIGURATION_FILE + ".pollInterval";
+    public static final long DEFAULT_POLL_INTERVAL = 2000;
+
+    public static final String DEFAULT_NAME = "*";
+    public static final String ENABLED = "enabled";
+    public static final String DISABLED = "disabled";
+
+    private static File file;
+    private static long lastModified;
+    private static long length;
+    private static Thread poller;
+
+    private static volatile boolean configuredFileWatched = false;
+
+    private ConfigurationFile() {}
+
+    /**
+     * Starts watching the file given by {@link #CONFIGURATION_FILE} unless this has already been done. Threads
+     * calling concurrently with the first call do not wait for the file to be read.
+     */
+    static void watchConfiguredFile()  {
+        if (configuredFileWatched) return;
+
+        synchronized (ConfigurationFile.class)  {
+            if (configuredFileWatched) return;
+            configuredFileWatched = true;
+        }
+
+        final String fileName;
+        final long pollInterval;
+        try {
+            fileName = System.getProperty(CONFIGURATION_FILE);
+            pollInterval = Long.getLong(POLL_INTERVAL, DEFAULT_POLL_INTERVAL);
+        } catch (SecurityException e)  {
+            return;
+        }
+
+        if (fileName == null || fileName.trim().length() == 0) return;
+
+        try {
+            watch(new File(fileName.trim()), pollInterval);
+        } catch (IOException e)  {
+            // the file is read again as soon as it is changed
+        } catch (IllegalArgumentException e)  {
+            // the file is read again as soon as it is changed
+        }
+    }
+
+    /**
+     * Reads the rules of the given configuration file and starts polling the file for changes. A previously
+     * watched file is no longer watched.
+     *
+     * @param configurationFile the configuration file
+     * @param pollInterval the number of milliseconds between two checks for changes
+     *
+     * @throws IOException if the file cannot be read, the file is watched anyway
+     * @throws IllegalArgumentException if the file contains an invalid rule, the file is watched anyway
+     */
+    public static void watch(final File configurationFile, final long pollInterval) throws IOException {
+        synchronized (ConfigurationFile.class)  {
+            // a file watched explicitly is not replaced by the file given by the system property
+            configuredFileWatched = true;
+
+            stopPolling();
+            Configurator.setFileConfiguration(new HashMap<String, Boolean>());
+
+            file = configurationFile;
+            lastModified = -1;
+            length = -1;
+
+            poller = new Thread(new Poller(Math.max(pollInterval, 1)), "gcontracts-configuration-file");
+            poller.setDaemon(true);
+            poller.start();
+        }
+
+        try {
+            reload();
+        } catch (IOException e)  {
+            switchContracts();
+            throw e;
+        } catch (IllegalArgumentException e)  {
+            switchContracts();
+            throw e;
+        }
+    }
+
+    /**
+     * Stops watching the configuration file and removes its rules.
+     */
+    public static void unwatch()  {
+        synchronized (ConfigurationFile.class)  {
+            stopPolling();
+            Configurator.setFileConfiguration(new HashMap<String, Boolean>());
+        }
+
+        switchContracts();
+    }
+
+    private static void stopPolling()  {
+        if (poller != null) poller.interrupt();
+
+        poller = null;
+        file = null;
+    }
+
+    /**
+     * Reads the rules of the watched configuration file again if it has changed since it has been read last.
+     *
+     * @return whether the rules have been read again
+     *
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file contains an invalid rule
+     */
+    public static boolean reload() throws IOException {
+        synchronized (ConfigurationFile.class)  {
+            if (!read()) return false;
+        }
+
+        switchContracts();
+        return true;
+    }
+
+    // replaces the rules of the configurator if the file has changed, contracts are switched by the caller
+    private static boolean read() throws IOException {
+        if (file == null) return false;
+
+        final long currentLastModified = file.lastModified();
+        final long currentLength = file.length();
+        if (currentLastModified == lastModified && currentLength == length) return false;
+
+        // the file is not read again before it changes, whether or not it is valid
+        lastModified = currentLastModified;
+        length = currentLength;
+
+        // a deleted file removes all rules
+        if (!file.exists())  {
+            Configurator.setFileConfiguration(new HashMap<String, Boolean>());
+            return true;
+        }
+
+        final Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            Configurator.setFileConfiguration(parse(reader));
+        } finally {
+            reader.close();
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the currently watched configuration file, <tt>null</tt> if no file is watched
+     */
+    public static synchronized File getFile()  {
+        return file;
+    }
+
+    /**
+     * Parses rules in the format of the configuration file.
+     *
+     * @param reader the configuration to parse
+     * @return the rules keyed by <tt>[kind:]name[#method]</tt>, the default is kept with the <tt>null</tt> key
+     *
+     * @throws IOException if the configuration cannot be read
+     * @throws IllegalArgumentException if the configuration contains an invalid rule
+     */
+    public static Map<String, Boolean> parse(final Reader reader) throws IOException {
+        final Map<String, Boolean> result = new HashMap<String, Boolean>();
+        final BufferedReader lines = new BufferedReader(reader);
+
+        int lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null)  {
+            lineNumber++;
+
+            line = line.trim();
+            if (line.length() == 0 || line.startsWith("#")) continue;
+
+            final int separator = line.indexOf('=');
+            if (separator < 0) throw new IllegalArgumentException("Line " + lineNumber + ": missing '=' in rule " + line);
+
+            final String value = line.substring(separator + 1).trim();
+            final Boolean enabled;
+            if (ENABLED.equals(value) || "true".equals(value))  {
+                enabled = Boolean.TRUE;
+            } else if (DISABLED.equals(value) || "false".equals(value))  {
+                enabled = Boolean.FALSE;
+            } else {
+                throw new IllegalArgumentException("Line " + lineNumber + ": expected '" + ENABLED + "' or '" + DISABLED + "' but found " + value);
+            }
+
+            result.put(parseName(line.substring(0, separator).trim(), lineNumber), enabled);
+        }
+
+        return result;
+    }
+
+    private static String parseName(final String name, final int lineNumber)  {
+        String assertionType = null;
+        String className = name;
+
+        final int separator = name.indexOf(Configurator.ASSERTION_TYPE_SEPARATOR);
+        if (separator >= 0)  {
+            assertionType = name.substring(0, separator).trim();
+            className = name.substring(separator + 1).trim();
+
+            if (!Configurator.PRECONDITION.equals(assertionType) && !Configurator.POSTCONDITION.equals(assertionType) && !Configurator.INVARIANT.equals(assertionType))  {
+                throw new IllegalArgumentException("Line " + lineNumber + ": unknown kind of assertion " + assertionType);
+            }
+        }
+
+        if (className.length() == 0) throw new IllegalArgumentException("Line " + lineNumber + ": missing class or package name");
+
+        if (DEFAULT_NAME.equals(className))  {
+            return assertionType == null ? null : assertionType + Configurator.ASSERTION_TYPE_SEPARATOR;
+        }
+
+        return assertionType == null ? className : assertionType + Configurator.ASSERTION_TYPE_SEPARATOR + className;
+    }
+
+    private static void switchContracts()  {
+        ContractEnablement.refresh();
+        ContractSampler.reset();
+    }
+
+    private static final class Poller implements Runnable {
+
+        private final long pollInterval;
+
+        Poller(final long pollInterval)  {
+            this.pollInterval = pollInterval;
+        }
+
+        public void run() {
+            while (!Thread.currentThread().isInterrupted())  {
+                try {
+                    Thread.sleep(pollInterval);
+                } catch (InterruptedException e)  {
+                    return;
+                }
+
+                synchronized (ConfigurationFile.class)  {
+                    if (poller != Thread.currentThread()) return;
+                }
+
+                try {
+                    reload();
+                } catch (IOException e)  {
+                    // the previous rules are kept until the file changes again
+                } catch (IllegalArgumentException e)  {
+                    // the previous rules are kept until the file changes again
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * <p>Prefix trie of configuration rules keyed by class and package names, and optionally by method names in the form
+ * <tt>org.example.Invoice#pay</tt>. The trie is compiled once from a map of rules and is immutable afterwards, lookups
+ * walk the given class name char by char and do not allocate.</p>
+ *
+ * <p>The most specific rule wins: a rule for a package applies to all classes in the package and its sub-packages,
+ * unless there is a rule for a longer package name, the class itself or the method. A package rule only matches
+ * complete name segments, <tt>org.example</tt> does not apply to <tt>org.examples.Invoice</tt>.</p>
+ *
+ * @param <T> the type of the configured values
+ *
+ * @author ast
+ */
+final class ConfigurationTrie<T> {
+
+    public static final char METHOD_SEPARATOR = '#';
+
+    private final Node<T> root = new Node<T>();
+    private final T defaultValue;
+
+    /**
+     * @param rules the rules to compile, the <tt>null</tt> key holds the default value
+     */
+    ConfigurationTrie(final Map<String, T> rules)  {
+        this.defaultValue = rules.get(null);
+
+        for (Map.Entry<String, T> rule : rules.entrySet())  {
+            if (rule.getKey() == null || rule.getValue() == null) continue;
+
+            Node<T> node = root;
+            for (int i = 0; i < rule.getKey().length(); i++)  {
+                node = node.addChild(rule.getKey().charAt(i));
+            }
+            node.value = rule.getValue();
+        }
+    }
+
+    /**
+     * @param className the class name to look up
+     * @return the value of the most specific class or package rule, or the default value
+     */
+    T lookup(final String className)  {
+        return lookup(className, null);
+    }
+
+    /**
+     * @param className the class name to look up
+     * @param methodIdentifier the method name or the type descriptor of the method, e.g. <tt>void pay(int)</tt>,
+     *                         <tt>null</tt> if only class and package rules apply
+     * @return the value of the most specific method, class or package rule, or the default value
+     */
+    T lookup(final String className, final String methodIdentifier)  {
+        T result = defaultValue;
+        if (className == null) return result;
+
+        Node<T> node = root;
+        final int length = className.length();
+        for (int i = 0; i < length; i++)  {
+            node = node.child(className.charAt(i));
+            if (node == null) return result;
+
+            if (node.value != null && (i + 1 == length || className.charAt(i + 1) == '.')) result = node.value;
+        }
+
+        if (methodIdentifier == null) return result;
+
+        node = node.child(METHOD_SEPARATOR);
+        if (node == null) return result;
+
+        // the method name of a type descriptor is enclosed by the return type and the parameter list
+        int end = methodIdentifier.indexOf('(');
+        if (end < 0) end = methodIdentifier.length();
+        final int start = methodIdentifier.lastIndexOf(' ', end) + 1;
+
+        for (int i = start; i < end; i++)  {
+            node = node.child(methodIdentifier.charAt(i));
+            if (node == null) return result;
+        }
+
+        return node.value != null ? node.value : result;
+    }
+
+    private static final class Node<T> {
+
+        private char[] keys = new char[0];
+        private Node<T>[] children = newArray(0);
+
+        private T value;
+
+        Node<T> child(final char key)  {
+            final int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node<T> addChild(final char key)  {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) return children[index];
+
+            index = -index - 1;
+
+            final char[] newKeys = new char[keys.length + 1];
+            final Node<T>[] newChildren = newArray(children.length + 1);
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+
+            newKeys[index] = key;
+            newChildren[index] = new Node<T>();
+
+            keys = newKeys;
+            children = newChildren;
+
+            return newChildren[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newArray(final int length)  {
+            return new Node[length];
+        }
+    }
+}
@@ -24,13 +24,37 @@ package org.gcontracts.generation;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Logger;
 
 /**
  * <p>Handles {@code -ea} and {@code -da} runtime input arguments for enabling and
  * disabling contract elements.</p>
  *
+ * <p>Sample rates of classes compiled with {@link GenerationOptions#SAMPLING} are configured for the same class and
+ * package names with system properties, e.g. {@code -Dorg.gcontracts.sampleRate.org.example.billing=100} evaluates
+ * one in hundred contract checks of all classes in the package <tt>org.example.billing</tt>, and
+ * {@code -Dorg.gcontracts.sampleRate=10} sets the default sample rate. A sample rate of <tt>0</tt> skips all
+ * contract checks.</p>
+ *
+ * <p>The number of clean contract checks before a contract site is sampled is configured the same way with
+ * {@code -Dorg.gcontracts.warmUp=1000000}, see {@link ContractSampler}.</p>
+ *
+ * <p>Rules of a configuration file, see {@link ConfigurationFile}, take precedence over {@code -ea} and {@code -da}
+ * arguments, rules set at runtime by {@link #setAssertionsEnabled(String, Boolean)} take precedence over both. All
+ * rules are compiled into a {@link ConfigurationTrie} whenever they change, lookups neither lock nor allocate. The
+ * configuration file is read on the first lookup.</p>
+ *
+ * <p>Method rules and rules for a kind of assertion are only applied to classes compiled with
+ * {@link GenerationOptions#SAMPLING}. If such a rule matches another class, a warning is logged once for the class.</p>
+ *
  * @author ast
  */
 public final class Configurator {
@@ -42,42 +66,103 @@ public final class Configurator {
     public static final String ENABLE_PACKAGE_ASSERTIONS = ENABLED_ASSERTIONS + PACKAGE_PREFIX;
     public static final String DISABLE_PACKAGE_ASSERTIONS = DISABLED_ASSERTIONS + PACKAGE_PREFIX;
     public static final String PACKAGE_POSTFIX = "...";
-    
+
+    public static final String SAMPLE_RATE = "org.gcontracts.sampleRate";
+    public static final String WARM_UP = "org.gcontracts.warmUp";
+
+    public static final String ASSERTION_TYPE_SEPARATOR = ":";
+    public static final String PRECONDITION = "precondition";
+    public static final String POSTCONDITION = "postcondition";
+    public static final String INVARIANT = "invariant";
+
+    private static final String[] ASSERTION_TYPES = { PRECONDITION, POSTCONDITION, INVARIANT };
+
+    private static final Logger LOGGER = Logger.getLogger(Configurator.class.getName());
+
+    // classes applying method rules and rules for a kind of assertion per contract site
+    private static final Set<String> sampledClasses = Collections.synchronizedSet(new HashSet<String>());
+    private static final Set<String> warnedClasses = Collections.synchronizedSet(new HashSet<String>());
+
+    private static Map<String, Boolean> argumentConfiguration;
+    private static Map<String, Boolean> fileConfiguration;
     private static Map<String, Boolean> assertionConfiguration;
+    private static Map<String, Integer> sampleRateConfiguration;
+    private static Map<String, Integer> warmUpConfiguration;
+
+    private static volatile AssertionRules assertionRules;
+    private static volatile ConfigurationTrie<Integer> sampleRates;
+    private static volatile ConfigurationTrie<Integer> warmUps;
 
     static {
         initAssertionConfiguration();
+        sampleRateConfiguration = initIntegerConfiguration(SAMPLE_RATE, 1);
+        warmUpConfiguration = initIntegerConfiguration(WARM_UP, 0);
+
+        sampleRates = new ConfigurationTrie<Integer>(sampleRateConfiguration);
+        warmUps = new ConfigurationTrie<Integer>(warmUpConfiguration);
     }
 
     private static void initAssertionConfiguration()  {
 
+        argumentConfiguration = new HashMap<String, Boolean>();
+        fileConfiguration = new HashMap<String, Boolean>();
         assertionConfiguration = new HashMap<String, Boolean>();
         // per default assertion are enabled (Groovy like)
-        assertionConfiguration.put(null, Boolean.TRUE);
+        argumentConfiguration.put(null, Boolean.TRUE);
 
         RuntimeMXBean runtimemxBean = ManagementFactory.getRuntimeMXBean();
         for (String arg : runtimemxBean.getInputArguments())  {
             if (DISABLED_ASSERTIONS.equals(arg))  {
-                assertionConfiguration.put(null, Boolean.FALSE);
+                argumentConfiguration.put(null, Boolean.FALSE);
 
             } else if (arg.startsWith(ENABLE_PACKAGE_ASSERTIONS) && arg.endsWith(PACKAGE_POSTFIX))  {
                 final String packageName = arg.substring(ENABLE_PACKAGE_ASSERTIONS.length(), arg.length() - PACKAGE_POSTFIX.length());
-                assertionConfiguration.put(packageName, Boolean.TRUE);
+                argumentConfiguration.put(packageName, Boolean.TRUE);
 
             } else if (arg.startsWith(DISABLE_PACKAGE_ASSERTIONS) && arg.endsWith(PACKAGE_POSTFIX))  {
                 final String packageName = arg.substring(DISABLE_PACKAGE_ASSERTIONS.length(), arg.length() - PACKAGE_POSTFIX.length());
 
-                assertionConfiguration.put(packageName, Boolean.FALSE);
+                argumentConfiguration.put(packageName, Boolean.FALSE);
             } else if (arg.startsWith(ENABLE_PACKAGE_ASSERTIONS))  {
                 final String className = arg.substring(ENABLE_PACKAGE_ASSERTIONS.length(), arg.length());
-                assertionConfiguration.put(className, Boolean.TRUE);
+                argumentConfiguration.put(className, Boolean.TRUE);
 
             } else if (arg.startsWith(DISABLE_PACKAGE_ASSERTIONS))  {
                 final String className = arg.substring(DISABLE_PACKAGE_ASSERTIONS.length(), arg.length());
 
-                assertionConfiguration.put(className, Boolean.FALSE);
+                argumentConfiguration.put(className, Boolean.FALSE);
+            }
+        }
+
+        compileAssertionRules();
+    }
+
+    private static Map<String, Integer> initIntegerConfiguration(final String prefix, final int defaultValue)  {
+
+        final Map<String, Integer> configuration = new HashMap<String, Integer>();
+        configuration.put(null, defaultValue);
+
+        final Properties properties;
+        try {
+            properties = System.getProperties();
+        } catch (SecurityException e)  {
+            return configuration;
+        }
+
+        for (String name : properties.stringPropertyNames())  {
+            if (!name.equals(prefix) && !name.startsWith(prefix + ".")) continue;
+
+            final int value;
+            try {
+                value = Integer.parseInt(properties.getProperty(name).trim());
+            } catch (NumberFormatException e)  {
+                continue;
             }
+
+            configuration.put(name.equals(prefix) ? null : name.substring(prefix.length() + 1), Math.max(value, 0));
         }
+
+        return configuration;
     }
 
     /**
@@ -87,26 +172,245 @@ public final class Configurator {
      * @return whether assertion checking is enabled or not
      */
     public static boolean checkAssertionsEnabled(final String className)  {
-        return internalMethod(className);
+        if (className == null || className.length() == 0) return false;
+
+        ConfigurationFile.watchConfiguredFile();
+
+        final AssertionRules rules = assertionRules;
+        if (rules.hasSiteRules(className)) warnSiteRulesIgnored(className);
+
+        return rules.isEnabled(className);
     }
 
-    private static boolean internalMethod(String className) {
+    /**
+     * This static method is used within generated code of classes compiled with {@link GenerationOptions#SAMPLING},
+     * which apply method rules and rules for a kind of assertion per contract site.
+     *
+     * @param className the class name to look up in the assertion configuration
+     * @return whether assertion checking is enabled or not
+     */
+    public static boolean checkSampledAssertionsEnabled(final String className)  {
         if (className == null || className.length() == 0) return false;
 
-        if (assertionConfiguration.containsKey(className)) return assertionConfiguration.get(className);
-        if (className.lastIndexOf('.') < 0) return assertionConfiguration.get(null);
+        sampledClasses.add(className);
+        return checkAssertionsEnabled(className);
+    }
 
-        String packageName = className.substring(0, className.lastIndexOf('.'));
+    private static void warnSiteRulesIgnored(final String className)  {
+        if (sampledClasses.contains(className) || !warnedClasses.add(className)) return;
 
-        while (!assertionConfiguration.containsKey(packageName))  {
-            int dotIndex = packageName.lastIndexOf('.');
-            if (dotIndex < 0) return assertionConfiguration.get(null);
+        LOGGER.warning("Method rules or rules for a kind of assertion match " + className + " but are ignored, the class has not been compiled with " + GenerationOptions.SAMPLING);
+    }
 
-            packageName = packageName.substring(0, dotIndex);
+    /**
+     * Checks whether a single contract site is enabled. In addition to class and package rules, method rules
+     * and rules for the given kind of assertion apply.
+     *
+     * @param className the name of the class declaring the contract
+     * @param methodIdentifier the method name or the type descriptor of the method the contract belongs to
+     * @param assertionType the kind of assertion, one of {@link #PRECONDITION}, {@link #POSTCONDITION} or {@link #INVARIANT}
+     * @return whether the contract site is enabled
+     */
+    public static boolean checkAssertionsEnabled(final String className, final String methodIdentifier, final String assertionType)  {
+        if (className == null || className.length() == 0) return false;
+
+        ConfigurationFile.watchConfiguredFile();
+        return assertionRules.forAssertionType(assertionType).lookup(className, methodIdentifier);
+    }
+
+    /**
+     * Returns the sample rate of the given class, one in <tt>sampleRate</tt> contract checks is evaluated.
+     *
+     * @param className the class name to look up in the sample rate configuration
+     * @return the sample rate, <tt>1</tt> if every contract check is evaluated, <tt>0</tt> if none is evaluated
+     */
+    public static int getSampleRate(final String className)  {
+        if (className == null || className.length() == 0) return 1;
+
+        return sampleRates.lookup(className);
+    }
+
+    /**
+     * Overrides the sample rate for the given class or package at runtime.
+     *
+     * @param name the class or package name, <tt>null</tt> for the default sample rate
+     * @param sampleRate one in <tt>sampleRate</tt> contract checks is evaluated, <tt>null</tt> removes the configuration for <tt>name</tt>
+     */
+    public static void setSampleRate(final String name, final Integer sampleRate)  {
+        synchronized (sampleRateConfiguration)  {
+            setIntegerConfiguration(sampleRateConfiguration, name, sampleRate, 1);
+            sampleRates = new ConfigurationTrie<Integer>(sampleRateConfiguration);
         }
+    }
 
-        if (assertionConfiguration.containsKey(packageName)) return assertionConfiguration.get(packageName);
+    /**
+     * Returns the number of clean contract checks of a contract site of the given class before the site is sampled.
+     *
+     * @param className the class name to look up in the warm-up configuration
+     * @return the number of clean checks, <tt>0</tt> if contract sites are sampled right from the start
+     */
+    public static int getWarmUp(final String className)  {
+        if (className == null || className.length() == 0) return 0;
 
-        return assertionConfiguration.get(null);
+        return warmUps.lookup(className);
+    }
+
+    /**
+     * Overrides the warm-up configuration for the given class or package at runtime.
+     *
+     * @param name the class or package name, <tt>null</tt> for the default warm-up
+     * @param warmUp the number of clean checks before contract sites are sampled, <tt>null</tt> removes the configuration for <tt>name</tt>
+     */
+    public static void setWarmUp(final String name, final Integer warmUp)  {
+        synchronized (warmUpConfiguration)  {
+            setIntegerConfiguration(warmUpConfiguration, name, warmUp, 0);
+            warmUps = new ConfigurationTrie<Integer>(warmUpConfiguration);
+        }
+    }
+
+    private static void setIntegerConfiguration(final Map<String, Integer> configuration, final String name, final Integer value, final int defaultValue)  {
+        if (value != null)  {
+            configuration.put(name, Math.max(value, 0));
+        } else if (name != null)  {
+            configuration.remove(name);
+        } else {
+            configuration.put(null, defaultValue);
+        }
+    }
+
+    /**
+     * Overrides the assertion configuration for the given class or package at runtime. Classes which have already
+     * been initialized are only affected if they have been compiled with {@link GenerationOptions#RUNTIME_ENABLEMENT},
+     * see {@link ContractEnablement}.
+     *
+     * @param name the class or package name
+     * @param enabled whether assertions are enabled, <tt>null</tt> removes the configuration for <tt>name</tt>
+     */
+    public static void setAssertionsEnabled(final String name, final Boolean enabled)  {
+        if (name == null || name.length() == 0) return;
+
+        synchronized (assertionConfiguration)  {
+            if (enabled == null)  {
+                assertionConfiguration.remove(name);
+            } else {
+                assertionConfiguration.put(name, enabled);
+            }
+
+            compileAssertionRules();
+        }
+    }
+
+    /**
+     * Replaces the rules of the configuration file. Keys are class, package or method names, optionally prefixed
+     * by the kind of assertion, e.g. <tt>precondition:org.example.Invoice#pay</tt>, the <tt>null</tt> key holds
+     * the default.
+     *
+     * @param rules the rules read from the configuration file
+     */
+    static void setFileConfiguration(final Map<String, Boolean> rules)  {
+        synchronized (assertionConfiguration)  {
+            fileConfiguration = new HashMap<String, Boolean>(rules);
+            compileAssertionRules();
+        }
+    }
+
+    private static void compileAssertionRules()  {
+        final Map<String, Boolean> rules = new HashMap<String, Boolean>(argumentConfiguration);
+        rules.putAll(fileConfiguration);
+        rules.putAll(assertionConfiguration);
+
+        assertionRules = new AssertionRules(rules);
+    }
+
+    /**
+     * The compiled assertion rules, one trie for class and package rules and one trie per kind of assertion.
+     */
+    private static final class AssertionRules {
+
+        private final ConfigurationTrie<Boolean> all;
+        private final ConfigurationTrie<Boolean> preconditions;
+        private final ConfigurationTrie<Boolean> postconditions;
+        private final ConfigurationTrie<Boolean> invariants;
+        private final List<String> siteRuleNames;
+
+        AssertionRules(final Map<String, Boolean> rules)  {
+            this.all = new ConfigurationTrie<Boolean>(rulesOf(rules, null));
+            this.preconditions = new ConfigurationTrie<Boolean>(rulesOf(rules, PRECONDITION));
+            this.postconditions = new ConfigurationTrie<Boolean>(rulesOf(rules, POSTCONDITION));
+            this.invariants = new ConfigurationTrie<Boolean>(rulesOf(rules, INVARIANT));
+            this.siteRuleNames = siteRuleNamesOf(rules);
+        }
+
+        // whether a method rule or a rule for a kind of assertion matches the given class
+        boolean hasSiteRules(final String className)  {
+            for (String name : siteRuleNames)  {
+                if (name.length() == 0 || className.equals(name) || className.startsWith(name + ".")) return true;
+            }
+
+            return false;
+        }
+
+        // a class is enabled if one of its kinds of assertions is enabled, method rules are applied per contract site
+        boolean isEnabled(final String className)  {
+            return preconditions.lookup(className) || postconditions.lookup(className) || invariants.lookup(className);
+        }
+
+        ConfigurationTrie<Boolean> forAssertionType(final String assertionType)  {
+            if (PRECONDITION.equals(assertionType)) return preconditions;
+            if (POSTCONDITION.equals(assertionType)) return postconditions;
+            if (INVARIANT.equals(assertionType)) return invariants;
+
+            return all;
+        }
+
+        // rules without a kind of assertion apply to all kinds, rules for the given kind override them
+        private static Map<String, Boolean> rulesOf(final Map<String, Boolean> rules, final String assertionType)  {
+            final Map<String, Boolean> result = new HashMap<String, Boolean>();
+            result.put(null, Boolean.TRUE);
+
+            for (Map.Entry<String, Boolean> rule : rules.entrySet())  {
+                if (rule.getKey() == null || assertionTypeOf(rule.getKey()) == null) result.put(rule.getKey(), rule.getValue());
+            }
+
+            if (assertionType == null) return result;
+
+            final String prefix = assertionType + ASSERTION_TYPE_SEPARATOR;
+            for (Map.Entry<String, Boolean> rule : rules.entrySet())  {
+                if (rule.getKey() == null || !rule.getKey().startsWith(prefix)) continue;
+
+                final String name = rule.getKey().substring(prefix.length());
+                result.put(name.length() == 0 ? null : name, rule.getValue());
+            }
+
+            return result;
+        }
+
+        // the class or package names of method rules and rules for a kind of assertion, empty for the default
+        private static List<String> siteRuleNamesOf(final Map<String, Boolean> rules)  {
+            final List<String> result = new ArrayList<String>();
+            for (String key : rules.keySet())  {
+                if (key == null) continue;
+
+                final String assertionType = assertionTypeOf(key);
+                final String name = assertionType != null ? key.substring(assertionType.length() + ASSERTION_TYPE_SEPARATOR.length()) : key;
+                final int methodSeparator = name.indexOf(ConfigurationTrie.METHOD_SEPARATOR);
+
+                if (methodSeparator >= 0)  {
+                    result.add(name.substring(0, methodSeparator));
+                } else if (assertionType != null)  {
+                    result.add(name);
+                }
+            }
+
+            return result;
+        }
+
+        private static String assertionTypeOf(final String key)  {
+            for (String assertionType : ASSERTION_TYPES)  {
+                if (key.startsWith(assertionType + ASSERTION_TYPE_SEPARATOR)) return assertionType;
+            }
+
+            return null;
+        }
     }
 }
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>Switches contracts of classes and packages at runtime. Only classes compiled with
+ * {@link GenerationOptions#RUNTIME_ENABLEMENT} are affected, their <tt>$GCONTRACTS_ENABLED</tt> field is
+ * not final and is registered here when the class is initialized:</p>
+ *
+ * <pre>
+ *     ContractEnablement.enable('org.example.billing')
+ *     ContractEnablement.disable('org.example.billing.Invoice')
+ * </pre>
+ *
+ * <p>The same operations are available as JMX operations of <tt>org.gcontracts:type=ContractEnablement</tt>, rules
+ * can also be kept in a {@link ConfigurationFile} which is reloaded when it changes.</p>
+ *
+ * <p>Generated code reads a plain static field, which costs the same as the <tt>static final</tt> field used by
+ * default, except that the JIT compiler cannot fold it into a constant. As the field is not volatile, the Java memory
+ * model does not guarantee when other threads see a change, a thread may keep using the previous setting for a
+ * while.</p>
+ *
+ * <p>Fields are switched without holding the lock that guards the registered classes, as switching the field of a
+ * class which is being initialized by another thread waits until its static initializer, and with it
+ * {@link #register(Class)}, has completed.</p>
+ *
+ * @see Configurator
+ *
+ * @author ast
+ */
+public final class ContractEnablement {
+
+    public static final String OBJECT_NAME = "org.gcontracts:type=ContractEnablement";
+
+    private static final List<WeakReference<Class<?>>> contractedClasses = new ArrayList<WeakReference<Class<?>>>();
+    // serializes switching of fields, never held by register()
+    private static final Object switchLock = new Object();
+    private static boolean mbeanRegistered = false;
+
+    private ContractEnablement() {}
+
+    /**
+     * This static method is used within generated code to register a class and to initialize its
+     * <tt>$GCONTRACTS_ENABLED</tt> field.
+     *
+     * @param type the contracted class
+     * @return whether assertion checking is enabled or not
+     */
+    public static boolean register(final Class<?> type)  {
+        return register(type, false);
+    }
+
+    /**
+     * This static method is used within generated code to register a class and to initialize its
+     * <tt>$GCONTRACTS_ENABLED</tt> field.
+     *
+     * @param type the contracted class
+     * @param sampled whether the class has been compiled with {@link GenerationOptions#SAMPLING}
+     * @return whether assertion checking is enabled or not
+     */
+    public static boolean register(final Class<?> type, final boolean sampled)  {
+        synchronized (contractedClasses)  {
+            contractedClasses.add(new WeakReference<Class<?>>(type));
+            registerMBean();
+        }
+
+        // read after registration, a concurrent switch either sees the class or has already changed the configuration
+        return sampled ? Configurator.checkSampledAssertionsEnabled(type.getName()) : Configurator.checkAssertionsEnabled(type.getName());
+    }
+
+    /**
+     * Enables contracts for the given class or package.
+     *
+     * @param name the class or package name
+     */
+    public static void enable(final String name)  {
+        update(name, Boolean.TRUE);
+    }
+
+    /**
+     * Disables contracts for the given class or package.
+     *
+     * @param name the class or package name
+     */
+    public static void disable(final String name)  {
+        update(name, Boolean.FALSE);
+    }
+
+    /**
+     * Removes the runtime configuration of the given class or package, the configuration of the enclosing package
+     * applies again.
+     *
+     * @param name the class or package name
+     */
+    public static void reset(final String name)  {
+        update(name, null);
+    }
+
+    /**
+     * @param className the class name
+     * @return whether contracts are enabled for the given class
+     */
+    public static boolean isEnabled(final String className)  {
+        return Configurator.checkAssertionsEnabled(className);
+    }
+
+    /**
+     * @return the names of all initialized classes whose contracts can be switched at runtime
+     */
+    public static String[] getContractedClasses()  {
+        final List<String> result = new ArrayList<String>();
+        for (Class<?> type : contractedClassesSnapshot())  {
+            result.add(type.getName());
+        }
+
+        return result.toArray(new String[result.size()]);
+    }
+
+    /**
+     * Switches the <tt>$GCONTRACTS_ENABLED</tt> field of all initialized classes according to the current
+     * configuration, e.g. after the {@link ConfigurationFile} has been reloaded.
+     */
+    static void refresh()  {
+        synchronized (switchLock)  {
+            for (Class<?> type : contractedClassesSnapshot())  {
+                setEnabledField(type, Configurator.checkAssertionsEnabled(type.getName()));
+            }
+        }
+    }
+
+    private static void update(final String name, final Boolean enabled)  {
+        if (name == null || name.length() == 0) return;
+
+        synchronized (switchLock)  {
+            Configurator.setAssertionsEnabled(name, enabled);
+
+            for (Class<?> type : contractedClassesSnapshot())  {
+                if (type.getName().equals(name) || type.getName().startsWith(name + "."))  {
+                    setEnabledField(type, Configurator.checkAssertionsEnabled(type.getName()));
+                }
+            }
+        }
+    }
+
+    private static List<Class<?>> contractedClassesSnapshot()  {
+        synchronized (contractedClasses)  {
+            final List<Class<?>> result = new ArrayList<Class<?>>(contractedClasses.size());
+            for (Iterator<WeakReference<Class<?>>> iterator = contractedClasses.iterator(); iterator.hasNext();)  {
+                final Class<?> type = iterator.next().get();
+                if (type == null)  {
+                    iterator.remove();
+                } else {
+                    result.add(type);
+                }
+            }
+
+            return result;
+        }
+    }
+
+    private static void setEnabledField(final Class<?> type, final boolean enabled)  {
+        try {
+            final Field field = type.getDeclaredField("$GCONTRACTS_ENABLED");
+            field.setAccessible(true);
+            field.setBoolean(null, enabled);
+        } catch (NoSuchFieldException e)  {
+            // class has not been compiled with runtime enablement
+        } catch (IllegalAccessException e)  {
+            // field is final
+        } catch (SecurityException e)  {
+            // not allowed to switch the field
+        }
+    }
+
+    private static void registerMBean()  {
+        if (mbeanRegistered) return;
+        mbeanRegistered = true;
+
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(objectName))  {
+                server.registerMBean(new StandardMBean(new Management(), ContractEnablementMBean.class), objectName);
+            }
+        } catch (Exception e)  {
+            // JMX is not available, the static API can still be used
+        }
+    }
+
+    private static final class Management implements ContractEnablementMBean {
+
+        public void enable(String name) { ContractEnablement.enable(name); }
+        public void disable(String name) { ContractEnablement.disable(name); }
+        public void reset(String name) { ContractEnablement.reset(name); }
+        public boolean isEnabled(String className) { return ContractEnablement.isEnabled(className); }
+        public String[] getContractedClasses() { return ContractEnablement.getContractedClasses(); }
+    }
+}
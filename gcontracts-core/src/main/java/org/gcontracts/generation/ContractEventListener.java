@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+import org.gcontracts.AssertionViolation;
+
+/**
+ * <p>Receives contract evaluation and violation events from {@link ContractEvents}. Implementations are registered
+ * with {@link ContractEvents#addListener(ContractEventListener)} or found by {@link java.util.ServiceLoader} in
+ * <tt>META-INF/services/org.gcontracts.generation.ContractEventListener</tt>. The <tt>gcontracts-jfr</tt> module
+ * provides a listener emitting Java Flight Recorder events on JVMs which support them.</p>
+ *
+ * <p>Listeners are called on the thread evaluating the contract and must be thread-safe and fast.</p>
+ *
+ * @author ast
+ */
+public interface ContractEventListener {
+
+    /**
+     * Called after a contract check of a class compiled with {@link GenerationOptions#METRICS} has been evaluated.
+     *
+     * @param site the evaluated contract site
+     * @param startNanos the {@link System#nanoTime()} the evaluation started at
+     * @param durationNanos the duration of the evaluation in nanoseconds
+     * @param passed whether the contract check passed
+     */
+    void contractEvaluated(ContractExecutionTracker.ContractExecution site, long startNanos, long durationNanos, boolean passed);
+
+    /**
+     * Called when a contract violation is created, whether or not it is thrown afterwards.
+     *
+     * @param violation the violation
+     */
+    void contractViolated(AssertionViolation violation);
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+import org.gcontracts.AssertionViolation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * <p>Publishes contract evaluations and violations to {@link ContractEventListener}s, e.g. to make contract checks
+ * visible in profiler recordings where they otherwise only show up as <tt>doCall</tt> frames of contract closures.</p>
+ *
+ * <p>Evaluation events carry the contract site, its kind of assertion, the duration and the outcome of the check.
+ * They are only reported by the timed contract checks of classes compiled with {@link GenerationOptions#METRICS},
+ * classes compiled without it never report evaluations. Violation events are reported whenever an
+ * {@link AssertionViolation} is created.</p>
+ *
+ * <p>There are no listeners by default, in this case reporting an event costs a single volatile read. The costs of
+ * the metrics themselves remain, i.e. the clock is read twice per check. Java Flight Recorder events are
+ * provided by the listener of the <tt>gcontracts-jfr</tt> module, which is found by {@link ServiceLoader}.</p>
+ *
+ * @author ast
+ */
+public final class ContractEvents {
+
+    private static volatile ContractEventListener[] listeners = new ContractEventListener[0];
+
+    private static final SiteTable<ContractExecutionTracker.ContractExecution> sites = new SiteTable<ContractExecutionTracker.ContractExecution>() {
+        @Override
+        protected ContractExecutionTracker.ContractExecution create(int siteId) {
+            return ContractExecutionTracker.site(siteId);
+        }
+    };
+
+    static {
+        loadListeners();
+    }
+
+    private ContractEvents() {}
+
+    private static void loadListeners()  {
+        try {
+            final Iterator<ContractEventListener> iterator = ServiceLoader.load(ContractEventListener.class, ContractEvents.class.getClassLoader()).iterator();
+            while (iterator.hasNext())  {
+                try {
+                    addListener(iterator.next());
+                } catch (ServiceConfigurationError e)  {
+                    // the listener could not be instantiated, e.g. as the JVM does not support it
+                }
+            }
+        } catch (ServiceConfigurationError e)  {
+            // no listeners are registered
+        }
+    }
+
+    /**
+     * @param listener the listener to register
+     */
+    public static synchronized void addListener(final ContractEventListener listener)  {
+        if (listener == null) throw new IllegalArgumentException("listener must not be null");
+
+        final List<ContractEventListener> result = new ArrayList<ContractEventListener>(Arrays.asList(listeners));
+        result.add(listener);
+
+        listeners = result.toArray(new ContractEventListener[result.size()]);
+    }
+
+    /**
+     * @param listener the listener to remove
+     */
+    public static synchronized void removeListener(final ContractEventListener listener)  {
+        final List<ContractEventListener> result = new ArrayList<ContractEventListener>(Arrays.asList(listeners));
+        result.remove(listener);
+
+        listeners = result.toArray(new ContractEventListener[result.size()]);
+    }
+
+    /**
+     * @return whether at least one listener is registered
+     */
+    public static boolean hasListeners()  {
+        return listeners.length > 0;
+    }
+
+    /**
+     * Reports the evaluation of a contract check, called by {@link ContractMetrics#record(int, long, boolean)}.
+     *
+     * @param siteId the contract site id
+     * @param startNanos the start time of the evaluation
+     * @param durationNanos the duration of the evaluation in nanoseconds
+     * @param passed whether the contract check passed
+     */
+    static void evaluated(final int siteId, final long startNanos, final long durationNanos, final boolean passed)  {
+        final ContractEventListener[] current = listeners;
+        if (current.length == 0) return;
+
+        final ContractExecutionTracker.ContractExecution site = sites.get(siteId);
+        for (ContractEventListener listener : current)  {
+            listener.contractEvaluated(site, startNanos, durationNanos, passed);
+        }
+    }
+
+    /**
+     * This static method is called by {@link AssertionViolation} to report a violation when it is created.
+     *
+     * @param violation the violation
+     */
+    public static void violated(final AssertionViolation violation)  {
+        final ContractEventListener[] current = listeners;
+        if (current.length == 0) return;
+
+        for (ContractEventListener listener : current)  {
+            listener.contractViolated(violation);
+        }
+    }
+}
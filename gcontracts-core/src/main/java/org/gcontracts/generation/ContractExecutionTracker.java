@@ -22,10 +22,18 @@
  */
 package org.gcontracts.generation;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Keeps track of contract executions to avoid cyclic contract checks.
+ * <p>Keeps track of contract executions to avoid cyclic contract checks.</p>
+ *
+ * <p>Every contract site (class, method, assertion type) is registered once when its declaring
+ * class is initialized and is assigned a compact integer id. Generated code only passes this id to
+ * {@link #track(int)} and {@link #clear(int)}, which operate on a per-thread bit set and therefore
+ * neither allocate nor hash strings.</p>
  *
  * @author ast
  */
@@ -44,6 +52,11 @@ public class ContractExecutionTracker {
             this.isStatic = isStatic;
         }
 
+        public String getClassName() { return className; }
+        public String getMethodIdentifier() { return methodIdentifier; }
+        public String getAssertionType() { return assertionType; }
+        public boolean isStatic() { return isStatic; }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -69,34 +82,108 @@ public class ContractExecutionTracker {
             result = 31 * result + (isStatic ? 1 : 0);
             return result;
         }
+
+        @Override
+        public String toString() {
+            return className + "." + methodIdentifier + " [" + assertionType + "]";
+        }
     }
 
+    /**
+     * Per-thread set of contract site ids which are currently being evaluated.
+     */
+    static final class ContractExecutions {
 
-    static class ContractExecutionThreadLocal extends ThreadLocal<HashSet<ContractExecution>> {
+        private long[] words = new long[1];
 
-        @Override
-        protected HashSet<ContractExecution> initialValue() {
-            return new HashSet<ContractExecution>();
+        boolean add(int siteId)  {
+            final int index = siteId >>> 6;
+            if (index >= words.length) grow(index);
+
+            final long mask = 1L << siteId;
+            if ((words[index] & mask) != 0) return false;
+
+            words[index] |= mask;
+            return true;
+        }
+
+        void remove(int siteId)  {
+            final int index = siteId >>> 6;
+            if (index < words.length) words[index] &= ~(1L << siteId);
+        }
+
+        private void grow(int index)  {
+            final long[] newWords = new long[Math.max(words.length * 2, index + 1)];
+            System.arraycopy(words, 0, newWords, 0, words.length);
+            words = newWords;
         }
     }
 
-    private static ThreadLocal<HashSet<ContractExecution>> executions = new ContractExecutionThreadLocal();
+    static class ContractExecutionThreadLocal extends ThreadLocal<ContractExecutions> {
 
-    public static boolean track(String className, String methodIdentifier, String assertionType, boolean isStatic)  {
-        final ContractExecution ce = new ContractExecution(className, methodIdentifier, assertionType, isStatic);
-        final HashSet<ContractExecution> contractExecutions = executions.get();
+        @Override
+        protected ContractExecutions initialValue() {
+            return new ContractExecutions();
+        }
+    }
 
-        if (!contractExecutions.contains(ce))  {
-            contractExecutions.add(ce);
-            return true;
+    private static final ThreadLocal<ContractExecutions> executions = new ContractExecutionThreadLocal();
+
+    private static final Map<ContractExecution, Integer> siteIds = new HashMap<ContractExecution, Integer>();
+    private static final List<ContractExecution> sites = new ArrayList<ContractExecution>();
+
+    /**
+     * Registers the given contract site and returns its id. This method is called once per contract site
+     * from the static initializer of the contracted class, registering the same site twice (e.g. after the
+     * class has been reloaded) returns the same id.
+     *
+     * @param className the name of the class declaring the contract
+     * @param methodIdentifier the type descriptor of the method the contract belongs to
+     * @param assertionType the kind of assertion, e.g. <tt>precondition</tt>
+     * @param isStatic whether the method is a static method
+     * @return the compact id of the given contract site
+     */
+    public static synchronized int register(String className, String methodIdentifier, String assertionType, boolean isStatic)  {
+        final ContractExecution site = new ContractExecution(className, methodIdentifier, assertionType, isStatic);
+
+        Integer siteId = siteIds.get(site);
+        if (siteId == null)  {
+            siteId = sites.size();
+            sites.add(site);
+            siteIds.put(site, siteId);
         }
 
-        return false;
+        return siteId;
     }
 
-    public static void clear(String className, String methodIdentifier, String assertionType, boolean isStatic) {
-        final HashSet<ContractExecution> contractExecutions = executions.get();
+    /**
+     * @param siteId the id of a previously registered contract site
+     * @return the {@link ContractExecution} registered for the given <tt>siteId</tt>
+     */
+    public static synchronized ContractExecution site(int siteId)  {
+        return sites.get(siteId);
+    }
+
+    /**
+     * @return the number of contract sites registered so far
+     */
+    public static synchronized int siteCount()  {
+        return sites.size();
+    }
 
-        contractExecutions.remove(new ContractExecution(className, methodIdentifier, assertionType, isStatic));
+    public static boolean track(int siteId)  {
+        return executions.get().add(siteId);
+    }
+
+    public static void clear(int siteId)  {
+        executions.get().remove(siteId);
+    }
+
+    public static boolean track(String className, String methodIdentifier, String assertionType, boolean isStatic)  {
+        return track(register(className, methodIdentifier, assertionType, isStatic));
+    }
+
+    public static void clear(String className, String methodIdentifier, String assertionType, boolean isStatic) {
+        clear(register(className, methodIdentifier, assertionType, isStatic));
     }
 }
@@ -0,0 +1,287 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Diagnostic mode recording a {@link LatencyHistogram} per contract site of classes compiled with
+ * {@link GenerationOptions#METRICS}, to find contracts which are expensive in the tail rather than on average:</p>
+ *
+ * <pre>
+ *     ContractHistograms.enable(60000)
+ *     ...
+ *     println ContractHistograms.dump(10)
+ * </pre>
+ *
+ * <p>Histograms are enabled at startup with {@code -Dorg.gcontracts.histograms=true}, the interval after which all
+ * histograms are snapshot and reset is set in milliseconds by {@code -Dorg.gcontracts.histograms.interval}. With an
+ * interval of <tt>0</tt> histograms are only reset by {@link #snapshotAndReset()}.</p>
+ *
+ * <p>Every histogram has a fixed size, recording does not allocate and does not lock. While histograms are disabled,
+ * recording costs a single volatile read. Evaluations racing with a reset might be lost.</p>
+ *
+ * @see ContractMetrics
+ *
+ * @author ast
+ */
+public final class ContractHistograms {
+
+    public static final String HISTOGRAMS = "org.gcontracts.histograms";
+    public static final String INTERVAL = HISTOGRAMS + ".interval";
+
+    public static final long DEFAULT_INTERVAL = 60000;
+
+    // histograms indexed by contract site id, null while disabled
+    private static volatile SiteTable<SiteHistogram> sites;
+    private static volatile List<LatencyHistogram> lastInterval = Collections.emptyList();
+    private static Resetter resetter;
+
+    static {
+        initFromSystemProperties();
+    }
+
+    private ContractHistograms() {}
+
+    private static void initFromSystemProperties()  {
+        try {
+            if (Boolean.getBoolean(HISTOGRAMS)) enable(Long.getLong(INTERVAL, DEFAULT_INTERVAL));
+        } catch (SecurityException e)  {
+            // histograms stay disabled
+        }
+    }
+
+    /**
+     * @return whether evaluation times are recorded in histograms
+     */
+    public static boolean isEnabled()  {
+        return sites != null;
+    }
+
+    /**
+     * Records evaluation times in histograms which are snapshot and reset every {@link #DEFAULT_INTERVAL}
+     * milliseconds.
+     */
+    public static void enable()  {
+        enable(DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Records evaluation times in histograms. If histograms are already enabled, all histograms are reset.
+     *
+     * @param intervalMillis the interval after which all histograms are snapshot and reset, <tt>0</tt> to reset
+     *                       histograms by {@link #snapshotAndReset()} only
+     */
+    public static synchronized void enable(final long intervalMillis)  {
+        if (intervalMillis < 0) throw new IllegalArgumentException("interval must not be negative");
+
+        disable();
+
+        lastInterval = Collections.emptyList();
+        sites = new SiteTable<SiteHistogram>() {
+            @Override
+            protected SiteHistogram create(int siteId) {
+                return new SiteHistogram();
+            }
+        };
+
+        if (intervalMillis > 0)  {
+            resetter = new Resetter(intervalMillis);
+            resetter.start();
+        }
+    }
+
+    /**
+     * Stops recording evaluation times and discards all histograms.
+     */
+    public static synchronized void disable()  {
+        if (resetter != null)  {
+            resetter.shutdown();
+            resetter = null;
+        }
+
+        sites = null;
+    }
+
+    /**
+     * This static method is used by {@link ContractMetrics} after a contract check has been evaluated.
+     *
+     * @param siteId the contract site id
+     * @param nanos the evaluation time in nanoseconds
+     */
+    static void record(final int siteId, final long nanos)  {
+        final SiteTable<SiteHistogram> current = sites;
+        if (current == null) return;
+
+        LatencyHistogram.record(current.get(siteId).counters, nanos);
+    }
+
+    /**
+     * @return the histograms of the current interval of all contract sites which have been evaluated at least once
+     */
+    public static List<LatencyHistogram> snapshot()  {
+        return collect(false);
+    }
+
+    /**
+     * Takes the histograms of the current interval and starts a new interval with empty histograms.
+     *
+     * @return the histograms of the interval which has ended
+     */
+    public static List<LatencyHistogram> snapshotAndReset()  {
+        final List<LatencyHistogram> result = collect(true);
+        lastInterval = result;
+
+        return result;
+    }
+
+    /**
+     * @return the histograms of the last interval which has ended, empty if no interval has ended yet
+     */
+    public static List<LatencyHistogram> getLastInterval()  {
+        return lastInterval;
+    }
+
+    /**
+     * @param histograms the histograms to sort
+     * @param percentile the percentile to compare, e.g. <tt>99.0</tt>
+     * @param n the maximum number of histograms to return
+     * @return the <tt>n</tt> histograms with the highest values at the given percentile
+     */
+    public static List<LatencyHistogram> topByPercentile(final List<LatencyHistogram> histograms, final double percentile, final int n)  {
+        return top(histograms, n, new Comparator<LatencyHistogram>() {
+            public int compare(LatencyHistogram a, LatencyHistogram b) {
+                return compareDescending(a.getValueAtPercentile(percentile), b.getValueAtPercentile(percentile));
+            }
+        });
+    }
+
+    /**
+     * @param histograms the histograms to sort
+     * @param n the maximum number of histograms to return
+     * @return the <tt>n</tt> histograms with the highest cumulative evaluation time
+     */
+    public static List<LatencyHistogram> topByTotalTime(final List<LatencyHistogram> histograms, final int n)  {
+        return top(histograms, n, new Comparator<LatencyHistogram>() {
+            public int compare(LatencyHistogram a, LatencyHistogram b) {
+                return compareDescending(a.getTotalNanos(), b.getTotalNanos());
+            }
+        });
+    }
+
+    /**
+     * @param n the maximum number of contract sites per list
+     * @return the <tt>n</tt> contract sites with the highest 99th percentile and the <tt>n</tt> contract sites with the
+     * highest cumulative evaluation time of the last interval which has ended, or of the current interval if no
+     * interval has ended yet
+     */
+    public static String dump(final int n)  {
+        List<LatencyHistogram> histograms = lastInterval;
+        if (histograms.isEmpty()) histograms = snapshot();
+
+        final StringBuilder result = new StringBuilder();
+
+        result.append("Top ").append(n).append(" contract sites by p99:\n");
+        for (LatencyHistogram histogram : topByPercentile(histograms, 99.0, n)) result.append("  ").append(histogram).append('\n');
+
+        result.append("Top ").append(n).append(" contract sites by total time:\n");
+        for (LatencyHistogram histogram : topByTotalTime(histograms, n)) result.append("  ").append(histogram).append('\n');
+
+        return result.toString();
+    }
+
+    private static List<LatencyHistogram> top(final List<LatencyHistogram> histograms, final int n, final Comparator<LatencyHistogram> comparator)  {
+        final List<LatencyHistogram> result = new ArrayList<LatencyHistogram>(histograms);
+        Collections.sort(result, comparator);
+
+        return result.subList(0, Math.max(0, Math.min(n, result.size())));
+    }
+
+    private static int compareDescending(final long a, final long b)  {
+        return a < b ? 1 : (a == b ? 0 : -1);
+    }
+
+    private static List<LatencyHistogram> collect(final boolean reset)  {
+        final SiteTable<SiteHistogram> current = sites;
+        if (current == null) return Collections.emptyList();
+
+        final List<LatencyHistogram> result = new ArrayList<LatencyHistogram>();
+        for (int siteId = 0; siteId < current.size(); siteId++)  {
+            final SiteHistogram site = current.peek(siteId);
+            if (site == null) continue;
+
+            final AtomicLongArray counters = site.counters;
+            if (reset) site.counters = LatencyHistogram.newCounters();
+
+            final LatencyHistogram histogram = LatencyHistogram.copyOf(siteId, counters);
+            if (histogram.getCount() > 0) result.add(histogram);
+        }
+
+        return result;
+    }
+
+    static final class SiteHistogram {
+        volatile AtomicLongArray counters = LatencyHistogram.newCounters();
+    }
+
+    private static final class Resetter extends Thread {
+
+        private final long intervalMillis;
+        private volatile boolean stopped;
+
+        Resetter(final long intervalMillis)  {
+            super("gcontracts-histograms");
+            setDaemon(true);
+
+            this.intervalMillis = intervalMillis;
+        }
+
+        @Override
+        public void run() {
+            while (!stopped)  {
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e)  {
+                    continue;
+                }
+
+                if (!stopped) snapshotAndReset();
+            }
+        }
+
+        void shutdown()  {
+            stopped = true;
+            interrupt();
+
+            try {
+                join();
+            } catch (InterruptedException e)  {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Collects evaluation metrics of contract sites of classes compiled with {@link GenerationOptions#METRICS}: the
+ * number of evaluations, the number of failed evaluations and the cumulative evaluation time in nanoseconds.</p>
+ *
+ * <p>Counters are striped by thread, every stripe fills its own cache line, so threads evaluating the same contract
+ * site rarely write to the same memory. The stripes are only summed up when a {@link Snapshot} is taken, either with
+ * {@link #snapshot()} or through the JMX bean <tt>org.gcontracts:type=ContractMetrics</tt>.</p>
+ *
+ * <p>Every evaluation is recorded in the latency histograms of {@link ContractHistograms} if enabled and reported
+ * to the listeners of {@link ContractEvents} as well. Classes compiled without
+ * {@link GenerationOptions#METRICS} do not call this class at all.</p>
+ *
+ * @author ast
+ */
+public final class ContractMetrics {
+
+    public static final String OBJECT_NAME = "org.gcontracts:type=ContractMetrics";
+
+    // evaluations, failures and nanoseconds, padded to 64 bytes per stripe
+    private static final int CELL_SIZE = 8;
+    private static final int EVALUATIONS = 0;
+    private static final int FAILURES = 1;
+    private static final int NANOS = 2;
+
+    private static final int STRIPES = stripes();
+
+    private static final SiteTable<SiteMetrics> sites = new SiteTable<SiteMetrics>() {
+        @Override
+        protected SiteMetrics create(int siteId) {
+            registerMBean();
+            return new SiteMetrics();
+        }
+    };
+    private static boolean mbeanRegistered = false;
+
+    private ContractMetrics() {}
+
+    /**
+     * This static method is used within generated code before a contract check is evaluated.
+     *
+     * @return the start time of the evaluation
+     */
+    public static long start()  {
+        return System.nanoTime();
+    }
+
+    /**
+     * This static method is used within generated code after a contract check has been evaluated.
+     *
+     * @param siteId the contract site id as returned by {@link ContractExecutionTracker#register(String, String, String, boolean)}
+     * @param startNanos the start time as returned by {@link #start()}
+     * @param passed whether the contract check passed
+     */
+    public static void record(final int siteId, final long startNanos, final boolean passed)  {
+        final long nanos = System.nanoTime() - startNanos;
+
+        final AtomicLongArray cells = sites.get(siteId).cells;
+        final int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        final int offset = stripe * CELL_SIZE;
+
+        cells.incrementAndGet(offset + EVALUATIONS);
+        if (!passed) cells.incrementAndGet(offset + FAILURES);
+        cells.addAndGet(offset + NANOS, nanos);
+
+        ContractHistograms.record(siteId, nanos);
+        ContractEvents.evaluated(siteId, startNanos, nanos, passed);
+    }
+
+    /**
+     * @param siteId the contract site id
+     * @return the current metrics of the given contract site
+     */
+    public static Snapshot snapshot(final int siteId)  {
+        final AtomicLongArray cells = sites.get(siteId).cells;
+
+        long evaluations = 0;
+        long failures = 0;
+        long nanos = 0;
+        for (int offset = 0; offset < cells.length(); offset += CELL_SIZE)  {
+            evaluations += cells.get(offset + EVALUATIONS);
+            failures += cells.get(offset + FAILURES);
+            nanos += cells.get(offset + NANOS);
+        }
+
+        return new Snapshot(siteId, ContractExecutionTracker.site(siteId), evaluations, failures, nanos);
+    }
+
+    /**
+     * @return the current metrics of all contract sites which have been evaluated at least once
+     */
+    public static List<Snapshot> snapshot()  {
+        final List<Snapshot> result = new ArrayList<Snapshot>();
+        for (int siteId = 0; siteId < sites.size(); siteId++)  {
+            if (sites.peek(siteId) == null) continue;
+
+            final Snapshot snapshot = snapshot(siteId);
+            if (snapshot.getEvaluationCount() > 0) result.add(snapshot);
+        }
+
+        return result;
+    }
+
+    /**
+     * Resets the metrics of all contract sites.
+     */
+    public static void reset()  {
+        sites.clear();
+    }
+
+    private static int stripes()  {
+        final int processors = Runtime.getRuntime().availableProcessors();
+
+        int result = 1;
+        while (result < processors * 2 && result < 64) result <<= 1;
+
+        return result;
+    }
+
+    private static synchronized void registerMBean()  {
+        if (mbeanRegistered) return;
+        mbeanRegistered = true;
+
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(objectName))  {
+                server.registerMBean(new StandardMBean(new Management(), ContractMetricsMBean.class), objectName);
+            }
+        } catch (Exception e)  {
+            // JMX is not available, the snapshot API can still be used
+        }
+    }
+
+    static final class SiteMetrics {
+        final AtomicLongArray cells = new AtomicLongArray(STRIPES * CELL_SIZE);
+    }
+
+    /**
+     * The metrics of a single contract site at the time the snapshot has been taken. As stripes are summed up
+     * one after the other, the counters of a snapshot taken during evaluations might be slightly inconsistent.
+     */
+    public static final class Snapshot {
+
+        private final int siteId;
+        private final ContractExecutionTracker.ContractExecution site;
+        private final long evaluationCount;
+        private final long failureCount;
+        private final long totalNanos;
+
+        Snapshot(final int siteId, final ContractExecutionTracker.ContractExecution site, final long evaluationCount, final long failureCount, final long totalNanos)  {
+            this.siteId = siteId;
+            this.site = site;
+            this.evaluationCount = evaluationCount;
+            this.failureCount = failureCount;
+            this.totalNanos = totalNanos;
+        }
+
+        public int getSiteId() { return siteId; }
+        public String getClassName() { return site.getClassName(); }
+        public String getMethodIdentifier() { return site.getMethodIdentifier(); }
+        public String getAssertionType() { return site.getAssertionType(); }
+        public long getEvaluationCount() { return evaluationCount; }
+        public long getFailureCount() { return failureCount; }
+        public long getTotalNanos() { return totalNanos; }
+
+        /**
+         * @return the average evaluation time in nanoseconds, <tt>0</tt> if the site has not been evaluated
+         */
+        public long getAverageNanos()  {
+            return evaluationCount > 0 ? totalNanos / evaluationCount : 0;
+        }
+
+        @Override
+        public String toString() {
+            return siteId + " " + site + ": evaluations=" + evaluationCount + ", failures=" + failureCount + ", totalNanos=" + totalNanos + ", averageNanos=" + getAverageNanos();
+        }
+    }
+
+    private static final class Management implements ContractMetricsMBean {
+
+        public String[] getSiteMetrics() {
+            final List<Snapshot> snapshots = snapshot();
+
+            final String[] result = new String[snapshots.size()];
+            for (int i = 0; i < result.length; i++) result[i] = snapshots.get(i).toString();
+
+            return result;
+        }
+
+        public long getEvaluationCount(int siteId) { return snapshot(siteId).getEvaluationCount(); }
+        public long getFailureCount(int siteId) { return snapshot(siteId).getFailureCount(); }
+        public long getTotalNanos(int siteId) { return snapshot(siteId).getTotalNanos(); }
+        public void reset() { ContractMetrics.reset(); }
+
+        public String[] getTopSitesByP99(int n) { return toStrings(ContractHistograms.topByPercentile(histograms(), 99.0, n)); }
+        public String[] getTopSitesByTotalTime(int n) { return toStrings(ContractHistograms.topByTotalTime(histograms(), n)); }
+
+        private List<LatencyHistogram> histograms()  {
+            final List<LatencyHistogram> histograms = ContractHistograms.getLastInterval();
+            return histograms.isEmpty() ? ContractHistograms.snapshot() : histograms;
+        }
+
+        private String[] toStrings(final List<LatencyHistogram> histograms)  {
+            final String[] result = new String[histograms.size()];
+            for (int i = 0; i < result.length; i++) result[i] = histograms.get(i).toString();
+
+            return result;
+        }
+    }
+}
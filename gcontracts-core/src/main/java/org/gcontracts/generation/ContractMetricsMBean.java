@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+/**
+ * <p>JMX management interface of {@link ContractMetrics}, registered as
+ * <tt>org.gcontracts:type=ContractMetrics</tt>.</p>
+ *
+ * @author ast
+ */
+public interface ContractMetricsMBean {
+
+    /**
+     * @return one line per contract site with its evaluation count, failure count and cumulative evaluation time
+     */
+    String[] getSiteMetrics();
+
+    /**
+     * @return the number of evaluations of the given contract site
+     */
+    long getEvaluationCount(int siteId);
+
+    /**
+     * @return the number of failed evaluations of the given contract site
+     */
+    long getFailureCount(int siteId);
+
+    /**
+     * @return the cumulative evaluation time of the given contract site in nanoseconds
+     */
+    long getTotalNanos(int siteId);
+
+    /**
+     * Resets the metrics of all contract sites.
+     */
+    void reset();
+
+    /**
+     * @return the contract sites with the highest 99th percentile evaluation time, empty unless
+     * {@link ContractHistograms} are enabled
+     */
+    String[] getTopSitesByP99(int n);
+
+    /**
+     * @return the contract sites with the highest cumulative evaluation time of the last histogram interval, empty
+     * unless {@link ContractHistograms} are enabled
+     */
+    String[] getTopSitesByTotalTime(int n);
+}
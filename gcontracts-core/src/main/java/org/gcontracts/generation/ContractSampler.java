@@ -0,0 +1,353 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Decides whether a contract check of a class compiled with {@link GenerationOptions#SAMPLING} is evaluated.</p>
+ *
+ * <p>Each contract site evaluates one in <tt>sampleRate</tt> invocations, the sample rate is configured per class
+ * or package by {@link Configurator#getSampleRate(String)}. The first invocation of a site on every thread is always
+ * evaluated. Counters are kept per thread, so sampling neither locks nor writes shared memory. The counters of
+ * terminated threads are added to a shared total and released.</p>
+ *
+ * <p>If a warm-up is configured by {@link Configurator#getWarmUp(String)}, a contract site starts in
+ * {@link State#WARM_UP} and evaluates every invocation. After <tt>warmUp</tt> clean checks the site relaxes to
+ * {@link State#SAMPLED}, or to {@link State#DISABLED} if its sample rate is <tt>0</tt>. A failed check re-arms the
+ * warm-up of the site. Clean checks are counted per thread and published in batches, the transition therefore
+ * happens after roughly <tt>warmUp</tt> clean checks when multiple threads hit the same site.</p>
+ *
+ * <p>Contract sites disabled by a method rule or a rule for their kind of assertion, see {@link ConfigurationFile},
+ * start in {@link State#DISABLED}.</p>
+ *
+ * @see Configurator
+ *
+ * @author ast
+ */
+public final class ContractSampler {
+
+    /**
+     * The checking state of a contract site.
+     */
+    public enum State {
+        /** every invocation is checked until the site has seen enough clean checks */
+        WARM_UP,
+        /** one in <tt>sampleRate</tt> invocations is checked */
+        SAMPLED,
+        /** no invocation is checked */
+        DISABLED
+    }
+
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private static final List<Counters> allCounters = new ArrayList<Counters>();
+    // counts of terminated threads, guarded by allCounters
+    private static final Counters retiredCounters = new Counters(null);
+
+    private static final ThreadLocal<Counters> counters = new ThreadLocal<Counters>() {
+        @Override
+        protected Counters initialValue() {
+            final Counters result = new Counters(Thread.currentThread());
+            synchronized (allCounters)  {
+                retireCounters();
+                allCounters.add(result);
+            }
+            return result;
+        }
+    };
+
+    private static final SiteTable<Site> sites = new SiteTable<Site>() {
+        @Override
+        protected Site create(int siteId) {
+            final ContractExecutionTracker.ContractExecution execution = ContractExecutionTracker.site(siteId);
+            final String className = execution.getClassName();
+
+            if (!Configurator.checkAssertionsEnabled(className, execution.getMethodIdentifier(), execution.getAssertionType())) return new Site(0, 0);
+
+            return new Site(Configurator.getSampleRate(className), Configurator.getWarmUp(className));
+        }
+    };
+
+    private ContractSampler() {}
+
+    /**
+     * This static method is used within generated code to decide whether the current invocation of the given
+     * contract site should be evaluated.
+     *
+     * @param siteId the contract site id as returned by {@link ContractExecutionTracker#register(String, String, String, boolean)}
+     * @return whether the contract check should be evaluated
+     */
+    public static boolean sample(final int siteId)  {
+        return counters.get().sample(siteId, sites.get(siteId));
+    }
+
+    /**
+     * This static method is used within generated code to report a failed check of the given contract site. The
+     * site returns to {@link State#WARM_UP}.
+     *
+     * @param siteId the contract site id as returned by {@link ContractExecutionTracker#register(String, String, String, boolean)}
+     */
+    public static void violated(final int siteId)  {
+        counters.get().violated(siteId, sites.get(siteId));
+    }
+
+    /**
+     * @param siteId the contract site id
+     * @return the sample rate of the given contract site once it is warmed up
+     */
+    public static int getSampleRate(final int siteId)  {
+        return sites.get(siteId).sampleRate;
+    }
+
+    /**
+     * @param siteId the contract site id
+     * @return the number of clean checks of the given contract site before it is sampled
+     */
+    public static int getWarmUp(final int siteId)  {
+        return sites.get(siteId).warmUp;
+    }
+
+    /**
+     * @param siteId the contract site id
+     * @return the current checking state of the given contract site
+     */
+    public static State getState(final int siteId)  {
+        final Site site = sites.get(siteId);
+        if (!site.relaxed) return State.WARM_UP;
+
+        return site.sampleRate == 0 ? State.DISABLED : State.SAMPLED;
+    }
+
+    /**
+     * @param siteId the contract site id
+     * @return the number of clean checks published since the warm-up of the given contract site was last (re-)started
+     */
+    public static long getCleanCount(final int siteId)  {
+        return sites.get(siteId).cleanCount.get();
+    }
+
+    /**
+     * @param siteId the contract site id
+     * @return the number of failed checks of the given contract site
+     */
+    public static long getViolationCount(final int siteId)  {
+        return sites.get(siteId).violationCount.get();
+    }
+
+    /**
+     * Changes the sample rate of a class or package at runtime. The state of all contract sites is reset.
+     *
+     * @param name the class or package name, <tt>null</tt> for the default sample rate
+     * @param sampleRate one in <tt>sampleRate</tt> contract checks is evaluated, <tt>null</tt> removes the configuration for <tt>name</tt>
+     */
+    public static void setSampleRate(final String name, final Integer sampleRate)  {
+        Configurator.setSampleRate(name, sampleRate);
+        sites.clear();
+    }
+
+    /**
+     * Changes the warm-up of a class or package at runtime. The state of all contract sites is reset.
+     *
+     * @param name the class or package name, <tt>null</tt> for the default warm-up
+     * @param warmUp the number of clean checks before contract sites are sampled, <tt>null</tt> removes the configuration for <tt>name</tt>
+     */
+    public static void setWarmUp(final String name, final Integer warmUp)  {
+        Configurator.setWarmUp(name, warmUp);
+        sites.clear();
+    }
+
+    /**
+     * Resets the state of all contract sites, e.g. after the {@link ConfigurationFile} has been reloaded.
+     */
+    static void reset()  {
+        sites.clear();
+    }
+
+    /**
+     * @param siteId the contract site id
+     * @return the number of evaluated invocations of the given contract site over all threads
+     */
+    public static long getSampledCount(final int siteId)  {
+        synchronized (allCounters)  {
+            retireCounters();
+
+            long result = retiredCounters.sampled(siteId);
+            for (Counters next : allCounters) result += next.sampled(siteId);
+            return result;
+        }
+    }
+
+    /**
+     * @param siteId the contract site id
+     * @return the number of skipped invocations of the given contract site over all threads
+     */
+    public static long getSkippedCount(final int siteId)  {
+        synchronized (allCounters)  {
+            retireCounters();
+
+            long result = retiredCounters.skipped(siteId);
+            for (Counters next : allCounters) result += next.skipped(siteId);
+            return result;
+        }
+    }
+
+    // adds the counts of terminated threads to the retired counters, has to be called with the lock on allCounters
+    private static void retireCounters()  {
+        for (Iterator<Counters> iterator = allCounters.iterator(); iterator.hasNext();)  {
+            final Counters next = iterator.next();
+            if (next.isAlive()) continue;
+
+            retiredCounters.add(next);
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Shared state of a single contract site. Sites are replaced as a whole when the configuration changes.
+     */
+    static final class Site {
+
+        final int sampleRate;
+        final int warmUp;
+        final int batchSize;
+
+        final AtomicLong cleanCount = new AtomicLong();
+        final AtomicLong violationCount = new AtomicLong();
+
+        volatile boolean relaxed;
+
+        Site(final int sampleRate, final int warmUp)  {
+            this.sampleRate = sampleRate;
+            this.warmUp = warmUp;
+            this.batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, warmUp / 16));
+            this.relaxed = warmUp == 0;
+        }
+
+        void clean(final int count)  {
+            if (cleanCount.addAndGet(count) >= warmUp) relaxed = true;
+        }
+
+        void violated()  {
+            violationCount.incrementAndGet();
+            if (warmUp == 0) return;
+
+            relaxed = false;
+            cleanCount.set(0);
+        }
+    }
+
+    /**
+     * Per thread sampling state. Counters are only written by their own thread, reads by other threads
+     * might be slightly out of date.
+     */
+    static final class Counters {
+
+        // the counters of a thread are only read by other threads after it has terminated, see isAlive()
+        private final WeakReference<Thread> owner;
+
+        private int[] countdowns = new int[0];
+        private int[] pending = new int[0];
+        private long[] sampled = new long[0];
+        private long[] skipped = new long[0];
+
+        Counters(final Thread owner)  {
+            this.owner = new WeakReference<Thread>(owner);
+        }
+
+        boolean isAlive()  {
+            final Thread thread = owner.get();
+            return thread != null && thread.isAlive();
+        }
+
+        void add(final Counters counters)  {
+            if (counters.sampled.length > sampled.length) grow(counters.sampled.length - 1);
+
+            for (int i = 0; i < counters.sampled.length; i++)  {
+                sampled[i] += counters.sampled[i];
+                skipped[i] += counters.skipped[i];
+            }
+        }
+
+        boolean sample(final int siteId, final Site site)  {
+            if (siteId >= countdowns.length) grow(siteId);
+
+            if (!site.relaxed)  {
+                if (++pending[siteId] >= site.batchSize)  {
+                    site.clean(pending[siteId]);
+                    pending[siteId] = 0;
+                }
+
+                sampled[siteId]++;
+                return true;
+            }
+
+            final int sampleRate = site.sampleRate;
+            if (sampleRate == 0 || (sampleRate > 1 && --countdowns[siteId] > 0))  {
+                skipped[siteId]++;
+                return false;
+            }
+
+            countdowns[siteId] = sampleRate;
+            sampled[siteId]++;
+            return true;
+        }
+
+        void violated(final int siteId, final Site site)  {
+            if (siteId < pending.length) pending[siteId] = 0;
+            site.violated();
+        }
+
+        long sampled(final int siteId)  {
+            final long[] values = sampled;
+            return siteId < values.length ? values[siteId] : 0;
+        }
+
+        long skipped(final int siteId)  {
+            final long[] values = skipped;
+            return siteId < values.length ? values[siteId] : 0;
+        }
+
+        private void grow(final int siteId)  {
+            final int length = Math.max(ContractExecutionTracker.siteCount(), siteId + 1);
+
+            final int[] newCountdowns = new int[length];
+            final int[] newPending = new int[length];
+            final long[] newSampled = new long[length];
+            final long[] newSkipped = new long[length];
+            System.arraycopy(countdowns, 0, newCountdowns, 0, countdowns.length);
+            System.arraycopy(pending, 0, newPending, 0, pending.length);
+            System.arraycopy(sampled, 0, newSampled, 0, sampled.length);
+            System.arraycopy(skipped, 0, newSkipped, 0, skipped.length);
+
+            countdowns = newCountdowns;
+            pending = newPending;
+            sampled = newSampled;
+            skipped = newSkipped;
+        }
+    }
+}
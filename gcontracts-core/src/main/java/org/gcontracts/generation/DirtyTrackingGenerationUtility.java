@@ -0,0 +1,478 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+import org.codehaus.groovy.ast.*;
+import org.codehaus.groovy.ast.expr.*;
+import org.codehaus.groovy.ast.stmt.*;
+import org.codehaus.groovy.syntax.Token;
+import org.codehaus.groovy.syntax.Types;
+import org.gcontracts.domain.ClassInvariant;
+import org.gcontracts.util.ExpressionUtils;
+import org.objectweb.asm.Opcodes;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>Central place where code generation for dirty checked class invariants takes place, see
+ * {@link GenerationOptions#DIRTY_CHECKED_INVARIANTS}.</p>
+ *
+ * <p>The fields read by a class invariant are computed at compile time. Every statement writing one of these fields
+ * resets the synthetic <tt>$_gc_invariant_checked</tt> field, which is set again by the invariant method after a
+ * successful check. Methods skip the invariant check while the field is set.</p>
+ *
+ * <p>Dirty tracking is only applied if all reads and writes are known at compile time: the invariant may only read
+ * private fields or properties of the class itself and call methods on fields of immutable types, fields may only be
+ * written by the class itself through <tt>this</tt>, and not from within closures or inner classes. Writes by
+ * reflection or to private fields from outside the class (e.g. <tt>object.@field = value</tt>) are not tracked.</p>
+ *
+ * @author ast
+ */
+public final class DirtyTrackingGenerationUtility {
+
+    public static final String INVARIANT_CHECKED_FIELD = "$_gc_invariant_checked";
+
+    private static final String VALUE_VARIABLE_PREFIX = "$_gc_value_";
+
+    private static final Set<String> IMMUTABLE_TYPES = new HashSet<String>(Arrays.asList(
+            String.class.getName(), Boolean.class.getName(), Character.class.getName(), Byte.class.getName(),
+            Short.class.getName(), Integer.class.getName(), Long.class.getName(), Float.class.getName(),
+            Double.class.getName(), BigInteger.class.getName(), BigDecimal.class.getName()
+    ));
+
+    private DirtyTrackingGenerationUtility() {}
+
+    /**
+     * Adds the <tt>$_gc_invariant_checked</tt> field to the given <tt>type</tt> and resets it after every statement
+     * writing a field read by the given <tt>classInvariant</tt>.
+     *
+     * @param type the {@link org.codehaus.groovy.ast.ClassNode} declaring the class invariant
+     * @param classInvariant the {@link org.gcontracts.domain.ClassInvariant} of <tt>type</tt>
+     * @return the added {@link org.codehaus.groovy.ast.FieldNode}, <tt>null</tt> if reads or writes of the invariant fields can not be tracked
+     */
+    public static FieldNode addDirtyTracking(final ClassNode type, final ClassInvariant classInvariant)  {
+        final Set<String> fieldNames = getInvariantFieldNames(type, classInvariant);
+        if (fieldNames == null || !hasOnlyContractClosureInnerClasses(type)) return null;
+
+        final WriteBarrierTransformer analysis = new WriteBarrierTransformer(fieldNames, null);
+        analysis.transform(type);
+        if (!analysis.supported) return null;
+
+        final FieldNode checkedField = type.addField(INVARIANT_CHECKED_FIELD, Opcodes.ACC_PRIVATE | Opcodes.ACC_TRANSIENT | Opcodes.ACC_SYNTHETIC, ClassHelper.boolean_TYPE, null);
+        checkedField.setSynthetic(true);
+
+        new WriteBarrierTransformer(fieldNames, checkedField).transform(type);
+
+        return checkedField;
+    }
+
+    /**
+     * @param type the {@link org.codehaus.groovy.ast.ClassNode} to look up the <tt>$_gc_invariant_checked</tt> field
+     * @return the <tt>$_gc_invariant_checked</tt> field of the given <tt>type</tt>, <tt>null</tt> if its class invariant is not dirty checked
+     */
+    public static FieldNode getInvariantCheckedField(final ClassNode type)  {
+        return type.getDeclaredField(INVARIANT_CHECKED_FIELD);
+    }
+
+    /**
+     * Computes the names of all fields read by the given <tt>classInvariant</tt>.
+     *
+     * @param type the {@link org.codehaus.groovy.ast.ClassNode} declaring the class invariant
+     * @param classInvariant the {@link org.gcontracts.domain.ClassInvariant} of <tt>type</tt>
+     * @return the field names, <tt>null</tt> if the invariant reads anything else than fields of <tt>type</tt>
+     */
+    public static Set<String> getInvariantFieldNames(final ClassNode type, final ClassInvariant classInvariant)  {
+        final BlockStatement blockStatement = classInvariant.originalBlockStatement();
+        if (blockStatement == null) return null;
+
+        final List<BooleanExpression> booleanExpressions = ExpressionUtils.getBooleanExpressionsFromAssertionStatements(blockStatement);
+        if (booleanExpressions.isEmpty()) return null;
+
+        final Set<String> result = new HashSet<String>();
+        for (BooleanExpression booleanExpression : booleanExpressions)  {
+            if (!collectFieldNames(type, booleanExpression, result)) return null;
+        }
+
+        return result;
+    }
+
+    private static boolean collectFieldNames(final ClassNode type, final Expression expression, final Set<String> fieldNames)  {
+        if (expression instanceof ConstantExpression) return true;
+        if (expression instanceof VariableExpression) return addFieldName(type, ((VariableExpression) expression).getName(), fieldNames, false);
+        if (expression instanceof FieldExpression) return addFieldName(type, ((FieldExpression) expression).getFieldName(), fieldNames, false);
+
+        if (expression instanceof PropertyExpression)  {
+            final PropertyExpression propertyExpression = (PropertyExpression) expression;
+            final String propertyName = propertyExpression.getPropertyAsString();
+            if (propertyName == null) return false;
+
+            if (isThisExpression(propertyExpression.getObjectExpression())) return addFieldName(type, propertyName, fieldNames, false);
+            return addImmutableFieldName(type, propertyExpression.getObjectExpression(), fieldNames);
+        }
+
+        if (expression instanceof MethodCallExpression)  {
+            final MethodCallExpression methodCall = (MethodCallExpression) expression;
+            if (methodCall.isImplicitThis()) return false;
+
+            return addImmutableFieldName(type, methodCall.getObjectExpression(), fieldNames) && collectFieldNames(type, methodCall.getArguments(), fieldNames);
+        }
+
+        if (expression instanceof DeclarationExpression) return false;
+        if (expression instanceof BinaryExpression)  {
+            final BinaryExpression binaryExpression = (BinaryExpression) expression;
+            if (Types.ofType(binaryExpression.getOperation().getType(), Types.ASSIGNMENT_OPERATOR)) return false;
+
+            return collectFieldNames(type, binaryExpression.getLeftExpression(), fieldNames) && collectFieldNames(type, binaryExpression.getRightExpression(), fieldNames);
+        }
+
+        if (expression instanceof BooleanExpression) return collectFieldNames(type, ((BooleanExpression) expression).getExpression(), fieldNames);
+        if (expression instanceof CastExpression) return collectFieldNames(type, ((CastExpression) expression).getExpression(), fieldNames);
+        if (expression instanceof UnaryMinusExpression) return collectFieldNames(type, ((UnaryMinusExpression) expression).getExpression(), fieldNames);
+        if (expression instanceof UnaryPlusExpression) return collectFieldNames(type, ((UnaryPlusExpression) expression).getExpression(), fieldNames);
+        if (expression instanceof BitwiseNegationExpression) return collectFieldNames(type, ((BitwiseNegationExpression) expression).getExpression(), fieldNames);
+
+        if (expression instanceof TernaryExpression)  {
+            final TernaryExpression ternaryExpression = (TernaryExpression) expression;
+            return collectFieldNames(type, ternaryExpression.getBooleanExpression(), fieldNames) &&
+                    collectFieldNames(type, ternaryExpression.getTrueExpression(), fieldNames) &&
+                    collectFieldNames(type, ternaryExpression.getFalseExpression(), fieldNames);
+        }
+
+        if (expression instanceof TupleExpression)  {
+            for (Expression next : ((TupleExpression) expression).getExpressions())  {
+                if (!collectFieldNames(type, next, fieldNames)) return false;
+            }
+            return true;
+        }
+
+        if (expression instanceof GStringExpression)  {
+            for (Expression next : ((GStringExpression) expression).getValues())  {
+                if (!collectFieldNames(type, next, fieldNames)) return false;
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    private static boolean addImmutableFieldName(final ClassNode type, final Expression expression, final Set<String> fieldNames)  {
+        String fieldName = null;
+        if (expression instanceof VariableExpression && !isThisExpression(expression))  {
+            fieldName = ((VariableExpression) expression).getName();
+        } else if (expression instanceof FieldExpression)  {
+            fieldName = ((FieldExpression) expression).getFieldName();
+        } else if (expression instanceof PropertyExpression && isThisExpression(((PropertyExpression) expression).getObjectExpression()))  {
+            fieldName = ((PropertyExpression) expression).getPropertyAsString();
+        }
+
+        return fieldName != null && addFieldName(type, fieldName, fieldNames, true);
+    }
+
+    private static boolean addFieldName(final ClassNode type, final String name, final Set<String> fieldNames, final boolean immutableOnly)  {
+        final FieldNode fieldNode = type.getDeclaredField(name);
+        if (fieldNode == null || fieldNode.isStatic()) return false;
+        if ((fieldNode.getModifiers() & Opcodes.ACC_PRIVATE) == 0 && type.getProperty(name) == null) return false;
+        if (immutableOnly && !isImmutableType(fieldNode.getType())) return false;
+
+        fieldNames.add(name);
+        return true;
+    }
+
+    private static boolean isImmutableType(final ClassNode type)  {
+        return ClassHelper.isPrimitiveType(type) || IMMUTABLE_TYPES.contains(type.getName());
+    }
+
+    private static boolean isThisExpression(final Expression expression)  {
+        return expression instanceof VariableExpression && ((VariableExpression) expression).isThisExpression();
+    }
+
+    // contract closures are compiled into inner classes and only read fields, other inner classes might write them
+    private static boolean hasOnlyContractClosureInnerClasses(final ClassNode type)  {
+        final Iterator<InnerClassNode> innerClasses = type.getInnerClasses();
+        while (innerClasses.hasNext())  {
+            final InnerClassNode innerClass = innerClasses.next();
+            if (!innerClass.isDerivedFrom(ClassHelper.CLOSURE_TYPE)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Detects writes to the given fields in an expression or statement. Writes from within closures or to the fields
+     * of other instances can not be tracked and make the detector <tt>unsupported</tt>.
+     */
+    private static class WriteDetector extends CodeVisitorSupport {
+
+        private final Set<String> fieldNames;
+
+        private int closureDepth;
+        private boolean writes;
+        private boolean unsupported;
+
+        WriteDetector(final Set<String> fieldNames)  {
+            this.fieldNames = fieldNames;
+        }
+
+        @Override
+        public void visitClosureExpression(ClosureExpression expression) {
+            closureDepth++;
+            super.visitClosureExpression(expression);
+            closureDepth--;
+        }
+
+        @Override
+        public void visitBinaryExpression(BinaryExpression expression) {
+            if (!(expression instanceof DeclarationExpression) && Types.ofType(expression.getOperation().getType(), Types.ASSIGNMENT_OPERATOR))  {
+                visitTarget(expression.getLeftExpression());
+            }
+            super.visitBinaryExpression(expression);
+        }
+
+        @Override
+        public void visitPrefixExpression(PrefixExpression expression) {
+            visitTarget(expression.getExpression());
+            super.visitPrefixExpression(expression);
+        }
+
+        @Override
+        public void visitPostfixExpression(PostfixExpression expression) {
+            visitTarget(expression.getExpression());
+            super.visitPostfixExpression(expression);
+        }
+
+        private void visitTarget(final Expression target)  {
+            if (target instanceof VariableExpression)  {
+                final VariableExpression variableExpression = (VariableExpression) target;
+                if (!fieldNames.contains(variableExpression.getName())) return;
+
+                final Variable accessedVariable = variableExpression.getAccessedVariable();
+                if (closureDepth > 0 || accessedVariable instanceof FieldNode || accessedVariable instanceof PropertyNode) write(true);
+
+            } else if (target instanceof FieldExpression)  {
+                if (fieldNames.contains(((FieldExpression) target).getFieldName())) write(true);
+
+            } else if (target instanceof PropertyExpression)  {
+                final PropertyExpression propertyExpression = (PropertyExpression) target;
+                final String propertyName = propertyExpression.getPropertyAsString();
+                final boolean thisReceiver = isThisExpression(propertyExpression.getObjectExpression());
+
+                if (propertyName == null && thisReceiver)  {
+                    unsupported = true;
+                } else if (propertyName != null && fieldNames.contains(propertyName))  {
+                    write(thisReceiver);
+                }
+
+            } else if (target instanceof TupleExpression)  {
+                for (Expression next : ((TupleExpression) target).getExpressions()) visitTarget(next);
+            }
+        }
+
+        private void write(final boolean trackable)  {
+            if (!trackable || closureDepth > 0)  {
+                unsupported = true;
+            } else {
+                writes = true;
+            }
+        }
+    }
+
+    /**
+     * Adds a statement resetting the <tt>$_gc_invariant_checked</tt> field after every statement writing one of the
+     * given fields. Without a <tt>checkedField</tt> the transformer leaves all statements untouched and only decides
+     * whether all writes are <tt>supported</tt>.
+     */
+    private static class WriteBarrierTransformer {
+
+        private final Set<String> fieldNames;
+        private final FieldNode checkedField;
+
+        private boolean supported = true;
+        private MethodNode methodNode;
+        private int valueVariableCount;
+
+        WriteBarrierTransformer(final Set<String> fieldNames, final FieldNode checkedField)  {
+            this.fieldNames = fieldNames;
+            this.checkedField = checkedField;
+        }
+
+        void transform(final ClassNode type)  {
+            for (MethodNode next : type.getMethods()) transform(next);
+            for (ConstructorNode next : type.getDeclaredConstructors()) transform(next);
+        }
+
+        private void transform(final MethodNode method)  {
+            // synthetic methods like this$dist$set$1 are only called from inner classes, see hasOnlyContractClosureInnerClasses
+            if (method.getCode() == null || method.isSynthetic() || (method.getModifiers() & Opcodes.ACC_SYNTHETIC) != 0) return;
+
+            methodNode = method;
+            final boolean returnsValue = !(method instanceof ConstructorNode) && method.getReturnType() != ClassHelper.VOID_TYPE;
+
+            method.setCode(transform(method.getCode(), returnsValue));
+        }
+
+        private Statement transform(final Statement statement, final boolean tail)  {
+            if (statement instanceof BlockStatement)  {
+                final List<Statement> statements = ((BlockStatement) statement).getStatements();
+                for (int i = 0; i < statements.size(); i++)  {
+                    final Statement next = statements.get(i);
+                    final boolean nextTail = tail && i == statements.size() - 1;
+
+                    // statements within blocks get the barrier appended to keep declared variables in scope
+                    if (next instanceof ExpressionStatement && !nextTail && writes(((ExpressionStatement) next).getExpression()))  {
+                        if (checkedField != null) statements.add(++i, createBarrierStatement());
+                        continue;
+                    }
+
+                    statements.set(i, transform(next, nextTail));
+                }
+                return statement;
+            }
+
+            if (statement instanceof ExpressionStatement)  {
+                final Expression expression = ((ExpressionStatement) statement).getExpression();
+                if (!writes(expression)) return statement;
+                if (tail && expression instanceof DeclarationExpression) supported = false;
+                if (checkedField == null) return statement;
+
+                if (tail) return createReturnBarrierStatement(expression);
+
+                return new BlockStatement(new ArrayList<Statement>(Arrays.asList(statement, createBarrierStatement())), new VariableScope());
+            }
+
+            if (statement instanceof ReturnStatement)  {
+                final Expression expression = ((ReturnStatement) statement).getExpression();
+                if (!writes(expression) || checkedField == null) return statement;
+
+                return createReturnBarrierStatement(expression);
+            }
+
+            if (statement instanceof IfStatement)  {
+                final IfStatement ifStatement = (IfStatement) statement;
+                unsupportedWrites(ifStatement.getBooleanExpression());
+
+                ifStatement.setIfBlock(transform(ifStatement.getIfBlock(), tail));
+                ifStatement.setElseBlock(transform(ifStatement.getElseBlock(), tail));
+                return statement;
+            }
+
+            if (statement instanceof ForStatement)  {
+                final ForStatement forStatement = (ForStatement) statement;
+                unsupportedWrites(forStatement.getCollectionExpression());
+
+                forStatement.setLoopBlock(transform(forStatement.getLoopBlock(), false));
+                return statement;
+            }
+
+            if (statement instanceof WhileStatement)  {
+                final WhileStatement whileStatement = (WhileStatement) statement;
+                unsupportedWrites(whileStatement.getBooleanExpression());
+
+                whileStatement.setLoopBlock(transform(whileStatement.getLoopBlock(), false));
+                return statement;
+            }
+
+            if (statement instanceof DoWhileStatement)  {
+                final DoWhileStatement doWhileStatement = (DoWhileStatement) statement;
+                unsupportedWrites(doWhileStatement.getBooleanExpression());
+
+                doWhileStatement.setLoopBlock(transform(doWhileStatement.getLoopBlock(), false));
+                return statement;
+            }
+
+            if (statement instanceof TryCatchStatement)  {
+                final TryCatchStatement tryCatchStatement = (TryCatchStatement) statement;
+                tryCatchStatement.setTryStatement(transform(tryCatchStatement.getTryStatement(), tail));
+                for (CatchStatement catchStatement : tryCatchStatement.getCatchStatements())  {
+                    catchStatement.setCode(transform(catchStatement.getCode(), tail));
+                }
+                tryCatchStatement.setFinallyStatement(transform(tryCatchStatement.getFinallyStatement(), false));
+                return statement;
+            }
+
+            if (statement instanceof SynchronizedStatement)  {
+                final SynchronizedStatement synchronizedStatement = (SynchronizedStatement) statement;
+                unsupportedWrites(synchronizedStatement.getExpression());
+
+                synchronizedStatement.setCode(transform(synchronizedStatement.getCode(), tail));
+                return statement;
+            }
+
+            if (statement instanceof SwitchStatement && !tail)  {
+                final SwitchStatement switchStatement = (SwitchStatement) statement;
+                unsupportedWrites(switchStatement.getExpression());
+
+                for (CaseStatement caseStatement : switchStatement.getCaseStatements())  {
+                    unsupportedWrites(caseStatement.getExpression());
+                    caseStatement.setCode(transform(caseStatement.getCode(), false));
+                }
+                switchStatement.setDefaultStatement(transform(switchStatement.getDefaultStatement(), false));
+                return statement;
+            }
+
+            // any other statement, e.g. throw or assert statements, must not write invariant fields
+            if (statement != null)  {
+                final WriteDetector writeDetector = new WriteDetector(fieldNames);
+                statement.visit(writeDetector);
+                if (writeDetector.writes || writeDetector.unsupported) supported = false;
+            }
+
+            return statement;
+        }
+
+        private boolean writes(final Expression expression)  {
+            final WriteDetector writeDetector = new WriteDetector(fieldNames);
+            expression.visit(writeDetector);
+            if (writeDetector.unsupported) supported = false;
+
+            return writeDetector.writes;
+        }
+
+        private void unsupportedWrites(final Expression expression)  {
+            if (writes(expression)) supported = false;
+        }
+
+        private Statement createBarrierStatement()  {
+            return new ExpressionStatement(new BinaryExpression(new FieldExpression(checkedField), Token.newSymbol(Types.ASSIGN, -1, -1), ConstantExpression.FALSE));
+        }
+
+        // the returned value is kept in a local variable, the barrier has to run after the write but before the method returns
+        private Statement createReturnBarrierStatement(final Expression expression)  {
+            final ClassNode returnType = methodNode.getReturnType().isGenericsPlaceHolder() ? ClassHelper.OBJECT_TYPE : methodNode.getReturnType();
+            final VariableExpression valueVariable = new VariableExpression(VALUE_VARIABLE_PREFIX + valueVariableCount++, returnType);
+            valueVariable.setAccessedVariable(valueVariable);
+
+            return new BlockStatement(new ArrayList<Statement>(Arrays.<Statement>asList(
+                    new ExpressionStatement(new DeclarationExpression(valueVariable, Token.newSymbol(Types.ASSIGN, -1, -1), expression)),
+                    createBarrierStatement(),
+                    new ReturnStatement(valueVariable)
+            )), new VariableScope());
+        }
+    }
+}
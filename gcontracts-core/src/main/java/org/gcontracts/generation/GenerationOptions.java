@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+/**
+ * <p>Compile-time switches for GContracts code generation. Options are read from system properties
+ * of the JVM running the Groovy compiler, e.g.:</p>
+ *
+ * <pre>
+ *   groovyc -J-Dorg.gcontracts.cacheContractClosures=true ...
+ * </pre>
+ *
+ * <p>All options default to <tt>false</tt>, which results in the same byte-code as generated
+ * by previous GContracts versions.</p>
+ *
+ * @author ast
+ */
+public final class GenerationOptions {
+
+    /**
+     * If enabled, every contracted object keeps a single instance of each contract closure it evaluates
+     * instead of creating a new closure instance on every contract check.
+     */
+    public static final String CACHE_CONTRACT_CLOSURES = "org.gcontracts.cacheContractClosures";
+
+    /**
+     * If enabled, the generated <tt>$GCONTRACTS_ENABLED</tt> field is not final and can be switched at runtime
+     * with {@link ContractEnablement}.
+     */
+    public static final String RUNTIME_ENABLEMENT = "org.gcontracts.runtimeEnablement";
+
+    /**
+     * If enabled, every contract check asks {@link ContractSampler} whether the current invocation should be evaluated.
+     */
+    public static final String SAMPLING = "org.gcontracts.sampling";
+
+    /**
+     * If enabled, class invariants are only checked when a method of a contracted object is not called from within
+     * another method of the same object on the same thread, see {@link ClassInvariantGenerator}.
+     */
+    public static final String SKIP_INTERNAL_CALL_INVARIANTS = "org.gcontracts.skipInternalCallInvariants";
+
+    /**
+     * If enabled, class invariants are only re-checked after a field read by the invariant has been written,
+     * see {@link DirtyTrackingGenerationUtility}.
+     */
+    public static final String DIRTY_CHECKED_INVARIANTS = "org.gcontracts.dirtyCheckedInvariants";
+
+    /**
+     * If enabled, generated property setters of classes with class invariants skip the class invariant while the
+     * object is populated within {@link org.gcontracts.Contracts#deferInvariants(Object, groovy.lang.Closure)}.
+     */
+    public static final String DEFERRABLE_INVARIANTS = "org.gcontracts.deferrableInvariants";
+
+    /**
+     * If enabled, every contract check is timed and counted per contract site by {@link ContractMetrics} and
+     * reported to the listeners of {@link ContractEvents}.
+     */
+    public static final String METRICS = "org.gcontracts.metrics";
+
+    private GenerationOptions() {}
+
+    /**
+     * @return whether contract closure instances are cached per receiver
+     */
+    public static boolean isCacheContractClosures()  {
+        return isEnabled(CACHE_CONTRACT_CLOSURES);
+    }
+
+    /**
+     * @return whether contracts can be enabled and disabled at runtime
+     */
+    public static boolean isRuntimeEnablement()  {
+        return isEnabled(RUNTIME_ENABLEMENT);
+    }
+
+    /**
+     * @return whether contract checks are sampled
+     */
+    public static boolean isSampling()  {
+        return isEnabled(SAMPLING);
+    }
+
+    /**
+     * @return whether class invariants are skipped for unqualified calls on <tt>this</tt>
+     */
+    public static boolean isSkipInternalCallInvariants()  {
+        return isEnabled(SKIP_INTERNAL_CALL_INVARIANTS);
+    }
+
+    /**
+     * @return whether class invariants are skipped as long as no field read by the invariant is written
+     */
+    public static boolean isDirtyCheckedInvariants()  {
+        return isEnabled(DIRTY_CHECKED_INVARIANTS);
+    }
+
+    /**
+     * @return whether generated property setters can defer the class invariant
+     */
+    public static boolean isDeferrableInvariants()  {
+        return isEnabled(DEFERRABLE_INVARIANTS);
+    }
+
+    /**
+     * @return whether contract checks record evaluation metrics
+     */
+    public static boolean isMetrics()  {
+        return isEnabled(METRICS);
+    }
+
+    private static boolean isEnabled(final String option)  {
+        try {
+            return Boolean.getBoolean(option);
+        } catch (SecurityException e)  {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+/**
+ * <p>
+ * Keeps the objects whose class invariant checked methods are currently executed by a thread. Used by classes
+ * generated with {@link GenerationOptions#SKIP_INTERNAL_CALL_INVARIANTS}: a method only checks the class invariant
+ * if its object is not already executing one of its methods on the current thread.
+ * </p>
+ *
+ * <p>
+ * There is a single tracker per thread. Calls of other threads on the same object are therefore never treated as
+ * internal calls.
+ * </p>
+ *
+ * @author ast
+ */
+public final class InternalCallTracker {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final ThreadLocal<InternalCallTracker> INSTANCE = new ThreadLocal<InternalCallTracker>() {
+        @Override
+        protected InternalCallTracker initialValue() {
+            return new InternalCallTracker();
+        }
+    };
+
+    /**
+     * @return the tracker of the current thread
+     */
+    public static InternalCallTracker current()  {
+        return INSTANCE.get();
+    }
+
+    private Object[] objects = new Object[INITIAL_CAPACITY];
+    private int depth = 0;
+
+    private InternalCallTracker() {}
+
+    /**
+     * Registers a call of one of the methods of <tt>object</tt>. Every call to this method has to be followed by
+     * a call to {@link #exit()} on the same tracker.
+     *
+     * @param object the object whose method is called
+     * @return whether <tt>object</tt> was already executing one of its methods on the current thread
+     */
+    public boolean enter(final Object object)  {
+        boolean internal = false;
+        for (int i = depth - 1; i >= 0; i--)  {
+            if (objects[i] == object)  {
+                internal = true;
+                break;
+            }
+        }
+
+        if (depth == objects.length)  {
+            final Object[] newObjects = new Object[depth * 2];
+            System.arraycopy(objects, 0, newObjects, 0, depth);
+            objects = newObjects;
+        }
+
+        objects[depth++] = object;
+        return internal;
+    }
+
+    /**
+     * Unregisters the last call registered with {@link #enter(Object)}.
+     */
+    public void exit()  {
+        if (depth == 0) return;
+
+        objects[--depth] = null;
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Log-linear latency histogram of a single contract site with a fixed number of buckets. Values below
+ * <tt>16</tt> nanoseconds have a bucket of their own, above that every power of two is divided into <tt>16</tt>
+ * linear sub-buckets, so a recorded value is off by less than <tt>6.25%</tt>. Values beyond two to the power of
+ * <tt>40</tt> nanoseconds, about 18 minutes, are recorded in the last bucket.</p>
+ *
+ * <p>Recording is a single atomic increment of the bucket and of the totals, snapshots are copies of all
+ * counters.</p>
+ *
+ * @see ContractHistograms
+ *
+ * @author ast
+ */
+public final class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    // total count, total nanoseconds and maximum, followed by the buckets
+    private static final int COUNT = 0;
+    private static final int TOTAL = 1;
+    private static final int MAX = 2;
+    private static final int HEADER = 3;
+
+    private final int siteId;
+    private final ContractExecutionTracker.ContractExecution site;
+    private final long[] values;
+
+    private LatencyHistogram(final int siteId, final ContractExecutionTracker.ContractExecution site, final long[] values)  {
+        this.siteId = siteId;
+        this.site = site;
+        this.values = values;
+    }
+
+    static AtomicLongArray newCounters()  {
+        return new AtomicLongArray(HEADER + BUCKETS);
+    }
+
+    static void record(final AtomicLongArray counters, final long nanos)  {
+        final long value = Math.max(nanos, 0);
+
+        counters.incrementAndGet(HEADER + bucketIndex(value));
+        counters.incrementAndGet(COUNT);
+        counters.addAndGet(TOTAL, value);
+
+        long max = counters.get(MAX);
+        while (value > max && !counters.compareAndSet(MAX, max, value)) max = counters.get(MAX);
+    }
+
+    static LatencyHistogram copyOf(final int siteId, final AtomicLongArray counters)  {
+        final long[] values = new long[counters.length()];
+        for (int i = 0; i < values.length; i++) values[i] = counters.get(i);
+
+        return new LatencyHistogram(siteId, ContractExecutionTracker.site(siteId), values);
+    }
+
+    static int bucketIndex(final long value)  {
+        if (value < SUB_BUCKETS) return (int) value;
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @param index the bucket index
+     * @return the highest value recorded in the given bucket
+     */
+    static long highestValue(final int index)  {
+        if (index < SUB_BUCKETS) return index;
+
+        final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public int getSiteId() { return siteId; }
+    public String getClassName() { return site.getClassName(); }
+    public String getMethodIdentifier() { return site.getMethodIdentifier(); }
+    public String getAssertionType() { return site.getAssertionType(); }
+
+    /**
+     * @return the number of recorded evaluations
+     */
+    public long getCount()  {
+        return values[COUNT];
+    }
+
+    /**
+     * @return the sum of all recorded evaluation times in nanoseconds
+     */
+    public long getTotalNanos()  {
+        return values[TOTAL];
+    }
+
+    /**
+     * @return the longest recorded evaluation time in nanoseconds
+     */
+    public long getMaxNanos()  {
+        return values[MAX];
+    }
+
+    /**
+     * @param percentile the percentile, e.g. <tt>99.0</tt>
+     * @return the evaluation time in nanoseconds the given percentage of evaluations did not exceed, at the
+     * precision of the histogram
+     */
+    public long getValueAtPercentile(final double percentile)  {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) count += values[HEADER + i];
+        if (count == 0) return 0;
+
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)  {
+            seen += values[HEADER + i];
+            if (seen >= rank) return Math.min(highestValue(i), getMaxNanos());
+        }
+
+        return getMaxNanos();
+    }
+
+    @Override
+    public String toString() {
+        return siteId + " " + site + ": count=" + getCount() + ", totalNanos=" + getTotalNanos() + ", p50=" + getValueAtPercentile(50.0)
+                + ", p99=" + getValueAtPercentile(99.0) + ", p999=" + getValueAtPercentile(99.9) + ", max=" + getMaxNanos();
+    }
+}
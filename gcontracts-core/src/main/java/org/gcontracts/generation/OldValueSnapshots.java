@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+import org.codehaus.groovy.runtime.InvokerHelper;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Takes the snapshots of collection and map fields referenced as <tt>old</tt> values in postconditions.</p>
+ *
+ * <p>By default collections and maps are cloned. As cloning is proportional to the size of the collection,
+ * other strategies can be registered for specific types, e.g. {@link #IDENTITY} for persistent or immutable
+ * collections:</p>
+ *
+ * <pre>
+ *     OldValueSnapshots.register(PersistentList, OldValueSnapshots.IDENTITY)
+ * </pre>
+ *
+ * <p>If a postcondition only calls <tt>size()</tt> or <tt>isEmpty()</tt> on an <tt>old</tt> collection, the
+ * transformation captures a {@link SizeSnapshot} with {@link #size(Object)} and no strategy is involved.</p>
+ *
+ * @author ast
+ */
+public final class OldValueSnapshots {
+
+    /**
+     * Clones the given value, the default strategy for all collections and maps.
+     */
+    public static final SnapshotStrategy CLONE = new SnapshotStrategy() {
+        public Object snapshot(Object value) {
+            return InvokerHelper.invokeMethod(value, "clone", null);
+        }
+    };
+
+    /**
+     * Keeps a reference to the given value, only safe for collections which are never modified in place.
+     */
+    public static final SnapshotStrategy IDENTITY = new SnapshotStrategy() {
+        public Object snapshot(Object value) {
+            return value;
+        }
+    };
+
+    /**
+     * Only keeps the size of the given collection or map.
+     */
+    public static final SnapshotStrategy SIZE = new SnapshotStrategy() {
+        public Object snapshot(Object value) {
+            return size(value);
+        }
+    };
+
+    private static final Map<Class<?>, SnapshotStrategy> registeredStrategies = new HashMap<Class<?>, SnapshotStrategy>();
+    private static final Map<Class<?>, SnapshotStrategy> resolvedStrategies = new ConcurrentHashMap<Class<?>, SnapshotStrategy>();
+
+    private OldValueSnapshots() {}
+
+    /**
+     * Registers the {@link SnapshotStrategy} used for all values of the given <tt>type</tt> and its sub-types, unless
+     * a more specific type has been registered.
+     *
+     * @param type the collection or map type
+     * @param strategy the {@link SnapshotStrategy} to use, <tt>null</tt> to remove the registration
+     */
+    public static void register(final Class<?> type, final SnapshotStrategy strategy)  {
+        synchronized (registeredStrategies)  {
+            if (strategy == null) {
+                registeredStrategies.remove(type);
+            } else {
+                registeredStrategies.put(type, strategy);
+            }
+            resolvedStrategies.clear();
+        }
+    }
+
+    /**
+     * Takes the snapshot of the given collection or map with the {@link SnapshotStrategy} registered for its type.
+     *
+     * @param value the current field value
+     * @return the snapshot or <tt>null</tt> if <tt>value</tt> is <tt>null</tt>
+     */
+    public static Object snapshot(final Object value)  {
+        if (value == null) return null;
+
+        final Class<?> type = value.getClass();
+        SnapshotStrategy strategy = resolvedStrategies.get(type);
+        if (strategy == null) strategy = resolveStrategy(type);
+
+        return strategy.snapshot(value);
+    }
+
+    /**
+     * Takes the size projection of the given collection or map.
+     *
+     * @param value the current field value
+     * @return the {@link SizeSnapshot} or <tt>null</tt> if <tt>value</tt> is <tt>null</tt>
+     */
+    public static SizeSnapshot size(final Object value)  {
+        if (value == null) return null;
+
+        if (value instanceof Collection) return new SizeSnapshot(((Collection) value).size());
+        if (value instanceof Map) return new SizeSnapshot(((Map) value).size());
+
+        return new SizeSnapshot(InvokerHelper.asList(value).size());
+    }
+
+    private static SnapshotStrategy resolveStrategy(final Class<?> type)  {
+        synchronized (registeredStrategies)  {
+            SnapshotStrategy strategy = null;
+            for (Class<?> next = type; next != null && strategy == null; next = next.getSuperclass())  {
+                strategy = registeredStrategies.get(next);
+                if (strategy == null) strategy = resolveInterfaceStrategy(next.getInterfaces());
+            }
+            if (strategy == null) strategy = CLONE;
+
+            resolvedStrategies.put(type, strategy);
+            return strategy;
+        }
+    }
+
+    private static SnapshotStrategy resolveInterfaceStrategy(final Class<?>[] interfaces)  {
+        for (Class<?> next : interfaces)  {
+            final SnapshotStrategy strategy = registeredStrategies.get(next);
+            if (strategy != null) return strategy;
+
+            final SnapshotStrategy superInterfaceStrategy = resolveInterfaceStrategy(next.getInterfaces());
+            if (superInterfaceStrategy != null) return superInterfaceStrategy;
+        }
+
+        return null;
+    }
+
+    /**
+     * The size of a collection or map at the time the snapshot has been taken.
+     */
+    public static final class SizeSnapshot {
+
+        private final int size;
+
+        public SizeSnapshot(final int size)  {
+            this.size = size;
+        }
+
+        public int size() { return size; }
+        public boolean isEmpty() { return size == 0; }
+
+        @Override
+        public String toString() {
+            return "[size: " + size + "]";
+        }
+    }
+}
@@ -24,14 +24,19 @@ package org.gcontracts.generation;
 
 import org.codehaus.groovy.ast.*;
 import org.codehaus.groovy.ast.expr.*;
-import org.codehaus.groovy.ast.stmt.BlockStatement;
-import org.codehaus.groovy.ast.stmt.ExpressionStatement;
-import org.codehaus.groovy.ast.stmt.ReturnStatement;
+import org.codehaus.groovy.ast.stmt.*;
 import org.codehaus.groovy.syntax.Token;
 import org.codehaus.groovy.syntax.Types;
 import org.objectweb.asm.Opcodes;
 
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * <p>Central place where code generation for the <tt>old</tt> closure variable
@@ -42,6 +47,15 @@ import java.util.Map;
 public class OldVariableGenerationUtility {
 
     public static final String OLD_VARIABLES_METHOD = "$_gc_computeOldVariables";
+    public static final String META_DATA_OLD_VARIABLES = "org.gcontracts.META_DATA.OLD_VARIABLES";
+    public static final String META_DATA_OLD_VARIABLE_SIZE_PROJECTIONS = "org.gcontracts.META_DATA.OLD_VARIABLE_SIZE_PROJECTIONS";
+
+    private static final String OLD_VARIABLE_NAME = "old";
+
+    private static final ClassNode COLLECTION_TYPE = ClassHelper.makeWithoutCaching(Collection.class);
+    private static final ClassNode MAP_TYPE = ClassHelper.makeWithoutCaching(Map.class);
+    private static final ClassNode OLD_VALUE_SNAPSHOTS_TYPE = ClassHelper.makeWithoutCaching(OldValueSnapshots.class);
+    private static final ClassNode SIZE_SNAPSHOT_TYPE = ClassHelper.makeWithoutCaching(OldValueSnapshots.SizeSnapshot.class);
 
     /**
      * Creates a synthetic method handling generation of the <tt>old</tt> variable map. If a super class declares
@@ -60,50 +74,19 @@ public class OldVariableGenerationUtility {
         for (final FieldNode fieldNode : classNode.getFields())   {
             if (fieldNode.getName().startsWith("$")) continue;
 
-            final ClassNode fieldType = ClassHelper.getWrapper(fieldNode.getType());
-
-            if (fieldType.getName().startsWith("java.lang") || ClassHelper.isPrimitiveType(fieldType) || fieldType.getName().startsWith("java.math") ||
-                    fieldType.getName().startsWith("java.util") ||
-                    fieldType.getName().startsWith("java.sql") ||
-                    fieldType.getName().equals("groovy.lang.GString")  ||
-                    fieldType.getName().equals("java.lang.String"))  {
+            final Expression oldValueExpression = createOldValueExpression(fieldNode, false);
+            if (oldValueExpression == null) continue;
 
-                MethodNode cloneMethod = fieldType.getMethod("clone", Parameter.EMPTY_ARRAY);
-                // if a clone classNode is available, the value is cloned
-                if (cloneMethod != null && fieldType.implementsInterface(ClassHelper.make("java.lang.Cloneable")))  {
-                    VariableExpression oldVariable = new VariableExpression("$old$" + fieldNode.getName(), fieldNode.getType());
-                    oldVariable.setAccessedVariable(oldVariable);
-
-                    final MethodCallExpression methodCall = new MethodCallExpression(new FieldExpression(fieldNode), "clone", ArgumentListExpression.EMPTY_ARGUMENTS);
-                    // return null if field is null
-                    methodCall.setSafe(true);
-
-                    ExpressionStatement oldVariableAssignment = new ExpressionStatement(
-                        new DeclarationExpression(oldVariable,
-                        Token.newSymbol(Types.ASSIGN, -1, -1),
-                                methodCall));
+            VariableExpression oldVariable = new VariableExpression("$old$" + fieldNode.getName(), fieldNode.getType());
+            oldVariable.setAccessedVariable(oldVariable);
 
-                    methodBlockStatement.addStatement(oldVariableAssignment);
-                    oldVariablesMap.addMapEntryExpression(new MapEntryExpression(new ConstantExpression(oldVariable.getName().substring("$old$".length())), oldVariable));
-
-                } else if (ClassHelper.isPrimitiveType(fieldType)
-                        || ClassHelper.isNumberType(fieldType)
-                        || fieldType.getName().startsWith("java.math")
-                        || fieldType.getName().equals("groovy.lang.GString")
-                        || fieldType.getName().equals("java.lang.String")) {
-
-                    VariableExpression oldVariable = new VariableExpression("$old$" + fieldNode.getName(), fieldNode.getType());
-                    oldVariable.setAccessedVariable(oldVariable);
-
-                    ExpressionStatement oldVariableAssignment = new ExpressionStatement(
-                        new DeclarationExpression(oldVariable,
-                        Token.newSymbol(Types.ASSIGN, -1, -1),
-                        new FieldExpression(fieldNode)));
+            ExpressionStatement oldVariableAssignment = new ExpressionStatement(
+                new DeclarationExpression(oldVariable,
+                Token.newSymbol(Types.ASSIGN, -1, -1),
+                oldValueExpression));
 
-                    methodBlockStatement.addStatement(oldVariableAssignment);
-                    oldVariablesMap.addMapEntryExpression(new MapEntryExpression(new ConstantExpression(oldVariable.getName().substring("$old$".length())), oldVariable));
-                }
-            }
+            methodBlockStatement.addStatement(oldVariableAssignment);
+            oldVariablesMap.addMapEntryExpression(new MapEntryExpression(new ConstantExpression(fieldNode.getName()), oldVariable));
         }
 
         VariableExpression oldVariable = new VariableExpression("old", new ClassNode(Map.class));
@@ -138,4 +121,426 @@ public class OldVariableGenerationUtility {
         preconditionMethodNode.setSynthetic(true);
 
     }
+
+    /**
+     * Creates the expression computing the <tt>old</tt> variable map of a single method. If the names of all
+     * <tt>old</tt> entries referenced by the method's postconditions are known, only these fields are captured. If no
+     * entry is referenced at all, <tt>null</tt> is returned. In all other cases the synthetic method created by
+     * {@link #addOldVariableMethodNode(org.codehaus.groovy.ast.ClassNode)} is called.
+     *
+     * @param classNode the {@link org.codehaus.groovy.ast.ClassNode} declaring the method with postconditions
+     * @param oldVariableNames the referenced <tt>old</tt> entries as returned by {@link #getReferencedOldVariables(org.codehaus.groovy.ast.ASTNode)}
+     * @param sizeProjectedNames the <tt>old</tt> entries only used for their size as returned by {@link #getSizeProjectedOldVariables(org.codehaus.groovy.ast.ASTNode)}
+     * @return the expression to be assigned to the <tt>old</tt> variable or <tt>null</tt> if <tt>old</tt> is not needed
+     */
+    public static Expression createOldVariablesExpression(final ClassNode classNode, final Set<String> oldVariableNames, final Set<String> sizeProjectedNames)  {
+        final MethodCallExpression computeAllOldVariables = new MethodCallExpression(VariableExpression.THIS_EXPRESSION, OLD_VARIABLES_METHOD, ArgumentListExpression.EMPTY_ARGUMENTS);
+        if (oldVariableNames == null) return computeAllOldVariables;
+        if (oldVariableNames.isEmpty()) return null;
+
+        final MapExpression oldVariablesMap = new MapExpression();
+        for (String name : oldVariableNames)  {
+            // synthetic fields are never part of the old variables map
+            if (name.startsWith("$")) continue;
+
+            final FieldNode fieldNode = getOldVariableFieldNode(classNode, name);
+            // unknown field or ambiguous super class entry, let's compute all entries like the synthetic method does
+            if (fieldNode == null) return computeAllOldVariables;
+
+            final Expression oldValueExpression = createOldValueExpression(fieldNode, sizeProjectedNames.contains(name));
+            if (oldValueExpression == null) continue;
+
+            oldVariablesMap.addMapEntryExpression(new MapEntryExpression(new ConstantExpression(name), oldValueExpression));
+        }
+
+        return oldVariablesMap;
+    }
+
+    /**
+     * Collects the names of all <tt>old</tt> entries referenced as <tt>old.name</tt> or <tt>old['name']</tt> in the
+     * given <tt>node</tt>. Calls to contract closures passing <tt>old</tt> are resolved by the names stored in the
+     * {@link #META_DATA_OLD_VARIABLES} meta data of the closure class.
+     *
+     * @param node the {@link org.codehaus.groovy.ast.ASTNode} to analyse
+     * @return the referenced <tt>old</tt> entries or <tt>null</tt> if <tt>old</tt> is used in any other way
+     */
+    public static Set<String> getReferencedOldVariables(final ASTNode node)  {
+        final OldVariableUsageVisitor visitor = new OldVariableUsageVisitor();
+        node.visit(visitor);
+
+        return visitor.isUnknownUsage() ? null : visitor.getNames();
+    }
+
+    /**
+     * Collects the names of all <tt>old</tt> entries in the given <tt>node</tt> which are only used as
+     * <tt>old.name.size()</tt>, <tt>old.name.isEmpty()</tt> or <tt>old.name.empty</tt>. For collection and map
+     * fields it is sufficient to capture the size of these entries.
+     *
+     * @param node the {@link org.codehaus.groovy.ast.ASTNode} to analyse
+     * @return the size projected <tt>old</tt> entries, never <tt>null</tt>
+     */
+    public static Set<String> getSizeProjectedOldVariables(final ASTNode node)  {
+        final OldVariableUsageVisitor visitor = new OldVariableUsageVisitor();
+        node.visit(visitor);
+
+        return visitor.getSizeProjectedNames();
+    }
+
+    /**
+     * Creates typed local variables for all <tt>old</tt> entries referenced in the given inline mode
+     * <tt>blockStatement</tt>. The returned {@link TypedOldVariables} holds a copy of the block statement with every
+     * <tt>old.name</tt> and <tt>old['name']</tt> reference replaced by a local variable of the field's declared type,
+     * so primitive values are neither boxed nor stored in a map. The original block statement is left untouched.
+     *
+     * @param classNode the {@link org.codehaus.groovy.ast.ClassNode} declaring the method with postconditions
+     * @param blockStatement the inline mode {@link org.codehaus.groovy.ast.stmt.BlockStatement} of the postcondition
+     * @return the typed <tt>old</tt> variables or <tt>null</tt> if the <tt>old</tt> variable map is needed
+     */
+    public static TypedOldVariables createTypedOldVariables(final ClassNode classNode, final BlockStatement blockStatement)  {
+        final Set<String> oldVariableNames = getReferencedOldVariables(blockStatement);
+        if (oldVariableNames == null || oldVariableNames.isEmpty()) return null;
+
+        final Set<String> sizeProjectedNames = getSizeProjectedOldVariables(blockStatement);
+
+        final TypedOldVariables typedOldVariables = new TypedOldVariables();
+        for (String name : oldVariableNames)  {
+            if (name.startsWith("$")) return null;
+
+            final FieldNode fieldNode = getOldVariableFieldNode(classNode, name);
+            if (fieldNode == null) return null;
+
+            final boolean sizeProjection = sizeProjectedNames.contains(name);
+            final Expression oldValueExpression = createOldValueExpression(fieldNode, sizeProjection);
+            if (oldValueExpression == null) return null;
+
+            final ClassNode oldVariableType;
+            if (isCollectionOrMap(fieldNode.getType()))  {
+                // the registered snapshot strategy decides on the type of the snapshot
+                oldVariableType = sizeProjection ? SIZE_SNAPSHOT_TYPE : ClassHelper.OBJECT_TYPE;
+            } else {
+                oldVariableType = ClassHelper.isPrimitiveType(fieldNode.getType()) ? fieldNode.getType() : fieldNode.getType().getPlainNodeReference();
+            }
+
+            final VariableExpression oldVariable = new VariableExpression("$old$" + name, oldVariableType);
+            oldVariable.setAccessedVariable(oldVariable);
+
+            typedOldVariables.variables.put(name, oldVariable);
+            typedOldVariables.values.put(name, oldValueExpression);
+        }
+
+        final BlockStatement typedBlockStatement = (BlockStatement) typedOldVariables.copy(blockStatement);
+
+        // old might be used in statements or closures which are not copied
+        final Set<String> remainingOldVariableNames = getReferencedOldVariables(typedBlockStatement);
+        if (remainingOldVariableNames == null || !remainingOldVariableNames.isEmpty()) return null;
+
+        typedOldVariables.blockStatement = typedBlockStatement;
+        return typedOldVariables;
+    }
+
+    private static FieldNode getOldVariableFieldNode(final ClassNode classNode, final String name)  {
+        final List<FieldNode> candidates = new ArrayList<FieldNode>();
+
+        ClassNode next = classNode;
+        while (next != null)  {
+            // only classes with an old variables method contribute to the old variables map
+            if (next == classNode || next.getDeclaredMethod(OLD_VARIABLES_METHOD, Parameter.EMPTY_ARRAY) != null)  {
+                final FieldNode fieldNode = next.getDeclaredField(name);
+                if (fieldNode != null) candidates.add(fieldNode);
+            }
+            next = next.getSuperClass();
+        }
+
+        if (candidates.size() != 1) return null;
+
+        final FieldNode fieldNode = candidates.get(0);
+        if (fieldNode.getDeclaringClass() == classNode) return fieldNode;
+
+        final int modifiers = fieldNode.getModifiers();
+        if (Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers)) return fieldNode;
+        if (!Modifier.isPrivate(modifiers) && samePackage(classNode, fieldNode.getDeclaringClass())) return fieldNode;
+
+        return null;
+    }
+
+    private static boolean samePackage(final ClassNode first, final ClassNode second)  {
+        final String firstPackage = first.getPackageName();
+        final String secondPackage = second.getPackageName();
+
+        return firstPackage == null ? secondPackage == null : firstPackage.equals(secondPackage);
+    }
+
+    private static Expression createOldValueExpression(final FieldNode fieldNode, final boolean sizeProjection)  {
+        final ClassNode fieldType = ClassHelper.getWrapper(fieldNode.getType());
+
+        // only the size of the collection is needed, no matter how big it is
+        if (sizeProjection && isCollectionOrMap(fieldType))  {
+            return new StaticMethodCallExpression(OLD_VALUE_SNAPSHOTS_TYPE, "size", new ArgumentListExpression(new FieldExpression(fieldNode)));
+        }
+
+        if (fieldType.getName().startsWith("java.lang") || ClassHelper.isPrimitiveType(fieldType) || fieldType.getName().startsWith("java.math") ||
+                fieldType.getName().startsWith("java.util") ||
+                fieldType.getName().startsWith("java.sql") ||
+                fieldType.getName().equals("groovy.lang.GString")  ||
+                fieldType.getName().equals("java.lang.String"))  {
+
+            MethodNode cloneMethod = fieldType.getMethod("clone", Parameter.EMPTY_ARRAY);
+            // if a clone classNode is available, the value is cloned
+            if (cloneMethod != null && fieldType.implementsInterface(ClassHelper.make("java.lang.Cloneable")))  {
+                // collections and maps are subject to the registered snapshot strategy
+                if (isCollectionOrMap(fieldType))  {
+                    return new StaticMethodCallExpression(OLD_VALUE_SNAPSHOTS_TYPE, "snapshot", new ArgumentListExpression(new FieldExpression(fieldNode)));
+                }
+
+                final MethodCallExpression methodCall = new MethodCallExpression(new FieldExpression(fieldNode), "clone", ArgumentListExpression.EMPTY_ARGUMENTS);
+                // return null if field is null
+                methodCall.setSafe(true);
+
+                return methodCall;
+
+            } else if (ClassHelper.isPrimitiveType(fieldType)
+                    || ClassHelper.isNumberType(fieldType)
+                    || fieldType.getName().startsWith("java.math")
+                    || fieldType.getName().equals("groovy.lang.GString")
+                    || fieldType.getName().equals("java.lang.String")) {
+
+                return new FieldExpression(fieldNode);
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isCollectionOrMap(final ClassNode type)  {
+        return type.equals(COLLECTION_TYPE) || type.implementsInterface(COLLECTION_TYPE) || type.equals(MAP_TYPE) || type.implementsInterface(MAP_TYPE);
+    }
+
+    /**
+     * Collects the <tt>old</tt> entries referenced in contract code.
+     */
+    static class OldVariableUsageVisitor extends CodeVisitorSupport {
+
+        private final Set<String> names = new HashSet<String>();
+        private final Set<String> fullyUsedNames = new HashSet<String>();
+        private final Set<String> sizeProjectedNames = new HashSet<String>();
+        private boolean unknownUsage = false;
+
+        @Override
+        public void visitPropertyExpression(PropertyExpression expression) {
+            final String name = getOldVariableName(expression);
+            if (name != null)  {
+                names.add(name);
+                fullyUsedNames.add(name);
+                return;
+            }
+
+            final String projectedName = getOldVariableName(expression.getObjectExpression());
+            if (projectedName != null && "empty".equals(expression.getPropertyAsString()))  {
+                names.add(projectedName);
+                sizeProjectedNames.add(projectedName);
+                return;
+            }
+
+            super.visitPropertyExpression(expression);
+        }
+
+        @Override
+        public void visitBinaryExpression(BinaryExpression expression) {
+            final String name = getOldVariableName(expression);
+            if (name != null)  {
+                names.add(name);
+                fullyUsedNames.add(name);
+                expression.getRightExpression().visit(this);
+                return;
+            }
+
+            super.visitBinaryExpression(expression);
+        }
+
+        @Override
+        public void visitMethodCallExpression(MethodCallExpression call) {
+            final String projectedName = getOldVariableName(call.getObjectExpression());
+            if (projectedName != null && ("size".equals(call.getMethodAsString()) || "isEmpty".equals(call.getMethodAsString())) &&
+                    call.getArguments() instanceof TupleExpression && ((TupleExpression) call.getArguments()).getExpressions().isEmpty())  {
+
+                names.add(projectedName);
+                sizeProjectedNames.add(projectedName);
+                return;
+            }
+
+            final MethodNode methodTarget = call.getMethodTarget();
+
+            if ("doCall".equals(call.getMethodAsString()) && methodTarget != null && methodTarget.getDeclaringClass() != null)  {
+                final ClassNode closureClassNode = methodTarget.getDeclaringClass().redirect();
+
+                @SuppressWarnings("unchecked")
+                final Set<String> closureOldVariables = (Set<String>) closureClassNode.getNodeMetaData(META_DATA_OLD_VARIABLES);
+                @SuppressWarnings("unchecked")
+                final Set<String> closureSizeProjections = (Set<String>) closureClassNode.getNodeMetaData(META_DATA_OLD_VARIABLE_SIZE_PROJECTIONS);
+
+                if (closureOldVariables != null)  {
+                    names.addAll(closureOldVariables);
+                    for (String name : closureOldVariables)  {
+                        if (closureSizeProjections != null && closureSizeProjections.contains(name))  {
+                            sizeProjectedNames.add(name);
+                        } else {
+                            fullyUsedNames.add(name);
+                        }
+                    }
+
+                    call.getObjectExpression().visit(this);
+                    for (Expression argument : ((TupleExpression) call.getArguments()).getExpressions())  {
+                        if (!isOldVariable(argument)) argument.visit(this);
+                    }
+                    return;
+                }
+            }
+
+            super.visitMethodCallExpression(call);
+        }
+
+        @Override
+        public void visitVariableExpression(VariableExpression expression) {
+            if (isOldVariable(expression)) unknownUsage = true;
+        }
+
+        public Set<String> getNames() {
+            return names;
+        }
+
+        public Set<String> getSizeProjectedNames() {
+            final Set<String> result = new HashSet<String>(sizeProjectedNames);
+            result.removeAll(fullyUsedNames);
+
+            return result;
+        }
+
+        public boolean isUnknownUsage() {
+            return unknownUsage;
+        }
+    }
+
+    /**
+     * Typed local variables replacing the <tt>old</tt> variable map in an inline mode postcondition.
+     */
+    public static class TypedOldVariables implements ExpressionTransformer {
+
+        private final Map<String, VariableExpression> variables = new HashMap<String, VariableExpression>();
+        private final Map<String, Expression> values = new HashMap<String, Expression>();
+
+        private BlockStatement blockStatement;
+
+        private TypedOldVariables() {}
+
+        /**
+         * @return the postcondition {@link org.codehaus.groovy.ast.stmt.BlockStatement} referencing the typed local variables
+         */
+        public BlockStatement getBlockStatement() {
+            return blockStatement;
+        }
+
+        /**
+         * @return the typed local variables, keyed by the name of the <tt>old</tt> entry
+         */
+        public Map<String, VariableExpression> getVariables() {
+            return variables;
+        }
+
+        /**
+         * @return the expressions computing the values of the typed local variables, keyed by the name of the <tt>old</tt> entry
+         */
+        public Map<String, Expression> getValues() {
+            return values;
+        }
+
+        public Expression transform(Expression expression) {
+            if (expression == null) return null;
+
+            final String name = getOldVariableName(expression);
+            final VariableExpression oldVariable = name != null ? variables.get(name) : null;
+            if (oldVariable != null)  {
+                final VariableExpression result = new VariableExpression(oldVariable.getName(), oldVariable.getOriginType());
+                result.setAccessedVariable(oldVariable);
+                result.setSourcePosition(expression);
+
+                return result;
+            }
+
+            return expression.transformExpression(this);
+        }
+
+        private Statement copy(final Statement statement)  {
+            if (statement instanceof BlockStatement)  {
+                final BlockStatement blockStatement = (BlockStatement) statement;
+                final BlockStatement result = new BlockStatement(new ArrayList<Statement>(), blockStatement.getVariableScope());
+                for (Statement nestedStatement : blockStatement.getStatements())  {
+                    result.addStatement(copy(nestedStatement));
+                }
+                result.setSourcePosition(blockStatement);
+                result.copyNodeMetaData(blockStatement);
+
+                return result;
+
+            } else if (statement instanceof TryCatchStatement)  {
+                final TryCatchStatement tryCatchStatement = (TryCatchStatement) statement;
+                final TryCatchStatement result = new TryCatchStatement(copy(tryCatchStatement.getTryStatement()), tryCatchStatement.getFinallyStatement());
+                for (CatchStatement catchStatement : tryCatchStatement.getCatchStatements())  {
+                    result.addCatch(catchStatement);
+                }
+                result.setSourcePosition(tryCatchStatement);
+
+                return result;
+
+            } else if (statement instanceof IfStatement)  {
+                final IfStatement ifStatement = (IfStatement) statement;
+                final IfStatement result = new IfStatement((BooleanExpression) transform(ifStatement.getBooleanExpression()), copy(ifStatement.getIfBlock()), copy(ifStatement.getElseBlock()));
+                result.setSourcePosition(ifStatement);
+
+                return result;
+
+            } else if (statement instanceof AssertStatement)  {
+                final AssertStatement assertStatement = (AssertStatement) statement;
+                final AssertStatement result = new AssertStatement((BooleanExpression) transform(assertStatement.getBooleanExpression()), assertStatement.getMessageExpression());
+                result.setSourcePosition(assertStatement);
+                result.setStatementLabel(assertStatement.getStatementLabel());
+
+                return result;
+
+            } else if (statement instanceof ExpressionStatement)  {
+                final ExpressionStatement expressionStatement = (ExpressionStatement) statement;
+                final ExpressionStatement result = new ExpressionStatement(transform(expressionStatement.getExpression()));
+                result.setSourcePosition(expressionStatement);
+                result.setStatementLabel(expressionStatement.getStatementLabel());
+
+                return result;
+            }
+
+            return statement;
+        }
+    }
+
+    /**
+     * Returns the name of the <tt>old</tt> entry if the given <tt>expression</tt> is <tt>old.name</tt>
+     * or <tt>old['name']</tt>, otherwise <tt>null</tt>.
+     */
+    private static String getOldVariableName(final Expression expression)  {
+        if (expression instanceof PropertyExpression && isOldVariable(((PropertyExpression) expression).getObjectExpression()) &&
+                ((PropertyExpression) expression).getProperty() instanceof ConstantExpression)  {
+
+            return ((PropertyExpression) expression).getPropertyAsString();
+        }
+
+        if (expression instanceof BinaryExpression && ((BinaryExpression) expression).getOperation().getType() == Types.LEFT_SQUARE_BRACKET &&
+                isOldVariable(((BinaryExpression) expression).getLeftExpression()) && ((BinaryExpression) expression).getRightExpression() instanceof ConstantExpression)  {
+
+            final Object value = ((ConstantExpression) ((BinaryExpression) expression).getRightExpression()).getValue();
+            return value instanceof String ? (String) value : null;
+        }
+
+        return null;
+    }
+
+    private static boolean isOldVariable(final Expression expression)  {
+        return expression instanceof VariableExpression && OLD_VARIABLE_NAME.equals(((VariableExpression) expression).getName());
+    }
 }
@@ -30,7 +30,6 @@ import org.codehaus.groovy.syntax.Token;
 import org.codehaus.groovy.syntax.Types;
 import org.gcontracts.annotations.meta.Postcondition;
 import org.gcontracts.ast.visitor.AnnotationClosureVisitor;
-import org.gcontracts.ast.visitor.BaseVisitor;
 import org.gcontracts.util.AnnotationUtils;
 
 import java.util.ArrayList;
@@ -46,6 +45,8 @@ import java.util.Map;
  */
 public class PostconditionGenerator extends BaseGenerator {
 
+    private static final String META_DATA_OLD_VARIABLE_DECLARATION = "org.gcontracts.OLD_VARIABLE_DECLARATION";
+
     public PostconditionGenerator(final ReaderSource source) {
         super(source);
     }
@@ -72,19 +73,32 @@ public class PostconditionGenerator extends BaseGenerator {
         final BooleanExpression postconditionBooleanExpression = addCallsToSuperMethodNodeAnnotationClosure(method.getDeclaringClass(), method, Postcondition.class, postcondition.booleanExpression(), true);
 
 
+        final VariableExpression enabledVariableExpression = createEnabledVariableExpression(method);
+        final BooleanExpression enabledExpression = enabledVariableExpression != null ? new BooleanExpression(enabledVariableExpression) : contractEnabledExpression(method.getDeclaringClass(), method, "postcondition");
+
         BlockStatement blockStatement;
+        List<Statement> oldVariableStatements = null;
         final BlockStatement originalBlockStatement = postcondition.originalBlockStatement();
         // if use execution tracker flag is found in the meta-data the annotation closure visitor discovered
         // method calls which might be subject to cycling boolean expressions -> no inline mode possible
         final boolean useExecutionTracker = originalBlockStatement == null || Boolean.TRUE.equals(originalBlockStatement.getNodeMetaData(AnnotationClosureVisitor.META_DATA_USE_EXECUTION_TRACKER));
 
         if (!useExecutionTracker && Boolean.TRUE.equals(method.getNodeMetaData(META_DATA_USE_INLINE_MODE)))  {
-            blockStatement = getInlineModeBlockStatement(originalBlockStatement);
+            // in inline mode old values can be kept in typed local variables instead of the old variables map
+            final OldVariableGenerationUtility.TypedOldVariables typedOldVariables = method instanceof ConstructorNode ? null : OldVariableGenerationUtility.createTypedOldVariables(method.getDeclaringClass(), originalBlockStatement);
+            if (typedOldVariables != null)  {
+                blockStatement = getInlineModeBlockStatement(method.getDeclaringClass(), method, "postcondition", enabledExpression, typedOldVariables.getBlockStatement());
+                oldVariableStatements = createTypedOldVariableStatements(typedOldVariables, enabledExpression);
+            } else {
+                blockStatement = getInlineModeBlockStatement(method.getDeclaringClass(), method, "postcondition", enabledExpression, originalBlockStatement);
+            }
         } else {
-            blockStatement = wrapAssertionBooleanExpression(method.getDeclaringClass(), method, postconditionBooleanExpression, "postcondition");
+            blockStatement = wrapAssertionBooleanExpression(method.getDeclaringClass(), method, postconditionBooleanExpression, "postcondition", enabledExpression);
         }
 
-        addPostcondition(method, blockStatement);
+        if (oldVariableStatements == null) oldVariableStatements = createOldVariableStatements(method, blockStatement, enabledExpression);
+        addEnabledVariableDeclaration(method, enabledVariableExpression, oldVariableStatements);
+        addPostcondition(method, blockStatement, oldVariableStatements);
     }
 
     /**
@@ -105,19 +119,109 @@ public class PostconditionGenerator extends BaseGenerator {
         final BooleanExpression postconditionBooleanExpression = addCallsToSuperMethodNodeAnnotationClosure(method.getDeclaringClass(), method, Postcondition.class, new BooleanExpression(ConstantExpression.TRUE), true);
         if (postconditionBooleanExpression.getExpression() == ConstantExpression.TRUE) return;
 
-        final BlockStatement blockStatement = wrapAssertionBooleanExpression(type, method, postconditionBooleanExpression, "postcondition");
-        addPostcondition(method, blockStatement);
+        final VariableExpression enabledVariableExpression = createEnabledVariableExpression(method);
+        final BooleanExpression enabledExpression = enabledVariableExpression != null ? new BooleanExpression(enabledVariableExpression) : contractEnabledExpression(type, method, "postcondition");
+
+        final BlockStatement blockStatement = wrapAssertionBooleanExpression(type, method, postconditionBooleanExpression, "postcondition", enabledExpression);
+        final List<Statement> oldVariableStatements = createOldVariableStatements(method, blockStatement, enabledExpression);
+        addEnabledVariableDeclaration(method, enabledVariableExpression, oldVariableStatements);
+        addPostcondition(method, blockStatement, oldVariableStatements);
+    }
+
+    /**
+     * If contract checks are sampled or can be switched at runtime, the decision whether a postcondition is checked
+     * has to be made once before the method is executed, as old variables are only computed for checked invocations.
+     */
+    private VariableExpression createEnabledVariableExpression(MethodNode method)  {
+        if (!(GenerationOptions.isSampling() || GenerationOptions.isRuntimeEnablement()) || method instanceof ConstructorNode) return null;
+
+        final VariableExpression enabledVariableExpression = new VariableExpression("$_gc_postcondition_enabled", ClassHelper.boolean_TYPE);
+        enabledVariableExpression.setAccessedVariable(enabledVariableExpression);
+
+        return enabledVariableExpression;
+    }
+
+    private void addEnabledVariableDeclaration(MethodNode method, VariableExpression enabledVariableExpression, List<Statement> oldVariableStatements)  {
+        if (enabledVariableExpression == null) return;
+
+        oldVariableStatements.add(0, new ExpressionStatement(new DeclarationExpression(enabledVariableExpression,
+                Token.newSymbol(Types.ASSIGN, -1, -1),
+                contractEnabledExpression(method.getDeclaringClass(), method, "postcondition"))));
+    }
+
+    private List<Statement> createOldVariableStatements(MethodNode method, BlockStatement postconditionBlockStatement, BooleanExpression enabledExpression)  {
+        final List<Statement> statements = new ArrayList<Statement>();
+
+        final VariableExpression oldVariableExpression = new VariableExpression("old", new ClassNode(Map.class));
+        oldVariableExpression.setAccessedVariable(oldVariableExpression);
+
+        // an own and an inherited postcondition share a single old variable declaration
+        if (getOldVariableDeclaration(method) == null)  {
+            final Statement oldVariableDeclaration = new ExpressionStatement(new DeclarationExpression(oldVariableExpression, Token.newSymbol(Types.ASSIGN, -1, -1), ConstantExpression.NULL));
+            oldVariableDeclaration.setNodeMetaData(META_DATA_OLD_VARIABLE_DECLARATION, Boolean.TRUE);
+
+            statements.add(oldVariableDeclaration);
+        }
+
+        final Expression oldVariablesExpression = OldVariableGenerationUtility.createOldVariablesExpression(method.getDeclaringClass(),
+                OldVariableGenerationUtility.getReferencedOldVariables(postconditionBlockStatement),
+                OldVariableGenerationUtility.getSizeProjectedOldVariables(postconditionBlockStatement));
+        if (oldVariablesExpression != null)  {
+            final BlockStatement oldVariableIfBlock = new BlockStatement();
+            oldVariableIfBlock.addStatement(new ExpressionStatement(
+                    new BinaryExpression(oldVariableExpression,
+                            Token.newSymbol(Types.ASSIGN, -1, -1),
+                            oldVariablesExpression)));
+
+            statements.add(new IfStatement(enabledExpression, oldVariableIfBlock, new BlockStatement()));
+        }
+
+        return statements;
     }
 
-    private void addPostcondition(MethodNode method, BlockStatement postconditionBlockStatement) {
+    private List<Statement> createTypedOldVariableStatements(OldVariableGenerationUtility.TypedOldVariables typedOldVariables, BooleanExpression enabledExpression)  {
+        final List<Statement> statements = new ArrayList<Statement>();
+        final BlockStatement oldVariableIfBlock = new BlockStatement();
+
+        for (Map.Entry<String, VariableExpression> entry : typedOldVariables.getVariables().entrySet())  {
+            final VariableExpression oldVariableExpression = entry.getValue();
+
+            // declared without initial value, primitive variables are initialized with their default value
+            statements.add(new ExpressionStatement(new DeclarationExpression(oldVariableExpression, Token.newSymbol(Types.ASSIGN, -1, -1), EmptyExpression.INSTANCE)));
+            oldVariableIfBlock.addStatement(new ExpressionStatement(
+                    new BinaryExpression(oldVariableExpression,
+                            Token.newSymbol(Types.ASSIGN, -1, -1),
+                            typedOldVariables.getValues().get(entry.getKey()))));
+        }
+
+        statements.add(new IfStatement(enabledExpression, oldVariableIfBlock, new BlockStatement()));
+
+        return statements;
+    }
+
+    private Statement getOldVariableDeclaration(MethodNode method)  {
+        if (!(method.getCode() instanceof BlockStatement)) return null;
+
+        for (Statement statement : ((BlockStatement) method.getCode()).getStatements())  {
+            if (Boolean.TRUE.equals(statement.getNodeMetaData(META_DATA_OLD_VARIABLE_DECLARATION))) return statement;
+        }
+
+        return null;
+    }
+
+    private int getOldVariableStatementsIndex(MethodNode method, BlockStatement methodCode, List<Statement> oldVariableStatements)  {
+        final Statement oldVariableDeclaration = getOldVariableDeclaration(method);
+        if (oldVariableDeclaration == null) return 0;
+
+        return methodCode.getStatements().indexOf(oldVariableDeclaration) + 1;
+    }
+
+    private void addPostcondition(MethodNode method, BlockStatement postconditionBlockStatement, List<Statement> oldVariableStatements) {
         final BlockStatement methodCode = ((BlockStatement) method.getCode());
 
         // if return type is not void, than a "result" variable is provided in the postcondition expression
         final List<Statement> statements = methodCode.getStatements();
         if (statements.size() > 0)  {
-            VariableExpression enabledVariableExpression = new VariableExpression(BaseVisitor.GCONTRACTS_ENABLED_VAR, ClassHelper.boolean_TYPE);
-            enabledVariableExpression.setAccessedVariable(enabledVariableExpression);
-
             if (method.getReturnType() != ClassHelper.VOID_TYPE)  {
                 List<ReturnStatement> returnStatements = AssertStatementCreationUtility.getReturnStatements(method);
 
@@ -138,40 +242,13 @@ public class PostconditionGenerator extends BaseGenerator {
                     AssertStatementCreationUtility.injectResultVariableReturnStatementAndAssertionCallStatement(methodCode, method.getReturnType().redirect(), returnStatement, localPostconditionBlockStatement);
                 }
 
-                // Assign the return statement expression to a local variable of type Object
-                final VariableExpression oldVariableExpression = new VariableExpression("old", new ClassNode(Map.class));
-                oldVariableExpression.setAccessedVariable(oldVariableExpression);
-
-                ExpressionStatement oldVariabeStatement = new ExpressionStatement(
-                        new BinaryExpression(oldVariableExpression,
-                                Token.newSymbol(Types.ASSIGN, -1, -1),
-                                new MethodCallExpression(VariableExpression.THIS_EXPRESSION, OldVariableGenerationUtility.OLD_VARIABLES_METHOD, ArgumentListExpression.EMPTY_ARGUMENTS)));
-
-                final BlockStatement oldVariableIfBlock = new BlockStatement();
-                oldVariableIfBlock.addStatement(oldVariabeStatement);
-
-                methodCode.getStatements().add(0, new ExpressionStatement(new DeclarationExpression(oldVariableExpression, Token.newSymbol(Types.ASSIGN, -1, -1), ConstantExpression.NULL)));
-                methodCode.getStatements().add(1, new IfStatement(new BooleanExpression(enabledVariableExpression), oldVariableIfBlock, new BlockStatement()));
+                methodCode.getStatements().addAll(getOldVariableStatementsIndex(method, methodCode, oldVariableStatements), oldVariableStatements);
 
             } else if (method instanceof ConstructorNode) {
                 methodCode.addStatements(postconditionBlockStatement.getStatements());
 
             } else {
-                // Assign the return statement expression to a local variable of type Object
-                final VariableExpression oldVariableExpression = new VariableExpression("old", new ClassNode(Map.class));
-                oldVariableExpression.setAccessedVariable(oldVariableExpression);
-
-                ExpressionStatement oldVariabeStatement = new ExpressionStatement(
-                        new BinaryExpression(oldVariableExpression,
-                                Token.newSymbol(Types.ASSIGN, -1, -1),
-                                new MethodCallExpression(VariableExpression.THIS_EXPRESSION, OldVariableGenerationUtility.OLD_VARIABLES_METHOD, ArgumentListExpression.EMPTY_ARGUMENTS)));
-
-                final BlockStatement oldVariableIfBlock = new BlockStatement();
-                oldVariableIfBlock.addStatement(oldVariabeStatement);
-
-                methodCode.getStatements().add(0, new IfStatement(new BooleanExpression(enabledVariableExpression), oldVariableIfBlock, new BlockStatement()));
-                methodCode.getStatements().add(0, new ExpressionStatement(new DeclarationExpression(oldVariableExpression, Token.newSymbol(Types.ASSIGN, -1, -1), ConstantExpression.NULL)));
-
+                methodCode.getStatements().addAll(getOldVariableStatementsIndex(method, methodCode, oldVariableStatements), oldVariableStatements);
                 methodCode.addStatements(postconditionBlockStatement.getStatements());
             }
         }
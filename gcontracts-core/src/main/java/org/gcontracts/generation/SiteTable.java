@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.generation;
+
+/**
+ * <p>Per-site state indexed by the contract site id, see {@link ContractExecutionTracker#register(String, String, String, boolean)}.</p>
+ *
+ * <p>Lookups read a volatile array and neither lock nor allocate once the state of a site has been created. Missing
+ * state is created by {@link #create(int)} while holding the lock of the table, the array is grown to the number of
+ * contract sites registered so far, so that it is rarely grown again.</p>
+ *
+ * @param <T> the type of the per-site state
+ *
+ * @author ast
+ */
+abstract class SiteTable<T> {
+
+    // state indexed by contract site id, null if not yet created
+    private volatile Object[] sites = new Object[0];
+
+    /**
+     * @param siteId the contract site id
+     * @return the state of the given contract site, created if it does not exist yet
+     */
+    @SuppressWarnings("unchecked")
+    final T get(final int siteId)  {
+        final Object[] current = sites;
+        if (siteId < current.length && current[siteId] != null) return (T) current[siteId];
+
+        return resolve(siteId);
+    }
+
+    /**
+     * @param siteId the contract site id
+     * @return the state of the given contract site, <tt>null</tt> if it has not been created
+     */
+    @SuppressWarnings("unchecked")
+    final T peek(final int siteId)  {
+        final Object[] current = sites;
+        return siteId < current.length ? (T) current[siteId] : null;
+    }
+
+    /**
+     * @return an upper bound of the contract site ids with state, to be used with {@link #peek(int)}
+     */
+    final int size()  {
+        return sites.length;
+    }
+
+    /**
+     * Discards the state of all contract sites.
+     */
+    final synchronized void clear()  {
+        sites = new Object[0];
+    }
+
+    /**
+     * Creates the state of a contract site, called while holding the lock of the table.
+     *
+     * @param siteId the contract site id
+     * @return the state of the given contract site
+     */
+    protected abstract T create(int siteId);
+
+    @SuppressWarnings("unchecked")
+    private synchronized T resolve(final int siteId)  {
+        Object[] current = sites;
+        if (siteId >= current.length)  {
+            final Object[] newSites = new Object[Math.max(ContractExecutionTracker.siteCount(), siteId + 1)];
+            System.arraycopy(current, 0, newSites, 0, current.length);
+            current = newSites;
+        }
+
+        if (current[siteId] == null) current[siteId] = create(siteId);
+
+        sites = current;
+        return (T) current[siteId];
+    }
+}
@@ -30,15 +30,25 @@ import org.codehaus.groovy.ast.expr.*;
 import org.codehaus.groovy.ast.stmt.*;
 import org.codehaus.groovy.syntax.Token;
 import org.codehaus.groovy.syntax.Types;
+import org.gcontracts.AssertionViolation;
+import org.gcontracts.ViolationTracker;
+import org.gcontracts.util.ExpressionUtils;
+
+import java.util.List;
 
 /**
  * Creates a try-catch block around a given {@link org.codehaus.groovy.ast.stmt.AssertStatement} and catches
- * a PowerAssertionError to reuse the generated visual output.
+ * a PowerAssertionError to reuse the generated visual output. As the power assert statement records the values
+ * of all sub-expressions, it is only executed if the plain boolean expression evaluates to <tt>false</tt>.
+ * Violations are thrown by {@link ViolationTracker#rethrow(AssertionViolation)}, which records them instead
+ * if log-and-continue enforcement is enabled.
  *
  * @author ast
  */
 public class TryCatchBlockGenerator {
 
+    private static final String STACKLESS_VAR = "$_gc_stackless";
+
     public static BlockStatement generateTryCatchBlockForInlineMode(final ClassNode assertionErrorClass, final String message, final Statement assertStatement)  {
 
         final Class powerAssertionErrorClass = loadPowerAssertionErrorClass();
@@ -60,13 +70,21 @@ public class TryCatchBlockGenerator {
         final BlockStatement catchBlock = new BlockStatement();
         catchBlock.addStatement(expr);
         catchBlock.addStatement(exp2);
-        catchBlock.addStatement(new ThrowStatement(newErrorVariableExpression));
+        catchBlock.addStatement(rethrowStatement(newErrorVariableExpression));
 
         final TryCatchStatement tryCatchStatement = new TryCatchStatement(assertStatement, new EmptyStatement());
         tryCatchStatement.addCatch(new CatchStatement(new Parameter(ClassHelper.makeWithoutCaching(powerAssertionErrorClass), "error"), catchBlock));
 
+        final VariableExpression stacklessVariableExpression = new VariableExpression(STACKLESS_VAR, ClassHelper.boolean_TYPE);
+        stacklessVariableExpression.setAccessedVariable(stacklessVariableExpression);
+
+        // the stackless flag is read once, with log-and-continue enforcement rethrow returns and the assert
+        // statement must not be evaluated a second time
         final BlockStatement assertBlockStatement = new BlockStatement();
-        assertBlockStatement.addStatement(tryCatchStatement);
+        assertBlockStatement.addStatement(new ExpressionStatement(new DeclarationExpression(stacklessVariableExpression, Token.newSymbol(Types.ASSIGN, -1, -1), isStacklessExpression().getExpression())));
+        assertBlockStatement.addStatement(new IfStatement(new BooleanExpression(stacklessVariableExpression),
+                rethrowStatement(createStacklessViolation(assertionErrorClass, message, assertStatement)),
+                tryCatchStatement));
 
         return assertBlockStatement;
     }
@@ -82,6 +100,21 @@ public class TryCatchBlockGenerator {
         final BlockStatement overallBlock = new BlockStatement();
         overallBlock.addStatement(new ExpressionStatement(new DeclarationExpression(variableExpression, Token.newSymbol(Types.ASSIGN, -1, -1), ConstantExpression.FALSE)));
 
+        // fast path: evaluate the plain boolean expression first, the assert statement is only executed
+        // to compute the power assert message if the expression evaluates to false
+        if (assertStatement instanceof BlockStatement)  {
+            final List<BooleanExpression> booleanExpressions = ExpressionUtils.getBooleanExpressionsFromAssertionStatements((BlockStatement) assertStatement);
+            if (!booleanExpressions.isEmpty())  {
+                overallBlock.addStatement(new IfStatement(ExpressionUtils.getBooleanExpression(booleanExpressions), new ReturnStatement(ConstantExpression.TRUE), EmptyStatement.INSTANCE));
+            }
+        }
+
+        // in stackless mode the violation is tracked without evaluating the assert statement
+        final BlockStatement stacklessBlock = new BlockStatement();
+        stacklessBlock.addStatement(new ExpressionStatement(createStacklessViolation(assertionErrorClass, message, assertStatement)));
+        stacklessBlock.addStatement(new ReturnStatement(ConstantExpression.FALSE));
+        overallBlock.addStatement(new IfStatement(isStacklessExpression(), stacklessBlock, EmptyStatement.INSTANCE));
+
         final BlockStatement assertBlockStatement = new BlockStatement();
         assertBlockStatement.addStatement(assertStatement);
         assertBlockStatement.addStatement(new ExpressionStatement(new BinaryExpression(variableExpression, Token.newSymbol(Types.ASSIGN, -1, -1), ConstantExpression.TRUE)));
@@ -115,6 +148,26 @@ public class TryCatchBlockGenerator {
         return overallBlock;
     }
 
+    // the violation is thrown unless log-and-continue enforcement is enabled, see ViolationLog
+    private static Statement rethrowStatement(final Expression violation)  {
+        return new ExpressionStatement(new StaticMethodCallExpression(ClassHelper.makeWithoutCaching(ViolationTracker.class), "rethrow", new ArgumentListExpression(violation)));
+    }
+
+    private static BooleanExpression isStacklessExpression()  {
+        return new BooleanExpression(new MethodCallExpression(new ClassExpression(ClassHelper.makeWithoutCaching(AssertionViolation.class)), "isStackless", ArgumentListExpression.EMPTY_ARGUMENTS));
+    }
+
+    private static Expression createStacklessViolation(final ClassNode assertionErrorClass, final String message, final Statement assertStatement)  {
+        final StringBuilder sourceText = new StringBuilder(message);
+        if (assertStatement instanceof BlockStatement)  {
+            for (BooleanExpression booleanExpression : ExpressionUtils.getBooleanExpressionsFromAssertionStatements((BlockStatement) assertStatement))  {
+                sourceText.append(booleanExpression.getText()).append('\n');
+            }
+        }
+
+        return new ConstructorCallExpression(assertionErrorClass, new ArgumentListExpression(new ConstantExpression(sourceText.toString())));
+    }
+
     private static Class loadPowerAssertionErrorClass() {
 
         Class result = null;
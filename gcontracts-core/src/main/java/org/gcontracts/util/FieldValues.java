@@ -1,27 +1,38 @@
 package org.gcontracts.util;
 
+import groovy.lang.Closure;
+
 import java.lang.reflect.Field;
 
 /**
  * This utility is ment to be used to replace direct calls to private
  * field variables in class invariants.
  *
+ * <p>Contracts compiled by the current GContracts version read private fields of their own class through
+ * synthetic accessor methods and only use {@link #thisObject(Object)}, {@link #fieldValue(Object, String, Class)}
+ * remains for fields of other classes and for classes compiled by previous GContracts versions. It looks up the
+ * field and makes it accessible on every call.</p>
+ *
  * @author me@andresteingress.com
  */
 public class FieldValues {
 
+    /**
+     * @param obj a contract closure or the contracted object itself
+     * @return the object the given contract closure has been created for, or <tt>obj</tt> if it is not a closure
+     */
+    public static Object thisObject(Object obj)  {
+        return obj instanceof Closure ? ((Closure) obj).getThisObject() : obj;
+    }
+
     @SuppressWarnings("unchecked")
     public static <T> T fieldValue(Object obj, String fieldName, Class<T> type) throws IllegalAccessException {
         Validate.notNull(obj);
         Validate.notNull(fieldName);
 
-        Field f = ReflectionUtils.findField(obj.getClass(), "thisObject");
-        if (f == null) throw new IllegalArgumentException("Field thisObject could not be found!");
-        f.setAccessible(true);
-
-        Object target = f.get(obj);
+        final Object target = thisObject(obj);
 
-        f = ReflectionUtils.findField(target.getClass(), fieldName);
+        Field f = ReflectionUtils.findField(target.getClass(), fieldName);
         if (f == null) throw new IllegalArgumentException("Field " + fieldName + " could not be found!");
         f.setAccessible(true);
 
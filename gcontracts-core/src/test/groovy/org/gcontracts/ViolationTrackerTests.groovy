@@ -0,0 +1,76 @@
+package org.gcontracts
+
+import org.junit.Test
+
+/**
+ * @author ast
+ */
+class ViolationTrackerTests {
+
+    @Test void track_first_and_last_violation() {
+        ViolationTracker.init()
+        try {
+            assert !ViolationTracker.violationsOccured()
+
+            def first = new PreconditionViolation('first')
+            def second = new PreconditionViolation('second')
+            def third = new PreconditionViolation('third')
+
+            assert ViolationTracker.violationsOccured()
+            assert ViolationTracker.INSTANCE.get().first().is(first)
+            assert ViolationTracker.INSTANCE.get().last().is(third)
+        } finally {
+            ViolationTracker.deinit()
+        }
+    }
+
+    @Test void nested_evaluations_do_not_share_violations() {
+        ViolationTracker.init()
+        try {
+            def outer = new PreconditionViolation('outer')
+
+            ViolationTracker.init()
+            try {
+                assert !ViolationTracker.violationsOccured()
+
+                def inner = new PostconditionViolation('inner')
+                assert ViolationTracker.INSTANCE.get().first().is(inner)
+            } finally {
+                ViolationTracker.deinit()
+            }
+
+            assert ViolationTracker.INSTANCE.get().first().is(outer)
+            assert ViolationTracker.INSTANCE.get().last().is(outer)
+        } finally {
+            ViolationTracker.deinit()
+        }
+    }
+
+    @Test void deeply_nested_evaluations() {
+        def violations = []
+        20.times { i ->
+            ViolationTracker.init()
+            violations << new ClassInvariantViolation("violation $i")
+        }
+
+        19.downto(0) { i ->
+            assert ViolationTracker.INSTANCE.get().first().is(violations[i])
+            ViolationTracker.deinit()
+        }
+
+        assert !ViolationTracker.violationsOccured()
+    }
+
+    @Test void violations_outside_of_evaluations_are_ignored() {
+        new PreconditionViolation('ignored')
+
+        assert !ViolationTracker.violationsOccured()
+
+        ViolationTracker.init()
+        try {
+            assert !ViolationTracker.violationsOccured()
+        } finally {
+            ViolationTracker.deinit()
+        }
+    }
+}
@@ -43,4 +43,39 @@ class ContractExecutionTrackerTests {
         ContractExecutionTracker.clear('Dummy', 'method 1', 'pre', true)
     }
 
+    @Test void register_returns_same_id_for_same_site() {
+
+        def id = ContractExecutionTracker.register('Dummy', 'method 3', 'pre', false)
+
+        assert ContractExecutionTracker.register('Dummy', 'method 3', 'pre', false) == id
+        assert ContractExecutionTracker.register('Dummy', 'method 3', 'post', false) != id
+        assert ContractExecutionTracker.site(id).methodIdentifier == 'method 3'
+    }
+
+    @Test void track_by_site_id() {
+
+        def id1 = ContractExecutionTracker.register('Dummy', 'method 4', 'pre', false)
+        def id2 = ContractExecutionTracker.register('Dummy', 'method 5', 'pre', false)
+
+        assert ContractExecutionTracker.track(id1)
+        assert ContractExecutionTracker.track(id2)
+        assert ContractExecutionTracker.track(id1) == false
+
+        ContractExecutionTracker.clear(id2)
+
+        assert ContractExecutionTracker.track(id1) == false
+        ContractExecutionTracker.clear(id1)
+        assert ContractExecutionTracker.track(id1)
+        ContractExecutionTracker.clear(id1)
+    }
+
+    @Test void track_site_ids_beyond_initial_capacity() {
+
+        assert ContractExecutionTracker.track(1000)
+        assert ContractExecutionTracker.track(1000) == false
+
+        ContractExecutionTracker.clear(1000)
+        assert ContractExecutionTracker.track(1000)
+        ContractExecutionTracker.clear(1000)
+    }
 }
@@ -29,6 +29,16 @@ class BaseTestClass {
     return create_instance_of(sourceCode, new Object[0])
   }
 
+  /**
+   * Contract sites are identified by class names, tests which need their own contract sites rename the first class
+   * of <tt>sourceCode</tt>, and every class whose name contains its name, to <tt>className</tt>.
+   */
+  def create_renamed_instance_of(final String sourceCode, final String className)  {
+    def firstClassName = (sourceCode =~ /class\s+(\w+)/)[0][1]
+
+    return create_instance_of(sourceCode.replace(firstClassName, className))
+  }
+
   def create_instance_of(final String sourceCode, def constructor_args)  {
     
     def clazz = add_class_to_classpath(sourceCode)
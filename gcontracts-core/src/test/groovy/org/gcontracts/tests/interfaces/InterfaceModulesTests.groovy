@@ -0,0 +1,87 @@
+package org.gcontracts.tests.interfaces
+
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.CompilerConfiguration
+import org.gcontracts.PostconditionViolation
+import org.gcontracts.PreconditionViolation
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Tests interface contracts of interfaces compiled together with, but in another source file than, their
+ * implementations.
+ *
+ * @author ast
+ */
+class InterfaceModulesTests extends BaseTestClass {
+
+  def source_account = '''
+package tests
+
+import org.gcontracts.annotations.*
+
+interface Account {
+
+  @Requires({ amount > 0 })
+  @Ensures({ result >= amount })
+  long deposit(long amount)
+}
+'''
+
+  def source_savings_account = '''
+package tests
+
+class SavingsAccount implements Account {
+
+  long balance = 0
+
+  long deposit(long amount) { balance += amount }
+}
+'''
+
+  File targetDirectory
+
+  @Before void createTargetDirectory()  {
+    targetDirectory = File.createTempFile('gcontracts', 'classes')
+    targetDirectory.delete()
+    targetDirectory.mkdirs()
+  }
+
+  @After void deleteTargetDirectory()  {
+    targetDirectory.deleteDir()
+  }
+
+  private def create_account()  {
+    def configuration = new CompilerConfiguration(targetDirectory: targetDirectory)
+    def compilationUnit = new CompilationUnit(configuration, null, new GroovyClassLoader(getClass().classLoader, configuration))
+    compilationUnit.addSource('Account.groovy', source_account)
+    compilationUnit.addSource('SavingsAccount.groovy', source_savings_account)
+    compilationUnit.compile()
+
+    def loader = new GroovyClassLoader(getClass().classLoader)
+    loader.addClasspath(targetDirectory.absolutePath)
+
+    loader.loadClass('tests.SavingsAccount').newInstance()
+  }
+
+  @Test void interface_contracts_of_other_source_files()  {
+    def account = create_account()
+
+    assert account.deposit(10) == 10
+
+    shouldFail PreconditionViolation, {
+      account.deposit(0)
+    }
+  }
+
+  @Test void interface_postcondition_of_other_source_files()  {
+    def account = create_account()
+    account.balance = -100
+
+    shouldFail PostconditionViolation, {
+      account.deposit(10)
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package org.gcontracts.tests.inv
+
+import org.gcontracts.ClassInvariantViolation
+import org.gcontracts.Contracts
+import org.gcontracts.generation.GenerationOptions
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Generated setters skip the class invariant within {@link Contracts#deferInvariants(Object, groovy.lang.Closure)}.
+ *
+ * @author ast
+ */
+class DeferredInvariantTests extends BaseTestClass {
+
+    def source = '''
+package tests
+
+import org.gcontracts.annotations.*
+
+@Invariant({ counted() && firstName != null && lastName != null })
+class Person {
+
+  String firstName = 'John'
+  String lastName = 'Doe'
+
+  private int checks = 0
+
+  protected boolean counted() { checks++; true }
+}
+'''
+
+    def dirtyCheckedSource = '''
+package tests
+
+import org.gcontracts.annotations.*
+
+@Invariant({ firstName != null && lastName != null })
+class Person {
+
+  String firstName = 'John'
+  String lastName = 'Doe'
+
+  String fullName() { firstName + ' ' + lastName }
+}
+'''
+
+    @Before void enableDeferrableInvariants()  {
+        System.setProperty(GenerationOptions.DEFERRABLE_INVARIANTS, 'true')
+    }
+
+    @After void disableDeferrableInvariants()  {
+        System.clearProperty(GenerationOptions.DEFERRABLE_INVARIANTS)
+    }
+
+    @Test void setters_within_scope_skip_invariant()  {
+        def person = create_instance_of(source)
+        person.@checks = 0
+
+        Contracts.deferInvariants(person) {
+            firstName = null
+            lastName = 'Smith'
+            firstName = 'Jane'
+        }
+
+        assert person.@checks == 1
+        assert person.firstName == 'Jane'
+        assert person.lastName == 'Smith'
+    }
+
+    @Test void setters_are_not_deferred_by_default()  {
+        System.clearProperty(GenerationOptions.DEFERRABLE_INVARIANTS)
+        def person = create_instance_of(source)
+        person.@checks = 0
+
+        assert !person.getClass().declaredFields.any { it.name == Contracts.INVARIANTS_DEFERRED_FIELD }
+
+        Contracts.deferInvariants(person) {
+            firstName = 'Jane'
+        }
+
+        assert person.@checks == 2
+        assert !Contracts.isInvariantDeferred(person)
+    }
+
+    @Test void setters_outside_of_scope_check_invariant_twice()  {
+        def person = create_instance_of(source)
+        person.@checks = 0
+
+        person.firstName = 'Jane'
+
+        assert person.@checks == 2
+    }
+
+    @Test void invariant_is_checked_when_scope_is_closed()  {
+        def person = create_instance_of(source)
+
+        shouldFail ClassInvariantViolation, {
+            Contracts.deferInvariants(person) {
+                firstName = null
+            }
+        }
+    }
+
+    @Test void nested_scopes_check_invariant_once()  {
+        def person = create_instance_of(source)
+        person.@checks = 0
+
+        Contracts.deferInvariants(person) {
+            Contracts.deferInvariants(person) {
+                firstName = null
+            }
+            assert Contracts.isInvariantDeferred(person)
+            firstName = 'Jane'
+        }
+
+        assert person.@checks == 1
+        assert !Contracts.isInvariantDeferred(person)
+    }
+
+    @Test void exception_within_scope_ends_deferral()  {
+        def person = create_instance_of(source)
+
+        shouldFail IllegalStateException, {
+            Contracts.deferInvariants(person) {
+                throw new IllegalStateException()
+            }
+        }
+
+        assert !Contracts.isInvariantDeferred(person)
+
+        shouldFail ClassInvariantViolation, {
+            person.firstName = null
+        }
+    }
+
+    @Test void concurrent_scopes_end_deferral()  {
+        def person = create_instance_of(source)
+
+        def threads = (1..4).collect {
+            Thread.start {
+                1000.times {
+                    Contracts.deferInvariants(person) {}
+                }
+            }
+        }
+        threads*.join()
+
+        assert !Contracts.isInvariantDeferred(person)
+    }
+
+    @Test void deferred_setters_re_arm_dirty_checked_invariant()  {
+        System.setProperty(GenerationOptions.DIRTY_CHECKED_INVARIANTS, 'true')
+        try {
+            def person = create_instance_of(dirtyCheckedSource)
+            assert person.fullName() == 'John Doe'
+
+            shouldFail IllegalStateException, {
+                Contracts.deferInvariants(person) {
+                    firstName = null
+                    throw new IllegalStateException()
+                }
+            }
+
+            shouldFail ClassInvariantViolation, {
+                person.fullName()
+            }
+        } finally {
+            System.clearProperty(GenerationOptions.DIRTY_CHECKED_INVARIANTS)
+        }
+    }
+}
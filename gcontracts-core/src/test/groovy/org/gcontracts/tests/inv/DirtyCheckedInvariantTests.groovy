@@ -0,0 +1,151 @@
+package org.gcontracts.tests.inv
+
+import org.gcontracts.ClassInvariantViolation
+import org.gcontracts.generation.DirtyTrackingGenerationUtility
+import org.gcontracts.generation.GenerationOptions
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Dirty checked class invariants are only re-checked after a field read by the invariant has been written.
+ * The tests corrupt fields behind the back of the class to find out whether the invariant has been checked.
+ *
+ * @author ast
+ */
+class DirtyCheckedInvariantTests extends BaseTestClass {
+
+    def source = '''
+package tests
+
+import org.gcontracts.annotations.*
+
+@Invariant({ balance >= 0 && name != null && name.size() > 0 })
+class Aggregate {
+
+  int balance = 0
+  String name = 'aggregate'
+
+  private int reads = 0
+
+  int peek() { reads++; balance }
+
+  void deposit(int amount) { balance += amount }
+
+  int depositAndGet(int amount) { balance += amount }
+
+  void depositIf(boolean condition, int amount) { if (condition) balance += amount }
+
+  void withdrawEach(int times) { for (int i = 0; i < times; i++) { balance-- } }
+
+  void viaHelper(int amount) { assign(amount) }
+
+  private void assign(int amount) { balance = amount }
+}
+'''
+
+    def unsupportedSource = '''
+package tests
+
+import org.gcontracts.annotations.*
+
+@Invariant({ isValid() })
+class Aggregate {
+
+  int balance = 0
+
+  boolean isValid() { balance >= 0 }
+
+  int peek() { balance }
+}
+'''
+
+    @Before void enableDirtyChecking()  {
+        System.setProperty(GenerationOptions.DIRTY_CHECKED_INVARIANTS, 'true')
+    }
+
+    @After void disableDirtyChecking()  {
+        System.clearProperty(GenerationOptions.DIRTY_CHECKED_INVARIANTS)
+    }
+
+    private def createCheckedAggregate(String source)  {
+        def aggregate = create_instance_of(source)
+        aggregate.peek()
+        aggregate
+    }
+
+    @Test void reads_skip_invariant_check()  {
+        def aggregate = createCheckedAggregate(source)
+
+        aggregate.@balance = -1
+
+        assert aggregate.peek() == -1
+    }
+
+    @Test void writes_re_check_invariant()  {
+        def aggregate = createCheckedAggregate(source)
+
+        shouldFail ClassInvariantViolation, {
+            aggregate.deposit(-1)
+        }
+    }
+
+    @Test void writes_in_return_position_keep_return_value()  {
+        def aggregate = createCheckedAggregate(source)
+
+        assert aggregate.depositAndGet(5) == 5
+
+        shouldFail ClassInvariantViolation, {
+            aggregate.depositAndGet(-10)
+        }
+    }
+
+    @Test void only_executed_writes_re_check_invariant()  {
+        def aggregate = createCheckedAggregate(source)
+
+        aggregate.@balance = -1
+        aggregate.depositIf(false, 0)
+
+        shouldFail ClassInvariantViolation, {
+            aggregate.depositIf(true, 0)
+        }
+    }
+
+    @Test void writes_in_loops_and_private_methods_re_check_invariant()  {
+        def aggregate = createCheckedAggregate(source)
+
+        shouldFail ClassInvariantViolation, {
+            aggregate.withdrawEach(1)
+        }
+
+        aggregate = createCheckedAggregate(source)
+
+        shouldFail ClassInvariantViolation, {
+            aggregate.viaHelper(-1)
+        }
+    }
+
+    @Test void invariants_reading_other_state_are_always_checked()  {
+        def aggregate = createCheckedAggregate(unsupportedSource)
+
+        assert !aggregate.getClass().declaredFields*.name.contains(DirtyTrackingGenerationUtility.INVARIANT_CHECKED_FIELD)
+
+        aggregate.@balance = -1
+
+        shouldFail ClassInvariantViolation, {
+            aggregate.peek()
+        }
+    }
+
+    @Test void invariants_are_always_checked_per_default()  {
+        System.clearProperty(GenerationOptions.DIRTY_CHECKED_INVARIANTS)
+        def aggregate = createCheckedAggregate(source)
+
+        aggregate.@balance = -1
+
+        shouldFail ClassInvariantViolation, {
+            aggregate.peek()
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.gcontracts.tests.inv
+
+import org.gcontracts.ClassInvariantViolation
+import org.gcontracts.generation.GenerationOptions
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Class invariants are only checked by the outermost call if internal calls are skipped.
+ *
+ * @author ast
+ */
+class InternalCallInvariantTests extends BaseTestClass {
+
+    def source = '''
+package tests
+
+import org.gcontracts.annotations.*
+
+@Invariant({ counted() && balance >= 0 })
+class Facade {
+
+  int checks = 0
+  int balance = 0
+
+  protected boolean counted() { checks++; true }
+
+  void deposit(int amount) { balance += amount }
+
+  void depositTwice(int amount) { deposit(amount); this.deposit(amount) }
+
+  int depositAndGet(int amount) { deposit(amount); return balance }
+
+  void overdraw() { balance = -1; deposit(0); balance = 0 }
+
+  void corrupt() { balance = -1 }
+
+  void fail() { deposit(0); throw new IllegalStateException() }
+
+  void await(java.util.concurrent.CountDownLatch entered, java.util.concurrent.CountDownLatch released) { entered.countDown(); released.await() }
+}
+'''
+
+    @Before void enableSkipping()  {
+        System.setProperty(GenerationOptions.SKIP_INTERNAL_CALL_INVARIANTS, 'true')
+    }
+
+    @After void disableSkipping()  {
+        System.clearProperty(GenerationOptions.SKIP_INTERNAL_CALL_INVARIANTS)
+    }
+
+    @Test void external_calls_check_invariant()  {
+        def facade = create_instance_of(source)
+        facade.@checks = 0
+
+        facade.deposit(1)
+        facade.deposit(1)
+
+        assert facade.@checks == 2
+    }
+
+    @Test void internal_calls_skip_invariant()  {
+        def facade = create_instance_of(source)
+        facade.@checks = 0
+
+        facade.depositTwice(1)
+        assert facade.depositAndGet(1) == 3
+
+        assert facade.@checks == 2
+    }
+
+    @Test void internal_calls_may_see_intermediate_state()  {
+        def facade = create_instance_of(source)
+
+        facade.overdraw()
+    }
+
+    @Test void outermost_call_checks_invariant()  {
+        def facade = create_instance_of(source)
+
+        shouldFail ClassInvariantViolation, {
+            facade.corrupt()
+        }
+    }
+
+    @Test void call_depth_is_restored_after_exception()  {
+        def facade = create_instance_of(source)
+
+        shouldFail IllegalStateException, {
+            facade.fail()
+        }
+
+        shouldFail ClassInvariantViolation, {
+            facade.corrupt()
+        }
+    }
+
+    @Test void calls_of_other_threads_check_invariant()  {
+        def facade = create_instance_of(source)
+        def entered = new java.util.concurrent.CountDownLatch(1)
+        def released = new java.util.concurrent.CountDownLatch(1)
+
+        def thread = Thread.start {
+            try {
+                facade.await(entered, released)
+            } catch (ClassInvariantViolation ignored) {}
+        }
+        entered.await()
+
+        try {
+            shouldFail ClassInvariantViolation, {
+                facade.corrupt()
+            }
+        } finally {
+            released.countDown()
+            thread.join()
+        }
+    }
+
+    @Test void internal_calls_check_invariant_per_default()  {
+        System.clearProperty(GenerationOptions.SKIP_INTERNAL_CALL_INVARIANTS)
+        def facade = create_instance_of(source)
+
+        shouldFail ClassInvariantViolation, {
+            facade.overdraw()
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package org.gcontracts.tests.other
+
+import org.gcontracts.PostconditionViolation
+import org.gcontracts.PreconditionViolation
+import org.gcontracts.generation.ConfigurationFile
+import org.gcontracts.generation.Configurator
+import org.gcontracts.generation.GenerationOptions
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import java.util.logging.Handler
+import java.util.logging.Level
+import java.util.logging.LogRecord
+import java.util.logging.Logger
+
+/**
+ * Tests contract enablement rules read from a configuration file.
+ *
+ * @see ConfigurationFile
+ *
+ * @author ast
+ */
+class ConfigurationFileTests extends BaseTestClass {
+
+    def source = '''
+package tests.configuration
+
+import org.gcontracts.annotations.*
+
+class Account {
+
+  def balance = 0
+
+  @Requires({ amount > 0 })
+  void deposit(def amount) { balance += amount }
+
+  @Requires({ amount > 0 })
+  void withdraw(def amount) { balance -= amount }
+
+  @Ensures({ balance == old.balance })
+  void broken(def amount) { balance += amount }
+}
+'''
+
+    File file
+
+    @Before void createFile()  {
+        file = File.createTempFile('gcontracts', '.conf')
+        file.deleteOnExit()
+    }
+
+    @After void removeFile()  {
+        ConfigurationFile.unwatch()
+        System.clearProperty(GenerationOptions.RUNTIME_ENABLEMENT)
+        System.clearProperty(GenerationOptions.SAMPLING)
+        file.delete()
+    }
+
+    private void write(String rules)  {
+        def lastModified = file.lastModified()
+        file.text = rules
+        // file systems with a coarse timestamp resolution would hide the change
+        file.setLastModified(lastModified + 2000)
+    }
+
+    @Test void parse_rules()  {
+        def rules = ConfigurationFile.parse(new StringReader('''
+# comment
+* = disabled
+org.example = enabled
+precondition:org.example.Invoice#pay = false
+invariant:* = true
+'''))
+
+        assert rules == [(null): false, 'org.example': true, 'precondition:org.example.Invoice#pay': false, 'invariant:': true]
+    }
+
+    @Test void invalid_rules()  {
+        shouldFail IllegalArgumentException, { ConfigurationFile.parse(new StringReader('org.example')) }
+        shouldFail IllegalArgumentException, { ConfigurationFile.parse(new StringReader('org.example = maybe')) }
+        shouldFail IllegalArgumentException, { ConfigurationFile.parse(new StringReader('assertion:org.example = enabled')) }
+    }
+
+    @Test void most_specific_rule_wins()  {
+        write '''
+org.example = disabled
+org.example.billing = enabled
+org.example.billing.Invoice#pay = disabled
+postcondition:org.example.billing = disabled
+'''
+        ConfigurationFile.watch(file, 60000)
+
+        assert !Configurator.checkAssertionsEnabled('org.example.Customer')
+        assert Configurator.checkAssertionsEnabled('org.examples.Customer')
+        assert Configurator.checkAssertionsEnabled('org.example.billing.Invoice')
+        assert Configurator.checkAssertionsEnabled('org.example.billing.Invoice', 'void cancel()', 'precondition')
+        assert !Configurator.checkAssertionsEnabled('org.example.billing.Invoice', 'void pay(int)', 'precondition')
+        assert !Configurator.checkAssertionsEnabled('org.example.billing.Invoice', 'void cancel()', 'postcondition')
+        assert Configurator.checkAssertionsEnabled('org.example.billing.Invoice', 'void cancel()', 'invariant')
+    }
+
+    @Test void reload_switches_runtime_enablement()  {
+        System.setProperty(GenerationOptions.RUNTIME_ENABLEMENT, 'true')
+        def account = create_instance_of(source.replace('class Account', 'class RuntimeAccount'))
+
+        write 'tests.configuration = disabled'
+        ConfigurationFile.watch(file, 60000)
+        account.deposit(-1)
+
+        write 'tests.configuration = enabled'
+        assert ConfigurationFile.reload()
+        assert !ConfigurationFile.reload()
+
+        shouldFail PreconditionViolation, {
+            account.deposit(-1)
+        }
+    }
+
+    @Test void invalid_file_keeps_previous_rules()  {
+        System.setProperty(GenerationOptions.RUNTIME_ENABLEMENT, 'true')
+        def account = create_instance_of(source.replace('class Account', 'class InvalidFileAccount'))
+
+        write 'tests.configuration = disabled'
+        ConfigurationFile.watch(file, 60000)
+
+        write 'tests.configuration = '
+        shouldFail IllegalArgumentException, { ConfigurationFile.reload() }
+        account.deposit(-1)
+    }
+
+    @Test void site_rules_with_sampling()  {
+        System.setProperty(GenerationOptions.SAMPLING, 'true')
+
+        write '''
+tests.configuration.SampledAccount#deposit = disabled
+postcondition:tests.configuration = disabled
+'''
+        ConfigurationFile.watch(file, 60000)
+
+        def account = create_instance_of(source.replace('class Account', 'class SampledAccount'))
+        account.deposit(-1)
+        account.broken(1)
+        shouldFail PreconditionViolation, {
+            account.withdraw(-1)
+        }
+
+        write 'tests.configuration = enabled'
+        assert ConfigurationFile.reload()
+
+        shouldFail PreconditionViolation, {
+            account.deposit(-1)
+        }
+        shouldFail PostconditionViolation, {
+            account.broken(1)
+        }
+    }
+
+    @Test void site_rules_without_sampling_are_reported()  {
+        def records = Collections.synchronizedList([])
+        def handler = new Handler() {
+            void publish(LogRecord record) { if (record.message.contains('tests.configuration')) records << record }
+            void flush() {}
+            void close() {}
+        }
+        def logger = Logger.getLogger(Configurator.name)
+        logger.addHandler(handler)
+
+        try {
+            write 'postcondition:tests.configuration = disabled'
+            ConfigurationFile.watch(file, 60000)
+
+            def account = create_instance_of(source.replace('class Account', 'class UnsampledAccount'))
+            shouldFail PostconditionViolation, {
+                account.broken(1)
+            }
+
+            System.setProperty(GenerationOptions.SAMPLING, 'true')
+            account = create_instance_of(source.replace('class Account', 'class SampledReportAccount'))
+            account.broken(1)
+        } finally {
+            logger.removeHandler(handler)
+        }
+
+        // runtime switchable classes of other tests are reported as well when the file is watched
+        assert !records.any { it.message.contains('SampledReportAccount') }
+        assert records.findAll { it.message.contains('UnsampledAccount') }*.level == [Level.WARNING]
+    }
+
+    @Test void changes_are_polled()  {
+        System.setProperty(GenerationOptions.RUNTIME_ENABLEMENT, 'true')
+        def account = create_instance_of(source.replace('class Account', 'class PolledAccount'))
+
+        write 'tests.configuration = disabled'
+        ConfigurationFile.watch(file, 10)
+        account.deposit(-1)
+
+        write 'tests.configuration = enabled'
+
+        // the rules are replaced before the poller switches the class
+        def deadline = System.currentTimeMillis() + 5000
+        def violated = false
+        while (!violated && System.currentTimeMillis() < deadline)  {
+            try {
+                account.deposit(-1)
+                Thread.sleep(10)
+            } catch (PreconditionViolation e)  {
+                violated = true
+            }
+        }
+
+        assert violated
+        assert Configurator.checkAssertionsEnabled('tests.configuration.PolledAccount')
+    }
+}
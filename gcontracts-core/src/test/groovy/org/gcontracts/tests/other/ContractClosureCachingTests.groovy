@@ -0,0 +1,117 @@
+package org.gcontracts.tests.other
+
+import org.gcontracts.PreconditionViolation
+import org.gcontracts.generation.BaseGenerator
+import org.gcontracts.generation.GenerationOptions
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Tests contract closure instance caching.
+ *
+ * @see GenerationOptions#CACHE_CONTRACT_CLOSURES
+ *
+ * @author ast
+ */
+class ContractClosureCachingTests extends BaseTestClass {
+
+    def source = '''
+@Contracted
+package tests
+
+import org.gcontracts.annotations.*
+
+@Invariant({ count >= 0 })
+class A implements Cloneable {
+
+  def count = 0
+
+  @Requires({ isPositive(amount) })
+  @Ensures({ isPositive(count) })
+  void add(def amount) { count += amount }
+
+  @Requires({ amount > 0 })
+  void inlined(def amount) {}
+
+  @Requires({ isPositive(amount) })
+  static def twice(def amount) { amount * 2 }
+
+  static boolean isPositive(def value) { value > 0 }
+
+  A copy() { (A) clone() }
+}
+'''
+
+    @Before void enableClosureCaching() {
+        System.setProperty(GenerationOptions.CACHE_CONTRACT_CLOSURES, 'true')
+    }
+
+    @After void disableClosureCaching() {
+        System.clearProperty(GenerationOptions.CACHE_CONTRACT_CLOSURES)
+    }
+
+    @Test void reuses_closure_instance_per_receiver() {
+        def a = create_instance_of(source)
+
+        a.add(1)
+        def closures = closureInstances(a)
+        assert closures.size() == 3
+        assert closures.every { it != null }
+
+        a.add(2)
+        closureInstances(a).eachWithIndex { closure, i -> assert closure.is(closures[i]) }
+
+        def b = a.getClass().newInstance()
+        b.add(1)
+        closureInstances(b).eachWithIndex { closure, i -> assert !closure.is(closures[i]) }
+    }
+
+    @Test void no_cached_closure_for_inline_mode() {
+        def a = create_instance_of(source)
+
+        assert closureInstances(a).size() == 3
+        assert a.getClass().declaredFields.findAll { it.name.startsWith(BaseGenerator.CONTRACT_CLOSURE_FIELD_PREFIX) }.size() == 4
+    }
+
+    @Test void cached_closure_evaluates_current_receiver() {
+        def a = create_instance_of(source)
+
+        a.add(1)
+        shouldFail PreconditionViolation, {
+            a.add(0)
+        }
+    }
+
+    @Test void clone_does_not_share_closure_instance() {
+        def a = create_instance_of(source)
+        a.add(1)
+
+        def b = a.copy()
+        b.add(1)
+
+        closureInstances(a).each { assert it.thisObject.is(a) }
+        closureInstances(b).each { assert it.thisObject.is(b) }
+        assert a.count == 1
+        assert b.count == 2
+    }
+
+    @Test void static_methods() {
+        def a = create_instance_of(source)
+
+        assert a.getClass().twice(2) == 4
+        assert a.getClass().twice(3) == 6
+
+        shouldFail PreconditionViolation, {
+            a.getClass().twice(0)
+        }
+    }
+
+    private List closureInstances(def instance) {
+        instance.getClass().declaredFields
+                .findAll { it.name.startsWith(BaseGenerator.CONTRACT_CLOSURE_FIELD_PREFIX) && !java.lang.reflect.Modifier.isStatic(it.modifiers) }
+                .sort { it.name }
+                .collect { field -> field.accessible = true; field.get(instance) }
+    }
+}
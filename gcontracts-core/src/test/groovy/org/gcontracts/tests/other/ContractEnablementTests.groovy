@@ -0,0 +1,122 @@
+package org.gcontracts.tests.other
+
+import org.gcontracts.PostconditionViolation
+import org.gcontracts.PreconditionViolation
+import org.gcontracts.generation.ContractEnablement
+import org.gcontracts.generation.GenerationOptions
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import javax.management.ObjectName
+import java.lang.management.ManagementFactory
+import java.lang.reflect.Modifier
+
+/**
+ * Tests switching contracts at runtime.
+ *
+ * @see GenerationOptions#RUNTIME_ENABLEMENT
+ *
+ * @author ast
+ */
+class ContractEnablementTests extends BaseTestClass {
+
+    def source = '''
+package tests.enablement
+
+import org.gcontracts.annotations.*
+
+class Account {
+
+  def balance = 0
+
+  @Requires({ amount > 0 })
+  void deposit(def amount) { balance += amount }
+
+  @Ensures({ balance - amount == old.balance })
+  void transfer(int amount, Closure during) { during(); balance += amount }
+
+  @Ensures({ balance + amount == old.balance && isOpen() })
+  void withdraw(int amount, Closure during) { during(); balance -= amount }
+
+  boolean isOpen() { true }
+}
+'''
+
+    @Before void enableRuntimeEnablement()  {
+        System.setProperty(GenerationOptions.RUNTIME_ENABLEMENT, 'true')
+    }
+
+    @After void disableRuntimeEnablement()  {
+        System.clearProperty(GenerationOptions.RUNTIME_ENABLEMENT)
+        ContractEnablement.reset('tests.enablement')
+        ContractEnablement.reset('tests.enablement.Account')
+    }
+
+    @Test void enabled_field_is_not_final()  {
+        def account = create_instance_of(source)
+
+        def field = account.getClass().getDeclaredField('$GCONTRACTS_ENABLED')
+        assert !Modifier.isFinal(field.modifiers)
+        assert 'tests.enablement.Account' in ContractEnablement.contractedClasses
+    }
+
+    @Test void switch_package()  {
+        def account = create_instance_of(source)
+
+        ContractEnablement.disable('tests.enablement')
+        account.deposit(-1)
+
+        ContractEnablement.enable('tests.enablement')
+        shouldFail PreconditionViolation, {
+            account.deposit(-1)
+        }
+    }
+
+    @Test void switch_class()  {
+        def account = create_instance_of(source)
+
+        ContractEnablement.disable('tests.enablement')
+        ContractEnablement.enable('tests.enablement.Account')
+        shouldFail PreconditionViolation, {
+            account.deposit(-1)
+        }
+
+        ContractEnablement.reset('tests.enablement.Account')
+        account.deposit(-1)
+        assert !ContractEnablement.isEnabled('tests.enablement.Account')
+    }
+
+    @Test void switch_during_method_execution()  {
+        def account = create_instance_of(source)
+        account.deposit(10)
+
+        ContractEnablement.disable('tests.enablement.Account')
+        account.transfer(5, { ContractEnablement.enable('tests.enablement.Account') })
+        assert account.balance == 15
+
+        ContractEnablement.disable('tests.enablement.Account')
+        account.withdraw(-5, { ContractEnablement.enable('tests.enablement.Account') })
+        assert account.balance == 20
+
+        shouldFail PostconditionViolation, {
+            account.transfer(5, { account.balance++ })
+        }
+    }
+
+    @Test void switch_with_jmx()  {
+        def account = create_instance_of(source)
+
+        def server = ManagementFactory.platformMBeanServer
+        def objectName = new ObjectName(ContractEnablement.OBJECT_NAME)
+
+        server.invoke(objectName, 'disable', ['tests.enablement.Account'] as Object[], [String.name] as String[])
+        account.deposit(-1)
+
+        server.invoke(objectName, 'enable', ['tests.enablement.Account'] as Object[], [String.name] as String[])
+        shouldFail PreconditionViolation, {
+            account.deposit(-1)
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.gcontracts.tests.other
+
+import org.gcontracts.ClassInvariantViolation
+import org.gcontracts.PreconditionViolation
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.Test
+
+/**
+ * Contracts are evaluated as plain boolean expressions, power asserts are only used to create
+ * the message of a violation.
+ *
+ * @author ast
+ */
+class ContractEvaluationTests extends BaseTestClass {
+
+  def source = '''
+package tests
+
+import org.gcontracts.annotations.*
+
+@Invariant({ isValid(balance) })
+class Account {
+
+  int evaluations = 0
+  def balance = 0
+
+  boolean isValid(def value) { evaluations++; value >= 0 }
+
+  @Requires({ isValid(amount) })
+  void deposit(def amount) { balance += amount }
+
+  void setBalance(def balance) { this.balance = balance }
+}
+'''
+
+  def preconditionSource = '''
+package tests
+
+import org.gcontracts.annotations.*
+
+class Counter {
+
+  int evaluations = 0
+
+  boolean isValid(def value) { evaluations++; value >= 0 }
+
+  @Requires({ isValid(amount) })
+  void add(def amount) {}
+}
+'''
+
+  @Test void successful_contract_is_evaluated_once()  {
+    def counter = create_instance_of(preconditionSource)
+
+    counter.add(10)
+
+    assert counter.evaluations == 1
+  }
+
+  @Test void precondition_violation_contains_power_assert_message()  {
+    def account = create_instance_of(source)
+
+    def message = shouldFail PreconditionViolation, {
+      account.deposit(-1)
+    }
+
+    assert message.contains('isValid(amount)')
+    assert message.contains('-1')
+  }
+
+  @Test void class_invariant_violation_contains_power_assert_message()  {
+    def account = create_instance_of(source)
+
+    def message = shouldFail ClassInvariantViolation, {
+      account.balance = -5
+    }
+
+    assert message.contains('isValid(balance)')
+    assert message.contains('-5')
+  }
+}
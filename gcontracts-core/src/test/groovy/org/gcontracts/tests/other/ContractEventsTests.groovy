@@ -0,0 +1,105 @@
+package org.gcontracts.tests.other
+
+import org.gcontracts.AssertionViolation
+import org.gcontracts.PreconditionViolation
+import org.gcontracts.generation.ContractEventListener
+import org.gcontracts.generation.ContractEvents
+import org.gcontracts.generation.ContractExecutionTracker
+import org.gcontracts.generation.GenerationOptions
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Tests contract evaluation and violation events.
+ *
+ * @see ContractEvents
+ *
+ * @author ast
+ */
+class ContractEventsTests extends BaseTestClass {
+
+    def source = '''
+package tests.events
+
+import org.gcontracts.annotations.*
+
+@Invariant({ balance >= 0 })
+class Account {
+
+  def balance = 0
+
+  @Requires({ amount > 0 })
+  @Ensures({ balance > old.balance })
+  void deposit(def amount) { balance += amount }
+}
+'''
+
+    def evaluations = []
+    def violations = []
+
+    def listener = [
+            contractEvaluated: { ContractExecutionTracker.ContractExecution site, long startNanos, long durationNanos, boolean passed ->
+                evaluations << [site: site, durationNanos: durationNanos, passed: passed] },
+            contractViolated: { AssertionViolation violation -> violations << violation }
+    ] as ContractEventListener
+
+    @Before void addListener()  {
+        ContractEvents.addListener(listener)
+    }
+
+    @After void removeListener()  {
+        ContractEvents.removeListener(listener)
+        System.clearProperty(GenerationOptions.METRICS)
+    }
+
+    @Test void evaluations_are_reported()  {
+        System.setProperty(GenerationOptions.METRICS, 'true')
+        def account = create_instance_of(source.replace('class Account', 'class EvaluatedAccount'))
+        evaluations.clear()
+
+        account.deposit(1)
+
+        assert evaluations*.site*.assertionType.sort() == ['invariant', 'postcondition', 'precondition']
+        assert evaluations.every { it.passed && it.durationNanos >= 0 && it.site.className == 'tests.events.EvaluatedAccount' }
+    }
+
+    @Test void violations_are_reported()  {
+        System.setProperty(GenerationOptions.METRICS, 'true')
+        def account = create_instance_of(source.replace('class Account', 'class ViolatedAccount'))
+        evaluations.clear()
+
+        shouldFail PreconditionViolation, {
+            account.deposit(-1)
+        }
+
+        assert evaluations.find { it.site.assertionType == 'precondition' }.passed == false
+        assert violations.size() == 1
+        assert violations[0] instanceof PreconditionViolation
+    }
+
+    @Test void classes_without_metrics_only_report_violations()  {
+        def account = create_instance_of(source.replace('class Account', 'class PlainAccount'))
+
+        account.deposit(1)
+        shouldFail PreconditionViolation, {
+            account.deposit(-1)
+        }
+
+        assert evaluations.isEmpty()
+        assert violations.size() == 1
+    }
+
+    @Test void removed_listeners_are_not_called()  {
+        def account = create_instance_of(source.replace('class Account', 'class RemovedAccount'))
+        ContractEvents.removeListener(listener)
+
+        shouldFail PreconditionViolation, {
+            account.deposit(-1)
+        }
+
+        assert !ContractEvents.hasListeners()
+        assert violations.isEmpty()
+    }
+}
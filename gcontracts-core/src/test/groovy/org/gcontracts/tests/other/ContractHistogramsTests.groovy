@@ -0,0 +1,134 @@
+package org.gcontracts.tests.other
+
+import org.gcontracts.generation.ContractHistograms
+import org.gcontracts.generation.ContractMetrics
+import org.gcontracts.generation.GenerationOptions
+import org.gcontracts.generation.LatencyHistogram
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Tests per contract site latency histograms.
+ *
+ * @see ContractHistograms
+ *
+ * @author ast
+ */
+class ContractHistogramsTests extends BaseTestClass {
+
+    def source = '''
+package tests.histograms
+
+import org.gcontracts.annotations.*
+
+class Account {
+
+  def balance = 0
+
+  boolean slowly(def result) { Thread.sleep(2); result }
+
+  @Requires({ amount > 0 })
+  void deposit(def amount) { balance += amount }
+
+  @Requires({ slowly(amount > 0) })
+  void withdraw(def amount) { balance -= amount }
+}
+'''
+
+    @Before void enableHistograms()  {
+        System.setProperty(GenerationOptions.METRICS, 'true')
+        ContractMetrics.reset()
+        ContractHistograms.enable(0)
+    }
+
+    @After void disableHistograms()  {
+        System.clearProperty(GenerationOptions.METRICS)
+        ContractMetrics.reset()
+        ContractHistograms.disable()
+    }
+
+    private def histogram(List histograms, String className, String methodName)  {
+        histograms.find { it.className == "tests.histograms.$className" && it.methodIdentifier.contains(methodName) }
+    }
+
+    @Test void bucket_precision()  {
+        [0L, 1L, 15L, 16L, 17L, 100L, 1000L, 123456L, 987654321L].each { long value ->
+            def highest = LatencyHistogram.highestValue(LatencyHistogram.bucketIndex(value))
+            assert highest >= value
+            assert highest - value <= value.intdiv(16)
+        }
+
+        assert LatencyHistogram.bucketIndex(Long.MAX_VALUE) == LatencyHistogram.BUCKETS - 1
+    }
+
+    @Test void evaluations_are_recorded()  {
+        def account = create_renamed_instance_of(source, 'RecordingAccount')
+
+        10.times { account.deposit(1) }
+        account.withdraw(1)
+
+        def deposits = histogram(ContractHistograms.snapshot(), 'RecordingAccount', 'deposit')
+        assert deposits.count == 10
+        assert deposits.totalNanos > 0
+        assert deposits.getValueAtPercentile(50.0) <= deposits.getValueAtPercentile(99.0)
+        assert deposits.getValueAtPercentile(100.0) == deposits.maxNanos
+
+        def withdrawals = histogram(ContractHistograms.snapshot(), 'RecordingAccount', 'withdraw')
+        assert withdrawals.getValueAtPercentile(99.0) >= 2000000L
+    }
+
+    @Test void snapshot_and_reset()  {
+        def account = create_renamed_instance_of(source, 'ResetAccount')
+
+        3.times { account.deposit(1) }
+
+        assert histogram(ContractHistograms.snapshotAndReset(), 'ResetAccount', 'deposit').count == 3
+        assert histogram(ContractHistograms.snapshot(), 'ResetAccount', 'deposit') == null
+        assert histogram(ContractHistograms.lastInterval, 'ResetAccount', 'deposit').count == 3
+
+        account.deposit(1)
+        assert histogram(ContractHistograms.snapshot(), 'ResetAccount', 'deposit').count == 1
+    }
+
+    @Test void top_sites_by_p99_and_total_time()  {
+        def account = create_renamed_instance_of(source, 'TopAccount')
+
+        100.times { account.deposit(1) }
+        account.withdraw(1)
+
+        def histograms = ContractHistograms.snapshot()
+
+        assert ContractHistograms.topByPercentile(histograms, 99.0, 1)*.methodIdentifier.first().contains('withdraw')
+        assert ContractHistograms.topByTotalTime(histograms, 1)*.methodIdentifier.first().contains('withdraw')
+        // the constructor checks the default class invariant
+        assert ContractHistograms.topByTotalTime(histograms, 10).size() == 3
+
+        def dump = ContractHistograms.dump(5)
+        assert dump.contains('by p99')
+        assert dump.contains('tests.histograms.TopAccount')
+    }
+
+    @Test void periodic_reset()  {
+        ContractHistograms.enable(50)
+        def account = create_renamed_instance_of(source, 'PeriodicAccount')
+
+        account.deposit(1)
+
+        def deadline = System.currentTimeMillis() + 5000
+        while (histogram(ContractHistograms.lastInterval, 'PeriodicAccount', 'deposit') == null && System.currentTimeMillis() < deadline) sleep 10
+
+        assert histogram(ContractHistograms.lastInterval, 'PeriodicAccount', 'deposit').count == 1
+    }
+
+    @Test void nothing_is_recorded_while_disabled()  {
+        ContractHistograms.disable()
+        def account = create_renamed_instance_of(source, 'DisabledAccount')
+
+        account.deposit(1)
+
+        assert !ContractHistograms.enabled
+        assert ContractHistograms.snapshot().isEmpty()
+    }
+}
@@ -0,0 +1,119 @@
+package org.gcontracts.tests.other
+
+import org.gcontracts.PreconditionViolation
+import org.gcontracts.generation.ContractMetrics
+import org.gcontracts.generation.GenerationOptions
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import javax.management.ObjectName
+import java.lang.management.ManagementFactory
+
+/**
+ * Tests per contract site evaluation metrics.
+ *
+ * @see GenerationOptions#METRICS
+ *
+ * @author ast
+ */
+class ContractMetricsTests extends BaseTestClass {
+
+    def source = '''
+package tests.metrics
+
+import org.gcontracts.annotations.*
+
+@Invariant({ balance >= 0 })
+class Account {
+
+  def balance = 0
+
+  @Requires({ amount > 0 })
+  void deposit(def amount) { balance += amount }
+}
+
+class SavingsAccount extends Account {
+
+  @Requires({ amount > 10 })
+  void deposit(def amount) { super.deposit(amount) }
+}
+'''
+
+    @Before void enableMetrics()  {
+        System.setProperty(GenerationOptions.METRICS, 'true')
+        ContractMetrics.reset()
+    }
+
+    @After void disableMetrics()  {
+        System.clearProperty(GenerationOptions.METRICS)
+        ContractMetrics.reset()
+    }
+
+    private def metrics(String className, String assertionType)  {
+        ContractMetrics.snapshot().find { it.className == "tests.metrics.$className" && it.assertionType == assertionType }
+    }
+
+    @Test void inline_mode_checks_are_recorded()  {
+        def account = create_renamed_instance_of(source, 'InlineAccount')
+
+        3.times { account.deposit(1) }
+        shouldFail PreconditionViolation, {
+            account.deposit(-1)
+        }
+
+        def preconditions = metrics('InlineAccount', 'precondition')
+        assert preconditions.evaluationCount == 4
+        assert preconditions.failureCount == 1
+        assert preconditions.totalNanos > 0
+        assert preconditions.averageNanos == preconditions.totalNanos.intdiv(4)
+
+        // the constructor checks the class invariant as well
+        assert metrics('InlineAccount', 'invariant').evaluationCount == 4
+    }
+
+    @Test void closure_mode_checks_are_recorded()  {
+        def clazz = add_class_to_classpath(source.replace('Account', 'ClosureAccount'))
+        def account = clazz.classLoader.loadClass('tests.metrics.SavingsClosureAccount').newInstance()
+
+        account.deposit(1)
+        shouldFail PreconditionViolation, {
+            account.deposit(-1)
+        }
+
+        def preconditions = metrics('SavingsClosureAccount', 'precondition')
+        assert preconditions.evaluationCount == 2
+        assert preconditions.failureCount == 1
+    }
+
+    @Test void concurrent_checks_are_counted()  {
+        def account = create_renamed_instance_of(source, 'ConcurrentAccount')
+
+        def threads = (1..8).collect { Thread.start { 1000.times { account.deposit(1) } } }
+        threads*.join()
+
+        assert metrics('ConcurrentAccount', 'precondition').evaluationCount == 8000
+    }
+
+    @Test void metrics_are_exposed_with_jmx()  {
+        def account = create_renamed_instance_of(source, 'JmxAccount')
+        account.deposit(1)
+
+        def siteId = metrics('JmxAccount', 'precondition').siteId
+
+        def server = ManagementFactory.platformMBeanServer
+        def objectName = new ObjectName(ContractMetrics.OBJECT_NAME)
+
+        assert server.invoke(objectName, 'getEvaluationCount', [siteId] as Object[], [int.name] as String[]) == 1
+        assert server.getAttribute(objectName, 'SiteMetrics').any { it.contains('tests.metrics.JmxAccount') }
+    }
+
+    @Test void classes_without_metrics_are_not_recorded()  {
+        System.clearProperty(GenerationOptions.METRICS)
+        def account = create_renamed_instance_of(source, 'PlainAccount')
+        account.deposit(1)
+
+        assert metrics('PlainAccount', 'precondition') == null
+    }
+}
@@ -0,0 +1,179 @@
+package org.gcontracts.tests.other
+
+import org.gcontracts.PostconditionViolation
+import org.gcontracts.PreconditionViolation
+import org.gcontracts.generation.BaseGenerator
+import org.gcontracts.generation.ContractExecutionTracker
+import org.gcontracts.generation.ContractSampler
+import org.gcontracts.generation.GenerationOptions
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Tests sampled contract checks.
+ *
+ * @see GenerationOptions#SAMPLING
+ *
+ * @author ast
+ */
+class ContractSamplingTests extends BaseTestClass {
+
+    def source = '''
+package tests.sampling
+
+import org.gcontracts.annotations.*
+
+class Account {
+
+  int balance = 0
+
+  boolean isPositive(def value) { value > 0 }
+
+  @Requires({ amount > 0 })
+  void deposit(def amount) { balance += amount }
+
+  @Requires({ isPositive(amount) })
+  void withdraw(def amount) { balance -= amount }
+
+  @Ensures({ balance == old.balance + amount })
+  void add(def amount) { balance += amount }
+
+  @Ensures({ balance == old.balance })
+  void broken(def amount) { balance += amount }
+}
+'''
+
+    @Before void enableSampling()  {
+        System.setProperty(GenerationOptions.SAMPLING, 'true')
+        ContractSampler.setSampleRate('tests.sampling', 3)
+    }
+
+    @After void disableSampling()  {
+        System.clearProperty(GenerationOptions.SAMPLING)
+        ContractSampler.setSampleRate('tests.sampling', null)
+        ContractSampler.setWarmUp('tests.sampling', null)
+    }
+
+    private int siteId(def account, String methodName)  {
+        def siteIds = account.getClass().declaredFields.findAll { it.name.startsWith(BaseGenerator.CONTRACT_SITE_FIELD_PREFIX) }.collect { it.accessible = true; it.getInt(null) }
+        siteIds.find { ContractExecutionTracker.site(it).methodIdentifier.contains(methodName) }
+    }
+
+    private List<Boolean> violations(Class violationType, Closure code)  {
+        (1..7).collect {
+            try {
+                code.call()
+                return false
+            } catch (Throwable t) {
+                assert violationType.isInstance(t)
+                return true
+            }
+        }
+    }
+
+    @Test void sample_inline_mode_precondition()  {
+        def account = create_renamed_instance_of(source, 'InlineModeAccount')
+
+        assert violations(PreconditionViolation) { account.deposit(-1) } == [true, false, false, true, false, false, true]
+    }
+
+    @Test void sample_closure_mode_precondition()  {
+        def account = create_renamed_instance_of(source, 'ClosureModeAccount')
+
+        assert violations(PreconditionViolation) { account.withdraw(-1) } == [true, false, false, true, false, false, true]
+    }
+
+    @Test void sample_postcondition_with_old_variables()  {
+        def account = create_renamed_instance_of(source, 'PostconditionAccount')
+
+        assert violations(PostconditionViolation) { account.add(1) } == [false] * 7
+        assert violations(PostconditionViolation) { account.broken(1) } == [true, false, false, true, false, false, true]
+    }
+
+    @Test void sampled_and_skipped_counters()  {
+        def account = create_renamed_instance_of(source, 'CountingAccount')
+        7.times { account.deposit(1) }
+
+        def siteId = siteId(account, 'deposit')
+
+        assert ContractSampler.getSampleRate(siteId) == 3
+        assert ContractSampler.getSampledCount(siteId) == 3
+        assert ContractSampler.getSkippedCount(siteId) == 4
+    }
+
+    @Test void counters_of_terminated_threads_are_retired()  {
+        def account = create_renamed_instance_of(source, 'ThreadCountingAccount')
+        def siteId = siteId(account, 'deposit')
+
+        4.times {
+            Thread.start { 3.times { account.deposit(1) } }.join()
+        }
+
+        assert ContractSampler.getSampledCount(siteId) == 4
+        assert ContractSampler.getSkippedCount(siteId) == 8
+        assert ContractSampler.@allCounters.every { it.alive }
+    }
+
+    @Test void every_invocation_is_checked_without_sample_rate()  {
+        ContractSampler.setSampleRate('tests.sampling', null)
+        def account = create_renamed_instance_of(source, 'UnsampledAccount')
+
+        assert violations(PreconditionViolation) { account.deposit(-1) } == [true] * 7
+    }
+
+    @Test void warm_up_checks_every_invocation_before_sampling()  {
+        ContractSampler.setWarmUp('tests.sampling', 4)
+        def account = create_renamed_instance_of(source, 'WarmUpAccount')
+        def siteId = siteId(account, 'deposit')
+
+        3.times { account.deposit(1) }
+        assert ContractSampler.getState(siteId) == ContractSampler.State.WARM_UP
+        assert ContractSampler.getCleanCount(siteId) == 3
+
+        account.deposit(1)
+        assert ContractSampler.getState(siteId) == ContractSampler.State.SAMPLED
+        assert ContractSampler.getSkippedCount(siteId) == 0
+    }
+
+    @Test void violation_re_arms_warm_up_in_inline_mode()  {
+        ContractSampler.setWarmUp('tests.sampling', 4)
+        def account = create_renamed_instance_of(source, 'InlineModeWarmUpAccount')
+        def siteId = siteId(account, 'deposit')
+
+        4.times { account.deposit(1) }
+        assert ContractSampler.getState(siteId) == ContractSampler.State.SAMPLED
+
+        assert violations(PreconditionViolation) { account.deposit(-1) } == [true] * 7
+        assert ContractSampler.getState(siteId) == ContractSampler.State.WARM_UP
+        assert ContractSampler.getCleanCount(siteId) == 0
+        assert ContractSampler.getViolationCount(siteId) == 7
+    }
+
+    @Test void violation_re_arms_warm_up_in_closure_mode()  {
+        ContractSampler.setWarmUp('tests.sampling', 4)
+        def account = create_renamed_instance_of(source, 'ClosureModeWarmUpAccount')
+        def siteId = siteId(account, 'withdraw')
+
+        4.times { account.withdraw(1) }
+        assert ContractSampler.getState(siteId) == ContractSampler.State.SAMPLED
+
+        assert violations(PreconditionViolation) { account.withdraw(-1) } == [true] * 7
+        assert ContractSampler.getState(siteId) == ContractSampler.State.WARM_UP
+        assert ContractSampler.getViolationCount(siteId) == 7
+    }
+
+    @Test void warm_up_relaxes_to_disabled_without_sample_rate()  {
+        ContractSampler.setSampleRate('tests.sampling', 0)
+        ContractSampler.setWarmUp('tests.sampling', 2)
+        def account = create_renamed_instance_of(source, 'DisabledAfterWarmUpAccount')
+        def siteId = siteId(account, 'deposit')
+
+        2.times { account.deposit(1) }
+        assert ContractSampler.getState(siteId) == ContractSampler.State.DISABLED
+
+        assert violations(PreconditionViolation) { account.deposit(-1) } == [false] * 7
+        assert ContractSampler.getSkippedCount(siteId) == 7
+    }
+}
@@ -0,0 +1,99 @@
+package org.gcontracts.tests.other
+
+import org.gcontracts.generation.BaseGenerator
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.Test
+
+import java.lang.reflect.Modifier
+
+/**
+ * Private fields referenced by contracts are read through synthetic accessor methods.
+ *
+ * @author ast
+ */
+class FieldAccessorTests extends BaseTestClass {
+
+    def source = '''
+package tests
+
+import org.gcontracts.annotations.*
+
+@Invariant({ balance >= 0 && LIMIT > 0 })
+class Account {
+
+  private int balance = 0
+  private static int LIMIT = 100
+
+  @Requires({ amount + balance <= LIMIT })
+  @Ensures({ balance == old.balance + amount })
+  void deposit(int amount) { balance += amount }
+
+  void corrupt() { balance = -1 }
+}
+'''
+
+    @Test void accessors_are_generated()  {
+        def clazz = add_class_to_classpath(source)
+
+        def accessor = clazz.getDeclaredMethod(BaseGenerator.FIELD_ACCESSOR_PREFIX + 'tests_Account_balance')
+        assert accessor.isSynthetic()
+        assert !Modifier.isPublic(accessor.modifiers)
+        assert !Modifier.isProtected(accessor.modifiers)
+        assert !Modifier.isPrivate(accessor.modifiers)
+        assert !Modifier.isStatic(accessor.modifiers)
+
+        def staticAccessor = clazz.getDeclaredMethod(BaseGenerator.FIELD_ACCESSOR_PREFIX + 'tests_Account_LIMIT')
+        assert Modifier.isStatic(staticAccessor.modifiers)
+    }
+
+    @Test void contracts_read_private_fields()  {
+        def account = create_instance_of(source)
+
+        account.deposit(50)
+        assert account.balance == 50
+
+        shouldFail AssertionError, {
+            account.deposit(51)
+        }
+
+        shouldFail AssertionError, {
+            account.corrupt()
+        }
+    }
+
+    @Test void subclasses_in_other_packages_inherit_contracts()  {
+        add_class_to_classpath '''
+package tests.parent
+
+import org.gcontracts.annotations.*
+
+@Invariant({ balance >= 0 })
+class ParentAccount {
+
+  private int balance = 0
+
+  @Requires({ amount + balance <= 100 })
+  @Ensures({ balance >= 0 })
+  void deposit(int amount) { balance += amount }
+}
+'''
+
+        def account = create_instance_of('''
+package tests.child
+
+import org.gcontracts.annotations.*
+
+class ChildAccount extends tests.parent.ParentAccount {
+
+  @Requires({ amount > 0 })
+  void deposit(int amount) { super.deposit(amount) }
+}
+''')
+
+        account.deposit(50)
+
+        shouldFail AssertionError, {
+            account.deposit(-60)
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.gcontracts.tests.other
+
+import org.gcontracts.AssertionViolation
+import org.gcontracts.ClassInvariantViolation
+import org.gcontracts.PostconditionViolation
+import org.gcontracts.PreconditionViolation
+import org.gcontracts.ViolationEvent
+import org.gcontracts.ViolationLog
+import org.gcontracts.ViolationSink
+import org.gcontracts.generation.ContractEventListener
+import org.gcontracts.generation.ContractEvents
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Test
+
+import java.util.concurrent.CountDownLatch
+
+/**
+ * Tests log-and-continue enforcement.
+ *
+ * @see ViolationLog
+ *
+ * @author ast
+ */
+class LogAndContinueTests extends BaseTestClass {
+
+    def source = '''
+package tests.logging
+
+import org.gcontracts.annotations.*
+
+@Invariant({ balance >= 0 })
+class Account {
+
+  def balance = 0
+
+  @Requires({ amount > 0 })
+  void deposit(def amount) { balance += amount }
+
+  @Ensures({ balance == old.balance })
+  void broken(def amount) { balance += amount }
+}
+
+class SavingsAccount extends Account {
+
+  @Requires({ amount < 1000 })
+  void deposit(def amount) { super.deposit(amount) }
+}
+'''
+
+    List<ViolationEvent> events = Collections.synchronizedList([])
+
+    ViolationSink collectingSink = { List<ViolationEvent> batch -> events.addAll(batch) } as ViolationSink
+
+    @After void disableViolationLog()  {
+        ViolationLog.disable()
+        AssertionViolation.stackless = false
+    }
+
+    @Test void inline_mode_violations_are_recorded()  {
+        def account = create_instance_of(source)
+        ViolationLog.enable(collectingSink)
+
+        account.deposit(-1)
+        account.broken(1)
+        ViolationLog.flush()
+
+        assert account.balance == 0
+        assert events*.violation*.class == [PreconditionViolation, ClassInvariantViolation, PostconditionViolation]
+        assert events.every { it.threadName == Thread.currentThread().name }
+    }
+
+    @Test void closure_mode_violations_are_recorded()  {
+        def account = add_class_to_classpath(source).classLoader.loadClass('tests.logging.SavingsAccount').newInstance()
+        ViolationLog.enable(collectingSink)
+
+        account.deposit(-1)
+        ViolationLog.flush()
+
+        assert account.balance == -1
+        assert events*.violation*.class.contains(PreconditionViolation)
+    }
+
+    @Test void stackless_violations_are_recorded_once()  {
+        def account = create_instance_of(source)
+        AssertionViolation.stackless = true
+        ViolationLog.enable(collectingSink)
+
+        def violations = Collections.synchronizedList([])
+        def listener = [
+                contractEvaluated: { site, startNanos, durationNanos, passed -> },
+                contractViolated: { AssertionViolation violation -> violations << violation }
+        ] as ContractEventListener
+
+        ContractEvents.addListener(listener)
+        try {
+            account.deposit(-1)
+        } finally {
+            ContractEvents.removeListener(listener)
+        }
+        ViolationLog.flush()
+
+        assert events.findAll { it.violation instanceof PreconditionViolation }.size() == 1
+        def preconditionViolations = violations.findAll { it instanceof PreconditionViolation }
+        assert preconditionViolations.size() == 1
+        assert preconditionViolations[0].is(events.find { it.violation instanceof PreconditionViolation }.violation)
+    }
+
+    @Test void violations_are_thrown_after_disable()  {
+        def account = create_instance_of(source)
+        ViolationLog.enable(collectingSink)
+        ViolationLog.disable()
+
+        shouldFail PreconditionViolation, {
+            account.deposit(-1)
+        }
+    }
+
+    @Test void full_buffer_drops_violations()  {
+        def account = create_instance_of(source)
+
+        def blocked = new CountDownLatch(1)
+        ViolationLog.enable({ List<ViolationEvent> batch -> blocked.await(); events.addAll(batch) } as ViolationSink, 4)
+
+        20.times { account.deposit(-1) }
+
+        def dropped = ViolationLog.droppedCount
+        assert dropped > 0
+        assert ViolationLog.recordedCount + dropped == 40
+
+        blocked.countDown()
+        ViolationLog.disable()
+
+        assert events.size() == 40 - dropped
+    }
+
+    @Test void failing_sink_counts_dropped_violations()  {
+        def account = create_instance_of(source)
+        ViolationLog.enable({ List<ViolationEvent> batch -> throw new IOException() } as ViolationSink)
+
+        account.deposit(-1)
+        ViolationLog.flush()
+
+        assert ViolationLog.droppedCount == 2
+    }
+}
@@ -0,0 +1,107 @@
+package org.gcontracts.tests.other
+
+import org.gcontracts.AssertionViolation
+import org.gcontracts.ClassInvariantViolation
+import org.gcontracts.PostconditionViolation
+import org.gcontracts.PreconditionViolation
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Violations created in stackless mode.
+ *
+ * @see AssertionViolation#setStackless(boolean)
+ *
+ * @author ast
+ */
+class StacklessViolationTests extends BaseTestClass {
+
+  def source = '''
+package tests
+
+import org.gcontracts.annotations.*
+
+@Invariant({ balance >= 0 })
+class Account {
+
+  def balance = 0
+
+  boolean isPositive(def value) { value > 0 }
+
+  @Requires({ amount > 0 })
+  void deposit(def amount) { balance += amount }
+
+  @Requires({ isPositive(amount) })
+  void withdraw(def amount) { balance -= amount }
+
+  @Ensures({ result > 0 })
+  def broken() { 0 }
+}
+'''
+
+  @Before void enableStacklessViolations()  {
+    AssertionViolation.setStackless(true)
+  }
+
+  @After void disableStacklessViolations()  {
+    AssertionViolation.setStackless(false)
+  }
+
+  private AssertionViolation violation(Class type, Closure code)  {
+    try {
+      code.call()
+    } catch (AssertionViolation violation) {
+      assert type.isInstance(violation)
+      return violation
+    }
+
+    assert false, "no $type.name has been thrown"
+  }
+
+  @Test void inline_mode_precondition()  {
+    def account = create_instance_of(source)
+
+    def violation = violation(PreconditionViolation) { account.deposit(0) }
+
+    assert violation.stackTrace.length == 0
+    assert violation.message.contains('tests.Account.void deposit(java.lang.Object)')
+    assert violation.message.contains('amount > 0')
+  }
+
+  @Test void closure_mode_precondition()  {
+    def account = create_instance_of(source)
+
+    def violation = violation(PreconditionViolation) { account.withdraw(-1) }
+
+    assert violation.stackTrace.length == 0
+    assert violation.message.contains('isPositive(amount)')
+  }
+
+  @Test void postcondition()  {
+    def account = create_instance_of(source)
+
+    def violation = violation(PostconditionViolation) { account.broken() }
+
+    assert violation.stackTrace.length == 0
+  }
+
+  @Test void class_invariant()  {
+    def account = create_instance_of(source)
+
+    def violation = violation(ClassInvariantViolation) { account.withdraw(5) }
+
+    assert violation.stackTrace.length == 0
+    assert violation.message.contains('balance >= 0')
+  }
+
+  @Test void stack_trace_is_filled_if_disabled()  {
+    AssertionViolation.setStackless(false)
+    def account = create_instance_of(source)
+
+    def violation = violation(PreconditionViolation) { account.deposit(0) }
+
+    assert violation.stackTrace.length > 0
+  }
+}
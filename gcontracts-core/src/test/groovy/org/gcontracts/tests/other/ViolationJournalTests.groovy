@@ -0,0 +1,149 @@
+package org.gcontracts.tests.other
+
+import org.gcontracts.PreconditionViolation
+import org.gcontracts.ViolationJournal
+import org.gcontracts.ViolationJournalReader
+import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Tests the memory-mapped violation journal.
+ *
+ * @see ViolationJournal
+ *
+ * @author ast
+ */
+class ViolationJournalTests extends BaseTestClass {
+
+    def source = '''
+package tests.journal
+
+import org.gcontracts.annotations.*
+
+@Invariant({ balance >= 0 })
+class Account {
+
+  def balance = 0
+
+  @Requires({ amount > 0 })
+  void deposit(def amount) { balance += amount }
+
+  @Requires({ amount > 0 })
+  void withdraw(def amount) { balance -= amount }
+
+  @Requires({ !text })
+  void note(def text) {}
+}
+'''
+
+    File directory
+
+    @Before void createDirectory()  {
+        directory = File.createTempFile('gcontracts', 'journal')
+        directory.delete()
+    }
+
+    @After void closeJournal()  {
+        ViolationJournal.close()
+        directory.deleteDir()
+    }
+
+    private void violate(def account, String methodName)  {
+        try {
+            account."$methodName"(-1)
+        } catch (PreconditionViolation expected) {}
+    }
+
+    @Test void violations_are_journaled()  {
+        def account = create_instance_of(source)
+        ViolationJournal.open(directory, ViolationJournal.DEFAULT_SEGMENT_SIZE, ViolationJournal.DEFAULT_SEGMENTS)
+
+        violate(account, 'deposit')
+        violate(account, 'withdraw')
+        violate(account, 'deposit')
+
+        def entries = ViolationJournalReader.read(directory)
+        assert entries.size() == 3
+        assert entries*.assertionType == ['precondition'] * 3
+        assert entries[0].site.endsWith('tests.journal.Account.void deposit(java.lang.Object)')
+        assert entries[1].site.endsWith('tests.journal.Account.void withdraw(java.lang.Object)')
+        assert entries[0].siteId == entries[2].siteId
+        assert entries[0].values.contains('amount > 0')
+        assert entries.every { it.threadId == Thread.currentThread().id && it.timestamp <= System.currentTimeMillis() }
+    }
+
+    @Test void segments_are_rotated_and_bounded()  {
+        def account = create_instance_of(source)
+        ViolationJournal.open(directory, 4096, 3)
+
+        200.times { violate(account, it % 2 == 0 ? 'deposit' : 'withdraw') }
+
+        def segments = directory.listFiles().findAll { it.name.endsWith('.gcj') }
+        assert segments.size() == 3
+
+        // every segment repeats the contract sites it references
+        def entries = ViolationJournalReader.read(directory)
+        assert entries.size() > 0 && entries.size() < 200
+        assert entries.every { !it.site.startsWith('<unknown') }
+    }
+
+    @Test void values_are_truncated()  {
+        System.setProperty(ViolationJournal.MAX_VALUE_LENGTH, '10')
+        try {
+            def account = create_instance_of(source)
+            ViolationJournal.open(directory, ViolationJournal.DEFAULT_SEGMENT_SIZE, ViolationJournal.DEFAULT_SEGMENTS)
+
+            violate(account, 'deposit')
+        } finally {
+            System.clearProperty(ViolationJournal.MAX_VALUE_LENGTH)
+        }
+
+        assert ViolationJournalReader.read(directory)[0].values.length() == 10
+    }
+
+    @Test void large_values_are_truncated_to_the_record_format()  {
+        System.setProperty(ViolationJournal.MAX_VALUE_LENGTH, '1000000')
+        try {
+            def account = create_instance_of(source)
+            ViolationJournal.open(directory, ViolationJournal.DEFAULT_SEGMENT_SIZE, ViolationJournal.DEFAULT_SEGMENTS)
+
+            [40000, 100000].each { length ->
+                try {
+                    account.note('x' * length)
+                } catch (PreconditionViolation expected) {}
+            }
+        } finally {
+            System.clearProperty(ViolationJournal.MAX_VALUE_LENGTH)
+        }
+
+        def entries = ViolationJournalReader.read(directory)
+        assert entries.size() == 2
+        assert entries[0].values.contains('x' * 40000)
+        assert entries[1].values.length() == 0xFFFF
+    }
+
+    @Test void reopened_journal_continues_with_next_segment()  {
+        def account = create_instance_of(source)
+        ViolationJournal.open(directory, ViolationJournal.DEFAULT_SEGMENT_SIZE, ViolationJournal.DEFAULT_SEGMENTS)
+        violate(account, 'deposit')
+
+        ViolationJournal.open(directory, ViolationJournal.DEFAULT_SEGMENT_SIZE, ViolationJournal.DEFAULT_SEGMENTS)
+        violate(account, 'withdraw')
+
+        assert directory.listFiles().size() == 2
+        assert ViolationJournalReader.read(directory)*.site*.endsWith('withdraw(java.lang.Object)') == [false, true]
+    }
+
+    @Test void closed_journal_does_not_record()  {
+        def account = create_instance_of(source)
+        ViolationJournal.open(directory, ViolationJournal.DEFAULT_SEGMENT_SIZE, ViolationJournal.DEFAULT_SEGMENTS)
+        ViolationJournal.close()
+
+        violate(account, 'deposit')
+
+        assert !ViolationJournal.isOpen()
+        assert ViolationJournalReader.read(directory).isEmpty()
+    }
+}
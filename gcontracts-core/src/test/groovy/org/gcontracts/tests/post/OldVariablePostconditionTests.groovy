@@ -1,6 +1,9 @@
 package org.gcontracts.tests.post
 
+import org.gcontracts.generation.OldValueSnapshots
+import org.gcontracts.generation.SnapshotStrategy
 import org.gcontracts.tests.basic.BaseTestClass
+import org.junit.After
 import org.junit.Test
 
 /**
@@ -153,4 +156,184 @@ class OldVariable {
       betterAccount.withdraw (10.0)
 
   }
-}
\ No newline at end of file
+
+  def cloneCountingSource = '''
+    package tests
+
+    import org.gcontracts.annotations.*
+
+    class Counter {
+
+      private int count = 0
+      private Date modified = new CloneCountingDate()
+
+      @Ensures({ count == old.count + 1 })
+      void increment() { count++ }
+
+      @Ensures({ modified.time == old['modified'].time + 1 })
+      void touch() { modified.time = modified.time + 1; count++ }
+
+      @Ensures({ count >= 0 })
+      int reset() { count = 0 }
+    }
+
+    class CloneCountingDate extends Date {
+      static int clones = 0
+
+      Object clone() { clones++; super.clone() }
+    }
+'''
+
+  @Test void capture_only_referenced_old_variables()  {
+    def counter = create_instance_of(cloneCountingSource)
+    def cloneCountingDate = counter.getClass().classLoader.loadClass('tests.CloneCountingDate')
+
+    counter.increment()
+    counter.increment()
+    assert cloneCountingDate.clones == 0
+
+    counter.touch()
+    assert cloneCountingDate.clones == 1
+
+    counter.reset()
+    assert cloneCountingDate.clones == 1
+  }
+
+  @Test void referenced_old_variable_is_captured_before_method_execution()  {
+    def counter = create_instance_of(cloneCountingSource)
+
+    counter.touch()
+    counter.touch()
+
+    assert counter.reset() == 0
+  }
+
+  @Test void overridden_postconditions_without_old_variables()  {
+    add_class_to_classpath '''
+    package tests
+
+    import org.gcontracts.annotations.*
+
+    class OverriddenAccount {
+      long balance = 0
+
+      @Ensures({ balance > 0 })
+      void deposit(long amount) { balance += amount }
+    }
+'''
+
+    def account = create_instance_of('''
+    package tests
+
+    import org.gcontracts.annotations.*
+
+    class OverridingAccount extends OverriddenAccount {
+
+      @Ensures({ balance > 0 })
+      void deposit(long amount) { balance += amount }
+    }
+''')
+
+    account.deposit(1)
+
+    shouldFail org.gcontracts.PostconditionViolation, {
+      account.deposit(-5)
+    }
+  }
+
+  def primitiveOldVariablesSource = '''
+    package tests
+
+    import org.gcontracts.annotations.*
+
+    class PrimitiveCounter {
+      int count
+      long total
+      boolean touched
+
+      @Ensures({ count == old.count + 1 && total == old['total'] + amount && (old.touched || touched) })
+      void add(int amount) { count++; total += amount; touched = true }
+
+      @Ensures({ result == old.count + 1 })
+      int broken() { count += 2; count }
+    }
+'''
+
+  @Test void primitive_old_variables_in_inline_mode()  {
+    def counter = create_instance_of(primitiveOldVariablesSource)
+
+    counter.add(5)
+    counter.add(7)
+
+    assert counter.count == 2
+    assert counter.total == 12L
+  }
+
+  @Test void primitive_old_variables_violation()  {
+    def counter = create_instance_of(primitiveOldVariablesSource)
+    counter.count = 40
+
+    def message = shouldFail(org.gcontracts.PostconditionViolation, {
+      counter.broken()
+    })
+
+    // the power assert renders the value kept in the typed local variable
+    assert message.readLines().find { it.startsWith('42') }?.tokenize() == ['42', '|', '40', '41']
+  }
+
+  def collectionOldVariablesSource = '''
+    package tests
+
+    import org.gcontracts.annotations.*
+
+    class Stack {
+      ArrayList items = []
+      List names = []
+
+      @Ensures({ items.size() == old.items.size() + 1 && !items.isEmpty() && names.size() == old.names.size() })
+      void push(def item) { items.add(item) }
+
+      @Ensures({ old.items.contains(result) && items.size() == old.items.size() - 1 })
+      def pop() { items.remove(items.size() - 1) }
+
+      @Ensures({ items.size() == old.items.size() + 1 })
+      void pushTwice(def item) { items.add(item); items.add(item) }
+    }
+'''
+
+  @After void unregisterSnapshotStrategy()  {
+    OldValueSnapshots.register(ArrayList, null)
+    OldValueSnapshots.register(List, null)
+  }
+
+  @Test void size_projection_of_collection_does_not_take_snapshot()  {
+    def snapshots = 0
+    OldValueSnapshots.register(ArrayList, { value -> snapshots++; value.clone() } as SnapshotStrategy)
+
+    def stack = create_instance_of(collectionOldVariablesSource)
+    stack.push(1)
+    stack.push(2)
+
+    assert snapshots == 0
+  }
+
+  @Test void size_projection_violation()  {
+    def stack = create_instance_of(collectionOldVariablesSource)
+
+    shouldFail org.gcontracts.PostconditionViolation, {
+      stack.pushTwice(1)
+    }
+  }
+
+  @Test void registered_snapshot_strategy_is_used_for_collections()  {
+    def snapshots = 0
+    OldValueSnapshots.register(List, { value -> snapshots++; new ArrayList(value) } as SnapshotStrategy)
+
+    def stack = create_instance_of(collectionOldVariablesSource)
+    stack.push(1)
+    stack.push(2)
+
+    assert stack.pop() == 2
+    assert snapshots == 1
+  }
+}
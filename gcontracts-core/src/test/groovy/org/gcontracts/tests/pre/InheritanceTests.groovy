@@ -3,6 +3,7 @@ package org.gcontracts.tests.pre
 import org.gcontracts.tests.basic.BaseTestClass
 import org.junit.Test
 import org.gcontracts.PostconditionViolation
+import org.gcontracts.PreconditionViolation
 
 /**
  * @author ast
@@ -156,5 +157,43 @@ class Descendant extends Parent {
         }
     }
 
+    @Test void precondition_in_deep_inheritance_line() {
 
+        add_class_to_classpath """
+            import org.gcontracts.annotations.*
+
+            class Level1 {
+                @Requires({ value > 10 })
+                def operation(int value) { value }
+            }
+        """
+
+        add_class_to_classpath """
+            import org.gcontracts.annotations.*
+
+            class Level2 extends Level1 {
+                @Requires({ value > 5 })
+                def operation(int value) { value }
+            }
+        """
+
+        def level3 = add_class_to_classpath """
+            import org.gcontracts.annotations.*
+
+            class Level3 extends Level2 {
+                @Requires({ value > 0 })
+                def operation(int value) { value }
+            }
+        """
+
+        def c = level3.newInstance()
+
+        assert c.operation(11) == 11
+        assert c.operation(6) == 6
+        assert c.operation(1) == 1
+
+        shouldFail PreconditionViolation, {
+            c.operation(0)
+        }
+    }
 }
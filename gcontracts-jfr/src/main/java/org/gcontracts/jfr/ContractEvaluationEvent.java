@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * <p>Java Flight Recorder event for a contract check of a class compiled with
+ * {@link org.gcontracts.generation.GenerationOptions#METRICS}. The event is disabled by default and has to be enabled
+ * by the recording, e.g. with <tt>org.gcontracts.ContractEvaluation#enabled=true</tt>.</p>
+ *
+ * <p>The check has already been evaluated when the event is created, its duration is therefore kept in
+ * <tt>evaluationDuration</tt> and not in the duration of the event.</p>
+ *
+ * @author ast
+ */
+@Name(ContractEvaluationEvent.NAME)
+@Label("Contract Evaluation")
+@Description("A contract check of a class compiled with org.gcontracts.metrics")
+@Category("GContracts")
+@Enabled(false)
+@StackTrace(false)
+public final class ContractEvaluationEvent extends Event {
+
+    public static final String NAME = "org.gcontracts.ContractEvaluation";
+
+    @Label("Class")
+    String className;
+
+    @Label("Method")
+    String method;
+
+    @Label("Kind")
+    @Description("precondition, postcondition or invariant")
+    String kind;
+
+    @Label("Evaluation Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long evaluationDuration;
+
+    @Label("Passed")
+    boolean passed;
+}
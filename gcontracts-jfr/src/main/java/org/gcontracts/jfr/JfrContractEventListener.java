@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2013, Andre Steingress
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1.) Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ * 2.) Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided with the distribution.
+ * 3.) Neither the name of Andre Steingress nor the names of its contributors may be used to endorse or
+ * promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE
+ * USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.gcontracts.jfr;
+
+import jdk.jfr.EventType;
+import org.gcontracts.AssertionViolation;
+import org.gcontracts.ClassInvariantViolation;
+import org.gcontracts.PostconditionViolation;
+import org.gcontracts.PreconditionViolation;
+import org.gcontracts.generation.Configurator;
+import org.gcontracts.generation.ContractEventListener;
+import org.gcontracts.generation.ContractExecutionTracker;
+
+/**
+ * <p>Emits {@link ContractEvaluationEvent}s and {@link ContractViolationEvent}s to Java Flight Recorder. The listener
+ * is registered with {@link org.gcontracts.generation.ContractEvents} by {@link java.util.ServiceLoader} as soon as
+ * this module is on the class path.</p>
+ *
+ * <p>Both events are disabled by default. Unless a recording enables them, the listener only checks whether the
+ * event type is enabled. Evaluation events are only reported for classes compiled with
+ * {@link org.gcontracts.generation.GenerationOptions#METRICS}.</p>
+ *
+ * @author ast
+ */
+public final class JfrContractEventListener implements ContractEventListener {
+
+    private static final EventType EVALUATION = EventType.getEventType(ContractEvaluationEvent.class);
+    private static final EventType VIOLATION = EventType.getEventType(ContractViolationEvent.class);
+
+    public void contractEvaluated(final ContractExecutionTracker.ContractExecution site, final long startNanos, final long durationNanos, final boolean passed)  {
+        if (!EVALUATION.isEnabled()) return;
+
+        final ContractEvaluationEvent event = new ContractEvaluationEvent();
+        event.className = site.getClassName();
+        event.method = site.getMethodIdentifier();
+        event.kind = site.getAssertionType();
+        event.evaluationDuration = durationNanos;
+        event.passed = passed;
+        event.commit();
+    }
+
+    public void contractViolated(final AssertionViolation violation)  {
+        if (!VIOLATION.isEnabled()) return;
+
+        final ContractViolationEvent event = new ContractViolationEvent();
+        event.kind = kindOf(violation);
+        event.violationClass = violation.getClass();
+        event.message = violation.getMessage();
+        event.commit();
+    }
+
+    private static String kindOf(final AssertionViolation violation)  {
+        if (violation instanceof PreconditionViolation) return Configurator.PRECONDITION;
+        if (violation instanceof PostconditionViolation) return Configurator.POSTCONDITION;
+        if (violation instanceof ClassInvariantViolation) return Configurator.INVARIANT;
+
+        return null;
+    }
+}
@@ -0,0 +1,75 @@
+package org.gcontracts.jfr
+
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordedEvent
+import jdk.jfr.consumer.RecordingFile
+import org.gcontracts.PreconditionViolation
+import org.gcontracts.generation.ContractEventListener
+import org.gcontracts.generation.ContractEvents
+import org.gcontracts.generation.ContractExecutionTracker
+import org.junit.Test
+
+/**
+ * Tests the Java Flight Recorder events of {@link JfrContractEventListener}.
+ *
+ * @author ast
+ */
+class JfrContractEventListenerTests {
+
+    private List<RecordedEvent> record(String eventName, Closure action)  {
+        def recording = new Recording()
+        if (eventName) recording.enable(eventName)
+
+        def file = File.createTempFile('gcontracts', '.jfr')
+        file.deleteOnExit()
+
+        try {
+            recording.start()
+            action()
+            recording.stop()
+            recording.dump(file.toPath())
+        } finally {
+            recording.close()
+        }
+
+        return RecordingFile.readAllEvents(file.toPath()).findAll { it.eventType.name.startsWith('org.gcontracts.') }
+    }
+
+    @Test void listener_is_found_by_service_loader()  {
+        assert ServiceLoader.load(ContractEventListener).any { it instanceof JfrContractEventListener }
+        assert ContractEvents.hasListeners()
+    }
+
+    @Test void events_are_disabled_by_default()  {
+        def events = record(null) {
+            new PreconditionViolation('amount > 0')
+            new JfrContractEventListener().contractEvaluated(new ContractExecutionTracker.ContractExecution('org.example.Account', 'void deposit(int)', 'precondition', false), System.nanoTime(), 100, true)
+        }
+
+        assert events.empty
+    }
+
+    @Test void violations_are_recorded()  {
+        def events = record(ContractViolationEvent.NAME) {
+            new PreconditionViolation('amount > 0')
+        }
+
+        assert events.size() == 1
+        assert events[0].getString('kind') == 'precondition'
+        assert events[0].getClass('violationClass').name == PreconditionViolation.name
+        assert events[0].getString('message').contains('amount > 0')
+    }
+
+    @Test void evaluations_are_recorded()  {
+        def events = record(ContractEvaluationEvent.NAME) {
+            new JfrContractEventListener().contractEvaluated(new ContractExecutionTracker.ContractExecution('org.example.Account', 'void deposit(int)', 'precondition', false), System.nanoTime(), 1234, false)
+        }
+
+        assert events.size() == 1
+        assert events[0].getString('className') == 'org.example.Account'
+        assert events[0].getString('method') == 'void deposit(int)'
+        assert events[0].getString('kind') == 'precondition'
+        assert events[0].getDuration('evaluationDuration').toNanos() == 1234
+        assert !events[0].getBoolean('passed')
+    }
+}